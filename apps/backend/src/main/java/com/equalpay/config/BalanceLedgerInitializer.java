@@ -0,0 +1,22 @@
+package com.equalpay.config;
+
+import com.equalpay.service.BalanceLedgerService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Component;
+
+@Component
+public class BalanceLedgerInitializer implements CommandLineRunner {
+
+    @Autowired
+    private BalanceLedgerService balanceLedgerService;
+
+    @Override
+    public void run(String... args) {
+        // Grupos creados antes del ledger: se reconstruyen una sola vez desde su historial
+        int rebuilt = balanceLedgerService.rebuildMissingLedgers();
+        if (rebuilt > 0) {
+            System.out.println("✅ Ledger de balances inicializado para " + rebuilt + " grupo(s)");
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.equalpay.config;
+
+import com.equalpay.service.BalanceCacheInvalidator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+// Caches y sus límites se configuran en application.yml (spring.cache.caffeine.spec).
+// El cache de balances por grupo descarta los valores calculados antes de una invalidación
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    @Bean
+    public CacheManager cacheManager(@Value("${spring.cache.cache-names}") List<String> cacheNames,
+                                     @Value("${spring.cache.caffeine.spec:}") String spec) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager() {
+            @Override
+            protected Cache adaptCaffeineCache(String name, com.github.benmanes.caffeine.cache.Cache<Object, Object> cache) {
+                if (BalanceCacheInvalidator.GROUP_BALANCES.equals(name)) {
+                    return new GenerationCheckedCache(name, cache, isAllowNullValues());
+                }
+                return super.adaptCaffeineCache(name, cache);
+            }
+        };
+        if (!spec.isEmpty()) {
+            cacheManager.setCacheSpecification(spec);
+        }
+        cacheManager.setCacheNames(cacheNames);
+        return cacheManager;
+    }
+}
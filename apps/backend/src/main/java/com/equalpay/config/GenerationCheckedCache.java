@@ -0,0 +1,70 @@
+package com.equalpay.config;
+
+import org.springframework.cache.caffeine.CaffeineCache;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Cache que descarta un put si la clave se invalidó mientras se calculaba el valor. Cada evict aumenta
+// la generación de la clave; un get sin resultado anota en el hilo la generación vista, y el put que
+// le sigue (el de @Cacheable, en el mismo hilo) solo se guarda si sigue siendo la misma. Así una
+// lectura que empezó antes del commit de una escritura no deja cacheado el balance previo
+public class GenerationCheckedCache extends CaffeineCache {
+
+    private final Map<Object, Long> generations = new ConcurrentHashMap<>();
+    private final AtomicLong clears = new AtomicLong();
+    private final ThreadLocal<Map<Object, Long>> observed = ThreadLocal.withInitial(HashMap::new);
+
+    public GenerationCheckedCache(String name, com.github.benmanes.caffeine.cache.Cache<Object, Object> cache,
+                                  boolean allowNullValues) {
+        super(name, cache, allowNullValues);
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        ValueWrapper value = super.get(key);
+        if (value == null) {
+            observed.get().put(key, generation(key));
+        }
+        return value;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        Long seen = observed.get().remove(key);
+        if (seen != null && seen != generation(key)) {
+            return;
+        }
+        super.put(key, value);
+    }
+
+    @Override
+    public void evict(Object key) {
+        generations.merge(key, 1L, Long::sum);
+        super.evict(key);
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        generations.merge(key, 1L, Long::sum);
+        return super.evictIfPresent(key);
+    }
+
+    @Override
+    public void clear() {
+        clears.incrementAndGet();
+        super.clear();
+    }
+
+    @Override
+    public boolean invalidate() {
+        clears.incrementAndGet();
+        return super.invalidate();
+    }
+
+    private long generation(Object key) {
+        return generations.getOrDefault(key, 0L) + clears.get();
+    }
+}
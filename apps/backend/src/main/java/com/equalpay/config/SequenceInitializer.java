@@ -0,0 +1,51 @@
+package com.equalpay.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.Map;
+
+// expenses, expense_splits y group_member_balance pasaron de IDENTITY a secuencias: en bases PostgreSQL existentes
+// la secuencia creada por ddl-auto empieza en 1, así que se adelanta hasta el mayor ID ya usado
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class SequenceInitializer implements CommandLineRunner {
+
+    // secuencia -> tabla
+    private static final Map<String, String> SEQUENCES = Map.of(
+            "expenses_seq", "expenses",
+            "expense_splits_seq", "expense_splits",
+            "group_member_balance_seq", "group_member_balance",
+            "group_balance_checkpoints_seq", "group_balance_checkpoints",
+            "user_activity_seq", "user_activity",
+            "user_month_spend_seq", "user_month_spend"
+    );
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void run(String... args) throws Exception {
+        try (Connection connection = dataSource.getConnection()) {
+            if (!"PostgreSQL".equals(connection.getMetaData().getDatabaseProductName())) {
+                return;
+            }
+        }
+
+        // Nunca retrocede la secuencia: otras instancias pueden tener bloques de IDs ya reservados
+        SEQUENCES.forEach((sequence, table) -> jdbcTemplate.queryForObject(
+                "SELECT setval('" + sequence + "', GREATEST("
+                        + "(SELECT COALESCE(MAX(id), 1) FROM " + table + "), "
+                        + "(SELECT last_value FROM " + sequence + ")))",
+                Long.class));
+    }
+}
@@ -0,0 +1,22 @@
+package com.equalpay.config;
+
+import com.equalpay.service.UserActivityService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Component;
+
+@Component
+public class UserActivityInitializer implements CommandLineRunner {
+
+    @Autowired
+    private UserActivityService userActivityService;
+
+    @Override
+    public void run(String... args) {
+        // Gastos y liquidaciones anteriores al timeline: se cargan una sola vez
+        long written = userActivityService.backfillIfEmpty();
+        if (written > 0) {
+            System.out.println("✅ Timeline de actividad inicializado con " + written + " gasto(s) y liquidación(es)");
+        }
+    }
+}
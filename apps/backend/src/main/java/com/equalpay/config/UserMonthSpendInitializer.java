@@ -0,0 +1,22 @@
+package com.equalpay.config;
+
+import com.equalpay.service.UserMonthSpendService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Component;
+
+@Component
+public class UserMonthSpendInitializer implements CommandLineRunner {
+
+    @Autowired
+    private UserMonthSpendService userMonthSpendService;
+
+    @Override
+    public void run(String... args) {
+        // Gastos anteriores al rollup mensual: se agregan una sola vez desde las divisiones
+        long written = userMonthSpendService.backfillIfEmpty();
+        if (written > 0) {
+            System.out.println("✅ Rollup de gasto mensual inicializado con " + written + " fila(s)");
+        }
+    }
+}
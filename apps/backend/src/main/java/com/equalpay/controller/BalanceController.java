@@ -1,12 +1,21 @@
 package com.equalpay.controller;
 
 import com.equalpay.dto.BalanceDTO;
+import com.equalpay.dto.BalanceSeriesDTO;
+import com.equalpay.service.BalanceRequestCoalescer;
+import com.equalpay.service.BalanceSeriesService;
+import com.equalpay.service.BalanceStreamService;
 import com.equalpay.service.BalanceService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -17,16 +26,65 @@ public class BalanceController {
     @Autowired
     private BalanceService balanceService;
 
+    @Autowired
+    private BalanceRequestCoalescer balanceRequestCoalescer;
+
+    @Autowired
+    private BalanceSeriesService balanceSeriesService;
+
+    @Autowired
+    private BalanceStreamService balanceStreamService;
+
     @GetMapping("/group/{groupId}")
-    public ResponseEntity<BalanceDTO> getGroupBalance(@PathVariable Long groupId) {
+    public ResponseEntity<BalanceDTO> getGroupBalance(@PathVariable Long groupId,
+                                                      @RequestParam(required = false) String mode,
+                                                      @RequestParam(required = false)
+                                                      @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime asOf) {
+        if (!balanceService.supportsSettlementMode(mode)) {
+            return ResponseEntity.badRequest().build();
+        }
         try {
-            BalanceDTO balance = balanceService.calculateGroupBalance(groupId);
+            // asOf: balance a esa fecha (gastos y liquidaciones hasta ese instante)
+            BalanceDTO balance = asOf != null
+                    ? balanceService.calculateGroupBalanceAsOf(groupId, asOf, mode)
+                    : balanceRequestCoalescer.calculateGroupBalance(groupId, mode);
             return ResponseEntity.ok(balance);
         } catch (IllegalArgumentException e) {
             return ResponseEntity.notFound().build();
         }
     }
 
+    // Server-sent events: evento "balance" con el balance completo y luego "balance-delta" por cada cambio confirmado
+    @GetMapping(value = "/group/{groupId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamGroupBalance(@PathVariable Long groupId) {
+        try {
+            return ResponseEntity.ok(balanceStreamService.subscribeGroup(groupId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    // Serie de balance neto por miembro: bucket=day|week, from/to opcionales (yyyy-MM-dd)
+    @GetMapping("/group/{groupId}/series")
+    public ResponseEntity<BalanceSeriesDTO> getGroupBalanceSeries(@PathVariable Long groupId,
+                                                                  @RequestParam(defaultValue = "day") String bucket,
+                                                                  @RequestParam(required = false)
+                                                                  @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                                  @RequestParam(required = false)
+                                                                  @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        BalanceSeriesService.Bucket period = BalanceSeriesService.Bucket.fromParam(bucket);
+        if (period == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return balanceSeriesService.calculateBalanceSeries(groupId, period, from, to)
+                    .map(ResponseEntity::ok)
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @GetMapping("/user/{userId}/debts")
     public ResponseEntity<List<BalanceDTO.DebtDTO>> getUserDebts(@PathVariable Long userId) {
         List<BalanceDTO.DebtDTO> debts = balanceService.calculateUserDebts(userId);
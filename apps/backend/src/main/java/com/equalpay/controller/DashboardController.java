@@ -2,10 +2,14 @@ package com.equalpay.controller;
 
 import com.equalpay.dto.DashboardStatsDTO;
 import com.equalpay.dto.RecentActivityDTO;
+import com.equalpay.dto.SpendHistoryDTO;
+import com.equalpay.service.BalanceStreamService;
 import com.equalpay.service.DashboardService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @RestController
 @RequestMapping("/api/dashboard")
@@ -15,6 +19,9 @@ public class DashboardController {
     @Autowired
     private DashboardService dashboardService;
 
+    @Autowired
+    private BalanceStreamService balanceStreamService;
+
     @GetMapping("/stats")
     public ResponseEntity<DashboardStatsDTO> getDashboardStats(@RequestParam Long userId) {
         try {
@@ -28,12 +35,35 @@ public class DashboardController {
     @GetMapping("/activity")
     public ResponseEntity<RecentActivityDTO> getRecentActivity(
             @RequestParam Long userId, 
-            @RequestParam(defaultValue = "10") int limit) {
+            @RequestParam(defaultValue = "10") int limit,
+            @RequestParam(required = false) String before) {
         try {
-            RecentActivityDTO activity = dashboardService.getRecentActivity(userId, limit);
+            RecentActivityDTO activity = dashboardService.getRecentActivity(userId, limit, before);
             return ResponseEntity.ok(activity);
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
         }
     }
-}
\ No newline at end of file
+
+    // Server-sent events del usuario: "dashboard" con sus stats y "balance-delta" de sus grupos en cada cambio confirmado
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamDashboard(@RequestParam Long userId) {
+        try {
+            return ResponseEntity.ok(balanceStreamService.subscribeUser(userId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    // Gasto mensual del usuario (total y por grupo) de los últimos meses, incluido el actual
+    @GetMapping("/spend-history")
+    public ResponseEntity<SpendHistoryDTO> getSpendHistory(
+            @RequestParam Long userId,
+            @RequestParam(defaultValue = "12") int months) {
+        try {
+            return ResponseEntity.ok(dashboardService.getSpendHistory(userId, months));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+}
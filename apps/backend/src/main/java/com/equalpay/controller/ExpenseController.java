@@ -1,13 +1,20 @@
 package com.equalpay.controller;
 
 import com.equalpay.dto.ExpenseDTO;
+import com.equalpay.dto.ExpenseImportResultDTO;
+import com.equalpay.dto.ExpensePageDTO;
+import com.equalpay.service.ExpenseImportService;
 import com.equalpay.service.ExpenseService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigDecimal;
 import java.util.List;
 import java.util.Optional;
@@ -20,12 +27,26 @@ public class ExpenseController {
     @Autowired
     private ExpenseService expenseService;
 
+    @Autowired
+    private ExpenseImportService expenseImportService;
+
     @GetMapping
     public ResponseEntity<List<ExpenseDTO>> getAllExpenses() {
         List<ExpenseDTO> expenses = expenseService.getAllExpenses();
         return ResponseEntity.ok(expenses);
     }
 
+    // Listado paginado por cursor: ?cursor=<nextCursor de la página anterior>&size=<tamaño>
+    @GetMapping("/page")
+    public ResponseEntity<ExpensePageDTO> getExpensesPage(@RequestParam(required = false) String cursor,
+                                                          @RequestParam(required = false) Integer size) {
+        try {
+            return ResponseEntity.ok(expenseService.getExpensesPage(cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<ExpenseDTO> getExpenseById(@PathVariable Long id) {
         Optional<ExpenseDTO> expense = expenseService.getExpenseById(id);
@@ -39,6 +60,29 @@ public class ExpenseController {
         return ResponseEntity.ok(expenses);
     }
 
+    // Exportación completa del grupo en NDJSON, escrita a medida que se lee (no arma la lista en memoria)
+    @GetMapping(value = "/group/{groupId}/export", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> exportExpensesByGroupId(@PathVariable Long groupId) {
+        if (!expenseService.groupExists(groupId)) {
+            return ResponseEntity.notFound().build();
+        }
+        StreamingResponseBody body = out -> expenseService.exportExpensesByGroupId(groupId, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(body);
+    }
+
+    @GetMapping("/group/{groupId}/page")
+    public ResponseEntity<ExpensePageDTO> getExpensesPageByGroupId(@PathVariable Long groupId,
+                                                                   @RequestParam(required = false) String cursor,
+                                                                   @RequestParam(required = false) Integer size) {
+        try {
+            return ResponseEntity.ok(expenseService.getExpensesPageByGroupId(groupId, cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @GetMapping("/payer/{payerId}")
     public ResponseEntity<List<ExpenseDTO>> getExpensesByPayerId(@PathVariable Long payerId) {
         List<ExpenseDTO> expenses = expenseService.getExpensesByPayerId(payerId);
@@ -67,6 +111,20 @@ public class ExpenseController {
         }
     }
 
+    // Importación masiva: cuerpo CSV (text/csv, con encabezado) o NDJSON (application/x-ndjson), leído en streaming
+    @PostMapping(value = "/import", consumes = {"text/csv", "application/x-ndjson"})
+    public ResponseEntity<ExpenseImportResultDTO> importExpenses(@RequestHeader("Content-Type") String contentType,
+                                                                 InputStream body) throws IOException {
+        ExpenseImportService.Format format = contentType.contains("ndjson")
+                ? ExpenseImportService.Format.NDJSON
+                : ExpenseImportService.Format.CSV;
+        try {
+            return ResponseEntity.ok(expenseImportService.importExpenses(body, format));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<ExpenseDTO> updateExpense(@PathVariable Long id, 
                                                    @Valid @RequestBody ExpenseDTO expenseDTO) {
@@ -0,0 +1,67 @@
+package com.equalpay.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+// Cambio del balance de un grupo enviado por /stream: solo los miembros cuyo balance cambió,
+// con sus valores nuevos (absolutos), y las liquidaciones sugeridas completas
+public class BalanceDeltaDTO {
+
+    private Long groupId;
+    private String groupName;
+    private BigDecimal totalExpenses;
+    private List<BalanceDTO.UserBalanceDTO> userBalances;
+    private List<BalanceDTO.DebtDTO> settlements;
+
+    public BalanceDeltaDTO() {}
+
+    public BalanceDeltaDTO(Long groupId, String groupName, BigDecimal totalExpenses,
+                           List<BalanceDTO.UserBalanceDTO> userBalances, List<BalanceDTO.DebtDTO> settlements) {
+        this.groupId = groupId;
+        this.groupName = groupName;
+        this.totalExpenses = totalExpenses;
+        this.userBalances = userBalances;
+        this.settlements = settlements;
+    }
+
+    // Getters y Setters
+    public Long getGroupId() {
+        return groupId;
+    }
+
+    public void setGroupId(Long groupId) {
+        this.groupId = groupId;
+    }
+
+    public String getGroupName() {
+        return groupName;
+    }
+
+    public void setGroupName(String groupName) {
+        this.groupName = groupName;
+    }
+
+    public BigDecimal getTotalExpenses() {
+        return totalExpenses;
+    }
+
+    public void setTotalExpenses(BigDecimal totalExpenses) {
+        this.totalExpenses = totalExpenses;
+    }
+
+    public List<BalanceDTO.UserBalanceDTO> getUserBalances() {
+        return userBalances;
+    }
+
+    public void setUserBalances(List<BalanceDTO.UserBalanceDTO> userBalances) {
+        this.userBalances = userBalances;
+    }
+
+    public List<BalanceDTO.DebtDTO> getSettlements() {
+        return settlements;
+    }
+
+    public void setSettlements(List<BalanceDTO.DebtDTO> settlements) {
+        this.settlements = settlements;
+    }
+}
@@ -0,0 +1,95 @@
+package com.equalpay.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+// Balance neto de cada miembro al cierre de cada período (día o semana)
+public class BalanceSeriesDTO {
+
+    private Long groupId;
+    private String bucket;
+    private List<LocalDate> periods;     // Inicio de cada período
+    private List<MemberSeriesDTO> members;
+
+    public BalanceSeriesDTO() {}
+
+    public BalanceSeriesDTO(Long groupId, String bucket, List<LocalDate> periods, List<MemberSeriesDTO> members) {
+        this.groupId = groupId;
+        this.bucket = bucket;
+        this.periods = periods;
+        this.members = members;
+    }
+
+    // Getters y Setters
+    public Long getGroupId() {
+        return groupId;
+    }
+
+    public void setGroupId(Long groupId) {
+        this.groupId = groupId;
+    }
+
+    public String getBucket() {
+        return bucket;
+    }
+
+    public void setBucket(String bucket) {
+        this.bucket = bucket;
+    }
+
+    public List<LocalDate> getPeriods() {
+        return periods;
+    }
+
+    public void setPeriods(List<LocalDate> periods) {
+        this.periods = periods;
+    }
+
+    public List<MemberSeriesDTO> getMembers() {
+        return members;
+    }
+
+    public void setMembers(List<MemberSeriesDTO> members) {
+        this.members = members;
+    }
+
+    // Serie de un miembro: netBalances.get(i) es su balance al cierre de periods.get(i)
+    public static class MemberSeriesDTO {
+        private Long userId;
+        private String userName;
+        private List<BigDecimal> netBalances;
+
+        public MemberSeriesDTO() {}
+
+        public MemberSeriesDTO(Long userId, String userName, List<BigDecimal> netBalances) {
+            this.userId = userId;
+            this.userName = userName;
+            this.netBalances = netBalances;
+        }
+
+        public Long getUserId() {
+            return userId;
+        }
+
+        public void setUserId(Long userId) {
+            this.userId = userId;
+        }
+
+        public String getUserName() {
+            return userName;
+        }
+
+        public void setUserName(String userName) {
+            this.userName = userName;
+        }
+
+        public List<BigDecimal> getNetBalances() {
+            return netBalances;
+        }
+
+        public void setNetBalances(List<BigDecimal> netBalances) {
+            this.netBalances = netBalances;
+        }
+    }
+}
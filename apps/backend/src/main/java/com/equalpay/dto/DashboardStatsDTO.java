@@ -5,6 +5,7 @@ public class DashboardStatsDTO {
     private Integer activeGroups;
     private Double netBalance;
     private MonthlyChangeDTO monthlyChange;
+    private boolean partial;        // Alguna parte no respondió a tiempo y se informa en cero
 
     public DashboardStatsDTO() {}
 
@@ -47,6 +48,14 @@ public class DashboardStatsDTO {
         this.monthlyChange = monthlyChange;
     }
 
+    public boolean isPartial() {
+        return partial;
+    }
+
+    public void setPartial(boolean partial) {
+        this.partial = partial;
+    }
+
     public static class MonthlyChangeDTO {
         private Double totalSpent;
         private Integer activeGroups;
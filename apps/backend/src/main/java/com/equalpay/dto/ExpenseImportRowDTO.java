@@ -0,0 +1,61 @@
+package com.equalpay.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Fila ya validada de una importación masiva de gastos
+public class ExpenseImportRowDTO {
+    private final long line;
+    private final Long groupId;
+    private final Long payerId;
+    private final String description;
+    private final BigDecimal amount;
+    private final LocalDateTime expenseDate;
+    private final List<Long> participantIds;
+    private final String notes;
+
+    public ExpenseImportRowDTO(long line, Long groupId, Long payerId, String description, BigDecimal amount,
+                               LocalDateTime expenseDate, List<Long> participantIds, String notes) {
+        this.line = line;
+        this.groupId = groupId;
+        this.payerId = payerId;
+        this.description = description;
+        this.amount = amount;
+        this.expenseDate = expenseDate;
+        this.participantIds = participantIds;
+        this.notes = notes;
+    }
+
+    public long getLine() {
+        return line;
+    }
+
+    public Long getGroupId() {
+        return groupId;
+    }
+
+    public Long getPayerId() {
+        return payerId;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public LocalDateTime getExpenseDate() {
+        return expenseDate;
+    }
+
+    public List<Long> getParticipantIds() {
+        return participantIds;
+    }
+
+    public String getNotes() {
+        return notes;
+    }
+}
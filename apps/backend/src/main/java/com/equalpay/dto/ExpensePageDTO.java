@@ -0,0 +1,46 @@
+package com.equalpay.dto;
+
+import java.util.List;
+
+// Página de gastos con cursor opaco para pedir la siguiente (null si no hay más)
+public class ExpensePageDTO {
+    private List<ExpenseDTO> items;
+    private String nextCursor;
+    private Integer size;
+
+    public ExpensePageDTO() {}
+
+    public ExpensePageDTO(List<ExpenseDTO> items, String nextCursor, Integer size) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+        this.size = size;
+    }
+
+    public List<ExpenseDTO> getItems() {
+        return items;
+    }
+
+    public void setItems(List<ExpenseDTO> items) {
+        this.items = items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public Integer getSize() {
+        return size;
+    }
+
+    public void setSize(Integer size) {
+        this.size = size;
+    }
+
+    public boolean isHasMore() {
+        return nextCursor != null;
+    }
+}
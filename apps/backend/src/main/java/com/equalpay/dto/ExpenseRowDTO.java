@@ -0,0 +1,152 @@
+package com.equalpay.dto;
+
+import com.equalpay.entity.Expense;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Proyección plana de un gasto con su pagador y grupo, para listados de solo lectura
+public class ExpenseRowDTO {
+    private final Long id;
+    private final String description;
+    private final BigDecimal amount;
+    private final LocalDateTime expenseDate;
+    private final LocalDateTime createdAt;
+    private final LocalDateTime updatedAt;
+    private final Expense.SplitType splitType;
+    private final String notes;
+    private final Long payerId;
+    private final String payerName;
+    private final String payerEmail;
+    private final LocalDateTime payerCreatedAt;
+    private final LocalDateTime payerUpdatedAt;
+    private final Long groupId;
+    private final String groupName;
+    private final String groupDescription;
+
+    public ExpenseRowDTO(Long id, String description, BigDecimal amount, LocalDateTime expenseDate,
+                         LocalDateTime createdAt, LocalDateTime updatedAt, Expense.SplitType splitType, String notes,
+                         Long payerId, String payerName, String payerEmail,
+                         LocalDateTime payerCreatedAt, LocalDateTime payerUpdatedAt,
+                         Long groupId, String groupName, String groupDescription) {
+        this.id = id;
+        this.description = description;
+        this.amount = amount;
+        this.expenseDate = expenseDate;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+        this.splitType = splitType;
+        this.notes = notes;
+        this.payerId = payerId;
+        this.payerName = payerName;
+        this.payerEmail = payerEmail;
+        this.payerCreatedAt = payerCreatedAt;
+        this.payerUpdatedAt = payerUpdatedAt;
+        this.groupId = groupId;
+        this.groupName = groupName;
+        this.groupDescription = groupDescription;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public LocalDateTime getExpenseDate() {
+        return expenseDate;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public Expense.SplitType getSplitType() {
+        return splitType;
+    }
+
+    public String getNotes() {
+        return notes;
+    }
+
+    public Long getPayerId() {
+        return payerId;
+    }
+
+    public String getPayerName() {
+        return payerName;
+    }
+
+    public String getPayerEmail() {
+        return payerEmail;
+    }
+
+    public LocalDateTime getPayerCreatedAt() {
+        return payerCreatedAt;
+    }
+
+    public LocalDateTime getPayerUpdatedAt() {
+        return payerUpdatedAt;
+    }
+
+    public Long getGroupId() {
+        return groupId;
+    }
+
+    public String getGroupName() {
+        return groupName;
+    }
+
+    public String getGroupDescription() {
+        return groupDescription;
+    }
+
+    // Participante de un gasto (expenseId + columnas del usuario)
+    public static class ParticipantRowDTO {
+        private final Long expenseId;
+        private final UserDTO user;
+
+        public ParticipantRowDTO(Long expenseId, Long userId, String name, String email,
+                                 LocalDateTime createdAt, LocalDateTime updatedAt) {
+            this.expenseId = expenseId;
+            this.user = new UserDTO(userId, name, email, createdAt, updatedAt);
+        }
+
+        public Long getExpenseId() {
+            return expenseId;
+        }
+
+        public UserDTO getUser() {
+            return user;
+        }
+    }
+
+    // División de un gasto (expenseId + datos de la división)
+    public static class SplitRowDTO {
+        private final Long expenseId;
+        private final SplitDTO split;
+
+        public SplitRowDTO(Long expenseId, Long userId, String userName, BigDecimal amountOwed, BigDecimal percentage) {
+            this.expenseId = expenseId;
+            this.split = new SplitDTO(userId, userName, amountOwed, percentage);
+        }
+
+        public Long getExpenseId() {
+            return expenseId;
+        }
+
+        public SplitDTO getSplit() {
+            return split;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.equalpay.dto;
+
+import java.math.BigDecimal;
+
+// Totales de un usuario en un grupo calculados con agregados SQL (proyección de solo lectura)
+public class MemberBalanceTotalsDTO {
+
+    private Long groupId;
+    private String groupName;
+    private BigDecimal paid;          // Gastos que pagó
+    private BigDecimal owed;          // Suma de sus divisiones
+    private BigDecimal settledOut;    // Liquidaciones pagadas como deudor
+    private BigDecimal settledIn;     // Liquidaciones recibidas como acreedor
+    private BigDecimal groupExpenses; // Total de gastos del grupo (de todos los miembros)
+
+    public MemberBalanceTotalsDTO() {}
+
+    public MemberBalanceTotalsDTO(Long groupId, String groupName, BigDecimal paid, BigDecimal owed,
+                                  BigDecimal settledOut, BigDecimal settledIn, BigDecimal groupExpenses) {
+        this.groupId = groupId;
+        this.groupName = groupName;
+        this.paid = paid != null ? paid : BigDecimal.ZERO;
+        this.owed = owed != null ? owed : BigDecimal.ZERO;
+        this.settledOut = settledOut != null ? settledOut : BigDecimal.ZERO;
+        this.settledIn = settledIn != null ? settledIn : BigDecimal.ZERO;
+        this.groupExpenses = groupExpenses != null ? groupExpenses : BigDecimal.ZERO;
+    }
+
+    // Mismo criterio que el balance del grupo: el deudor "pagó" y al acreedor se le reduce lo que debe
+    public BigDecimal getTotalPaid() {
+        return paid.add(settledOut);
+    }
+
+    public BigDecimal getTotalOwed() {
+        return owed.subtract(settledIn);
+    }
+
+    // Como el balance del grupo: sin gastos en el grupo, todos quedan en cero aunque haya liquidaciones
+    public BigDecimal getNetBalance() {
+        if (groupExpenses.signum() == 0) {
+            return BigDecimal.ZERO;
+        }
+        return getTotalPaid().subtract(getTotalOwed());
+    }
+
+    // Getters y Setters
+    public Long getGroupId() {
+        return groupId;
+    }
+
+    public void setGroupId(Long groupId) {
+        this.groupId = groupId;
+    }
+
+    public String getGroupName() {
+        return groupName;
+    }
+
+    public void setGroupName(String groupName) {
+        this.groupName = groupName;
+    }
+
+    public BigDecimal getPaid() {
+        return paid;
+    }
+
+    public void setPaid(BigDecimal paid) {
+        this.paid = paid;
+    }
+
+    public BigDecimal getOwed() {
+        return owed;
+    }
+
+    public void setOwed(BigDecimal owed) {
+        this.owed = owed;
+    }
+
+    public BigDecimal getSettledOut() {
+        return settledOut;
+    }
+
+    public void setSettledOut(BigDecimal settledOut) {
+        this.settledOut = settledOut;
+    }
+
+    public BigDecimal getSettledIn() {
+        return settledIn;
+    }
+
+    public void setSettledIn(BigDecimal settledIn) {
+        this.settledIn = settledIn;
+    }
+
+    public BigDecimal getGroupExpenses() {
+        return groupExpenses;
+    }
+
+    public void setGroupExpenses(BigDecimal groupExpenses) {
+        this.groupExpenses = groupExpenses;
+    }
+}
@@ -6,6 +6,7 @@ import java.util.List;
 public class RecentActivityDTO {
     private List<RecentExpenseDTO> expenses;
     private List<RecentSettlementDTO> settlements;
+    private String nextCursor;  // null si no hay más actividad
 
     public RecentActivityDTO() {}
 
@@ -22,6 +23,14 @@ public class RecentActivityDTO {
         this.expenses = expenses;
     }
 
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
     public List<RecentSettlementDTO> getSettlements() {
         return settlements;
     }
@@ -0,0 +1,112 @@
+package com.equalpay.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+// Lo que le correspondió al usuario (sus divisiones) en cada mes, en total y por grupo
+public class SpendHistoryDTO {
+
+    private Long userId;
+    private List<MonthSpendDTO> months;     // Del más antiguo al actual, incluidos los meses sin gasto
+
+    public SpendHistoryDTO() {}
+
+    public SpendHistoryDTO(Long userId, List<MonthSpendDTO> months) {
+        this.userId = userId;
+        this.months = months;
+    }
+
+    // Getters y Setters
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public List<MonthSpendDTO> getMonths() {
+        return months;
+    }
+
+    public void setMonths(List<MonthSpendDTO> months) {
+        this.months = months;
+    }
+
+    public static class MonthSpendDTO {
+        private LocalDate month;            // Primer día del mes
+        private BigDecimal totalSpent;
+        private List<GroupSpendDTO> groups;
+
+        public MonthSpendDTO() {}
+
+        public MonthSpendDTO(LocalDate month, BigDecimal totalSpent, List<GroupSpendDTO> groups) {
+            this.month = month;
+            this.totalSpent = totalSpent;
+            this.groups = groups;
+        }
+
+        public LocalDate getMonth() {
+            return month;
+        }
+
+        public void setMonth(LocalDate month) {
+            this.month = month;
+        }
+
+        public BigDecimal getTotalSpent() {
+            return totalSpent;
+        }
+
+        public void setTotalSpent(BigDecimal totalSpent) {
+            this.totalSpent = totalSpent;
+        }
+
+        public List<GroupSpendDTO> getGroups() {
+            return groups;
+        }
+
+        public void setGroups(List<GroupSpendDTO> groups) {
+            this.groups = groups;
+        }
+    }
+
+    public static class GroupSpendDTO {
+        private Long groupId;
+        private String groupName;
+        private BigDecimal spent;
+
+        public GroupSpendDTO() {}
+
+        public GroupSpendDTO(Long groupId, String groupName, BigDecimal spent) {
+            this.groupId = groupId;
+            this.groupName = groupName;
+            this.spent = spent;
+        }
+
+        public Long getGroupId() {
+            return groupId;
+        }
+
+        public void setGroupId(Long groupId) {
+            this.groupId = groupId;
+        }
+
+        public String getGroupName() {
+            return groupName;
+        }
+
+        public void setGroupName(String groupName) {
+            this.groupName = groupName;
+        }
+
+        public BigDecimal getSpent() {
+            return spent;
+        }
+
+        public void setSpent(BigDecimal spent) {
+            this.spent = spent;
+        }
+    }
+}
@@ -12,11 +12,17 @@ import java.util.HashSet;
 import java.util.Set;
 
 @Entity
-@Table(name = "expenses")
+@Table(name = "expenses", indexes = {
+        // Soportan la paginación por cursor (expense_date, id)
+        @Index(name = "idx_expenses_date_id", columnList = "expense_date, id"),
+        @Index(name = "idx_expenses_group_date_id", columnList = "group_id, expense_date, id")
+})
 public class Expense {
 
+    // Secuencia con bloques de 50 para insertar gastos en lotes (importación masiva)
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "expenses_seq")
+    @SequenceGenerator(name = "expenses_seq", sequenceName = "expenses_seq", allocationSize = 50)
     private Long id;
 
     @NotBlank(message = "La descripción es obligatoria")
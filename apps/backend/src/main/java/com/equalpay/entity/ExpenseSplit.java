@@ -9,11 +9,17 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "expense_splits")
+@Table(name = "expense_splits", indexes = {
+        // Agregados por usuario (dashboard) sin recorrer la tabla completa
+        @Index(name = "idx_expense_splits_user_expense", columnList = "user_id, expense_id")
+})
 public class ExpenseSplit {
 
+    // Secuencia con bloques de 50 (pooled): permite agrupar los INSERT de divisiones en lotes JDBC,
+    // algo imposible con IDENTITY porque cada fila necesita su ID generado al insertarse
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "expense_splits_seq")
+    @SequenceGenerator(name = "expense_splits_seq", sequenceName = "expense_splits_seq", allocationSize = 50)
     private Long id;
 
     @NotNull(message = "El monto adeudado es obligatorio")
@@ -0,0 +1,125 @@
+package com.equalpay.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// Sumas acumuladas del ledger de un miembro al inicio de un día (eventos anteriores a checkpointDate 00:00),
+// en centavos. Permite calcular balances pasados reproduciendo solo los eventos desde el último checkpoint
+@Entity
+@Table(name = "group_balance_checkpoints",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"group_id", "checkpoint_date", "user_id"}))
+public class GroupBalanceCheckpoint {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "group_balance_checkpoints_seq")
+    @SequenceGenerator(name = "group_balance_checkpoints_seq", sequenceName = "group_balance_checkpoints_seq", allocationSize = 50)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "group_id", nullable = false)
+    private Group group;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    @Column(name = "checkpoint_date", nullable = false)
+    private LocalDate checkpointDate;
+
+    // Mismos acumulados que GroupMemberBalance (pagado, adeudado, gastos pagados)
+    @Column(name = "paid_cents", nullable = false)
+    private long paidCents;
+
+    @Column(name = "owed_cents", nullable = false)
+    private long owedCents;
+
+    @Column(name = "expenses_paid_cents", nullable = false)
+    private long expensesPaidCents;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    public GroupBalanceCheckpoint() {}
+
+    public GroupBalanceCheckpoint(Group group, User user, LocalDate checkpointDate,
+                                  long paidCents, long owedCents, long expensesPaidCents) {
+        this.group = group;
+        this.user = user;
+        this.checkpointDate = checkpointDate;
+        this.paidCents = paidCents;
+        this.owedCents = owedCents;
+        this.expensesPaidCents = expensesPaidCents;
+    }
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+
+    // Getters y Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Group getGroup() {
+        return group;
+    }
+
+    public void setGroup(Group group) {
+        this.group = group;
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    public void setUser(User user) {
+        this.user = user;
+    }
+
+    public LocalDate getCheckpointDate() {
+        return checkpointDate;
+    }
+
+    public void setCheckpointDate(LocalDate checkpointDate) {
+        this.checkpointDate = checkpointDate;
+    }
+
+    public long getPaidCents() {
+        return paidCents;
+    }
+
+    public void setPaidCents(long paidCents) {
+        this.paidCents = paidCents;
+    }
+
+    public long getOwedCents() {
+        return owedCents;
+    }
+
+    public void setOwedCents(long owedCents) {
+        this.owedCents = owedCents;
+    }
+
+    public long getExpensesPaidCents() {
+        return expensesPaidCents;
+    }
+
+    public void setExpensesPaidCents(long expensesPaidCents) {
+        this.expensesPaidCents = expensesPaidCents;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
@@ -0,0 +1,152 @@
+package com.equalpay.entity;
+
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "group_member_balance",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"group_id", "user_id"}))
+public class GroupMemberBalance {
+
+    // Secuencia con bloques de 50 para insertar en lotes las filas de un gasto con muchos participantes
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "group_member_balance_seq")
+    @SequenceGenerator(name = "group_member_balance_seq", sequenceName = "group_member_balance_seq", allocationSize = 50)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "group_id", nullable = false)
+    private Group group;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    // Lo que pagó (gastos + liquidaciones como deudor)
+    @Column(name = "total_paid", nullable = false, precision = 19, scale = 2)
+    private BigDecimal totalPaid = BigDecimal.ZERO;
+
+    // Lo que debe (divisiones - liquidaciones como acreedor)
+    @Column(name = "total_owed", nullable = false, precision = 19, scale = 2)
+    private BigDecimal totalOwed = BigDecimal.ZERO;
+
+    @Column(name = "net_balance", nullable = false, precision = 19, scale = 2)
+    private BigDecimal netBalance = BigDecimal.ZERO;
+
+    // Solo gastos pagados, sin liquidaciones (para el total de gastos del grupo)
+    @Column(name = "expenses_paid", nullable = false, precision = 19, scale = 2)
+    private BigDecimal expensesPaid = BigDecimal.ZERO;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    // Cantidad de deltas aplicados a la fila: los checkpoints la usan para detectar escrituras concurrentes.
+    // Admite null para que ddl-auto pueda agregar la columna a tablas con datos
+    @Column(name = "revision")
+    private Long revision;
+
+    public GroupMemberBalance() {}
+
+    public GroupMemberBalance(Group group, User user) {
+        this.group = group;
+        this.user = user;
+    }
+
+    @PrePersist
+    @PreUpdate
+    protected void onWrite() {
+        updatedAt = LocalDateTime.now();
+    }
+
+    // Aplica un delta y recalcula el balance neto
+    public void apply(BigDecimal paidDelta, BigDecimal owedDelta, BigDecimal expensesPaidDelta) {
+        totalPaid = totalPaid.add(paidDelta);
+        totalOwed = totalOwed.add(owedDelta);
+        expensesPaid = expensesPaid.add(expensesPaidDelta);
+        netBalance = totalPaid.subtract(totalOwed);
+        revision = revision == null ? 1L : revision + 1;
+    }
+
+    // Getters y Setters
+    public Long getRevision() {
+        return revision;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Group getGroup() {
+        return group;
+    }
+
+    public void setGroup(Group group) {
+        this.group = group;
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    public void setUser(User user) {
+        this.user = user;
+    }
+
+    public BigDecimal getTotalPaid() {
+        return totalPaid;
+    }
+
+    public void setTotalPaid(BigDecimal totalPaid) {
+        this.totalPaid = totalPaid;
+    }
+
+    public BigDecimal getTotalOwed() {
+        return totalOwed;
+    }
+
+    public void setTotalOwed(BigDecimal totalOwed) {
+        this.totalOwed = totalOwed;
+    }
+
+    public BigDecimal getNetBalance() {
+        return netBalance;
+    }
+
+    public void setNetBalance(BigDecimal netBalance) {
+        this.netBalance = netBalance;
+    }
+
+    public BigDecimal getExpensesPaid() {
+        return expensesPaid;
+    }
+
+    public void setExpensesPaid(BigDecimal expensesPaid) {
+        this.expensesPaid = expensesPaid;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    @Override
+    public String toString() {
+        return "GroupMemberBalance{" +
+                "id=" + id +
+                ", groupId=" + (group != null ? group.getId() : null) +
+                ", userId=" + (user != null ? user.getId() : null) +
+                ", totalPaid=" + totalPaid +
+                ", totalOwed=" + totalOwed +
+                ", netBalance=" + netBalance +
+                '}';
+    }
+}
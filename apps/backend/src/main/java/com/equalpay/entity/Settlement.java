@@ -5,7 +5,12 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "settlements")
+@Table(name = "settlements", indexes = {
+        // Reproducción del historial del grupo por rango de fechas (balances pasados)
+        @Index(name = "idx_settlements_group_settled_at", columnList = "group_id, settled_at"),
+        @Index(name = "idx_settlements_debtor_settled_at", columnList = "debtor_id, settled_at, id"),
+        @Index(name = "idx_settlements_creditor_settled_at", columnList = "creditor_id, settled_at, id")
+})
 public class Settlement {
     
     @Id
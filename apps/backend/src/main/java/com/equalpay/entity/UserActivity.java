@@ -0,0 +1,115 @@
+package com.equalpay.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+// Timeline de actividad por usuario (fan-out en escritura): una fila por cada usuario involucrado en un
+// gasto (pagador y participantes) o una liquidación (deudor y acreedor). Leer la actividad reciente es
+// un recorrido del índice (user_id, occurred_at, id) más la carga por clave de lo referenciado
+@Entity
+@Table(name = "user_activity", indexes = {
+        @Index(name = "idx_user_activity_user_occurred", columnList = "user_id, occurred_at, id"),
+        @Index(name = "idx_user_activity_expense", columnList = "expense_id"),
+        @Index(name = "idx_user_activity_settlement", columnList = "settlement_id")
+})
+public class UserActivity {
+
+    public enum Type {
+        EXPENSE, SETTLEMENT
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_activity_seq")
+    @SequenceGenerator(name = "user_activity_seq", sequenceName = "user_activity_seq", allocationSize = 50)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "activity_type", nullable = false)
+    private Type type;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "expense_id")
+    private Expense expense;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "settlement_id")
+    private Settlement settlement;
+
+    // createdAt del gasto o settledAt de la liquidación
+    @Column(name = "occurred_at", nullable = false)
+    private LocalDateTime occurredAt;
+
+    public UserActivity() {}
+
+    public static UserActivity forExpense(User user, Expense expense) {
+        UserActivity activity = new UserActivity();
+        activity.user = user;
+        activity.type = Type.EXPENSE;
+        activity.expense = expense;
+        activity.occurredAt = expense.getCreatedAt();
+        return activity;
+    }
+
+    public static UserActivity forSettlement(User user, Settlement settlement) {
+        UserActivity activity = new UserActivity();
+        activity.user = user;
+        activity.type = Type.SETTLEMENT;
+        activity.settlement = settlement;
+        activity.occurredAt = settlement.getSettledAt();
+        return activity;
+    }
+
+    // Getters y Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    public void setUser(User user) {
+        this.user = user;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public void setType(Type type) {
+        this.type = type;
+    }
+
+    public Expense getExpense() {
+        return expense;
+    }
+
+    public void setExpense(Expense expense) {
+        this.expense = expense;
+    }
+
+    public Settlement getSettlement() {
+        return settlement;
+    }
+
+    public void setSettlement(Settlement settlement) {
+        this.settlement = settlement;
+    }
+
+    public LocalDateTime getOccurredAt() {
+        return occurredAt;
+    }
+
+    public void setOccurredAt(LocalDateTime occurredAt) {
+        this.occurredAt = occurredAt;
+    }
+}
@@ -0,0 +1,105 @@
+package com.equalpay.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// Rollup de lo que le corresponde a cada usuario (sus divisiones) por grupo y mes del gasto.
+// Lo mantienen las escrituras de gastos; el dashboard y el historial de gasto leen de aquí
+@Entity
+@Table(name = "user_month_spend",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"user_id", "spend_month", "group_id"}),
+        indexes = @Index(name = "idx_user_month_spend_group", columnList = "group_id"))
+public class UserMonthSpend {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_month_spend_seq")
+    @SequenceGenerator(name = "user_month_spend_seq", sequenceName = "user_month_spend_seq", allocationSize = 50)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "group_id", nullable = false)
+    private Group group;
+
+    // Primer día del mes
+    @Column(name = "spend_month", nullable = false)
+    private LocalDate month;
+
+    @Column(name = "spent_cents", nullable = false)
+    private long spentCents;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    public UserMonthSpend() {}
+
+    public UserMonthSpend(User user, Group group, LocalDate month) {
+        this.user = user;
+        this.group = group;
+        this.month = month;
+    }
+
+    @PrePersist
+    @PreUpdate
+    protected void onWrite() {
+        updatedAt = LocalDateTime.now();
+    }
+
+    public void apply(long deltaCents) {
+        spentCents += deltaCents;
+    }
+
+    // Getters y Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    public void setUser(User user) {
+        this.user = user;
+    }
+
+    public Group getGroup() {
+        return group;
+    }
+
+    public void setGroup(Group group) {
+        this.group = group;
+    }
+
+    public LocalDate getMonth() {
+        return month;
+    }
+
+    public void setMonth(LocalDate month) {
+        this.month = month;
+    }
+
+    public long getSpentCents() {
+        return spentCents;
+    }
+
+    public void setSpentCents(long spentCents) {
+        this.spentCents = spentCents;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
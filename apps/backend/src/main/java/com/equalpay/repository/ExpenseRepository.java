@@ -1,30 +1,112 @@
 package com.equalpay.repository;
 
+import com.equalpay.dto.ExpenseRowDTO;
 import com.equalpay.entity.Expense;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface ExpenseRepository extends JpaRepository<Expense, Long> {
 
-    // Buscar todos los gastos con fetch joins para evitar lazy loading
-    @Query("SELECT DISTINCT e FROM Expense e LEFT JOIN FETCH e.group LEFT JOIN FETCH e.payer LEFT JOIN FETCH e.participants LEFT JOIN FETCH e.expenseSplits es LEFT JOIN FETCH es.user ORDER BY e.expenseDate DESC")
-    List<Expense> findAllWithDetails();
+    // Tamaño máximo de cada lista IN al cargar colecciones
+    int DETAILS_BATCH_SIZE = 500;
+
+    // Carga en dos fases: primero los gastos con sus relaciones a-uno (una fila por gasto),
+    // después participantes y divisiones en consultas IN separadas. Un único fetch join de
+    // ambas colecciones devuelve participantes × divisiones filas por gasto
+    @Query("SELECT e FROM Expense e LEFT JOIN FETCH e.group LEFT JOIN FETCH e.payer ORDER BY e.expenseDate DESC")
+    List<Expense> findAllWithGroupAndPayer();
+
+    @Query("SELECT e FROM Expense e LEFT JOIN FETCH e.group LEFT JOIN FETCH e.payer WHERE e.id = :id")
+    Optional<Expense> findByIdWithGroupAndPayer(@Param("id") Long id);
+
+    // Segunda fase: inicializa las colecciones de gastos ya cargados en el contexto de persistencia
+    @Query("SELECT e FROM Expense e LEFT JOIN FETCH e.participants WHERE e.id IN :ids")
+    List<Expense> fetchParticipantsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT e FROM Expense e LEFT JOIN FETCH e.expenseSplits es LEFT JOIN FETCH es.user WHERE e.id IN :ids")
+    List<Expense> fetchSplitsByIdIn(@Param("ids") Collection<Long> ids);
+
+    default List<Expense> fetchDetails(List<Expense> expenses) {
+        List<Long> ids = new ArrayList<>(expenses.size());
+        for (Expense expense : expenses) {
+            ids.add(expense.getId());
+        }
+        for (int from = 0; from < ids.size(); from += DETAILS_BATCH_SIZE) {
+            List<Long> batch = ids.subList(from, Math.min(from + DETAILS_BATCH_SIZE, ids.size()));
+            fetchParticipantsByIdIn(batch);
+            fetchSplitsByIdIn(batch);
+        }
+        return expenses;
+    }
+
+    // Buscar todos los gastos con sus detalles para evitar lazy loading
+    default List<Expense> findAllWithDetails() {
+        return fetchDetails(findAllWithGroupAndPayer());
+    }
+
+    // Buscar gasto por ID con sus detalles
+    default Optional<Expense> findByIdWithDetails(Long id) {
+        return findByIdWithGroupAndPayer(id)
+                .map(expense -> fetchDetails(List.of(expense)).get(0));
+    }
+
+    // Paginación por cursor (expenseDate, id): primero solo los IDs de la página, resueltos por índice
+    @Query("SELECT e.id FROM Expense e ORDER BY e.expenseDate DESC, e.id DESC")
+    List<Long> findPageIds(Pageable pageable);
 
-    // Buscar gasto por ID con fetch joins
-    @Query("SELECT e FROM Expense e LEFT JOIN FETCH e.group LEFT JOIN FETCH e.payer LEFT JOIN FETCH e.participants LEFT JOIN FETCH e.expenseSplits es LEFT JOIN FETCH es.user WHERE e.id = :id")
-    Optional<Expense> findByIdWithDetails(@Param("id") Long id);
+    @Query("SELECT e.id FROM Expense e WHERE e.expenseDate < :expenseDate OR (e.expenseDate = :expenseDate AND e.id < :id) ORDER BY e.expenseDate DESC, e.id DESC")
+    List<Long> findPageIdsAfter(@Param("expenseDate") LocalDateTime expenseDate,
+                                @Param("id") Long id,
+                                Pageable pageable);
+
+    @Query("SELECT e.id FROM Expense e WHERE e.group.id = :groupId ORDER BY e.expenseDate DESC, e.id DESC")
+    List<Long> findPageIdsByGroupId(@Param("groupId") Long groupId, Pageable pageable);
+
+    @Query("SELECT e.id FROM Expense e WHERE e.group.id = :groupId AND (e.expenseDate < :expenseDate OR (e.expenseDate = :expenseDate AND e.id < :id)) ORDER BY e.expenseDate DESC, e.id DESC")
+    List<Long> findPageIdsByGroupIdAfter(@Param("groupId") Long groupId,
+                                         @Param("expenseDate") LocalDateTime expenseDate,
+                                         @Param("id") Long id,
+                                         Pageable pageable);
+
+    // Detalle de una página: la carga queda acotada a los IDs de la página
+    @Query("SELECT e FROM Expense e LEFT JOIN FETCH e.group LEFT JOIN FETCH e.payer WHERE e.id IN :ids")
+    List<Expense> findWithGroupAndPayerByIdIn(@Param("ids") Collection<Long> ids);
+
+    default List<Expense> findAllWithDetailsByIdIn(Collection<Long> ids) {
+        return fetchDetails(findWithGroupAndPayerByIdIn(ids));
+    }
 
-    // Gastos por grupo con fetch joins para evitar lazy loading
-    @Query("SELECT e FROM Expense e LEFT JOIN FETCH e.group LEFT JOIN FETCH e.payer LEFT JOIN FETCH e.participants LEFT JOIN FETCH e.expenseSplits es LEFT JOIN FETCH es.user WHERE e.group.id = :groupId ORDER BY e.expenseDate DESC")
-    List<Expense> findByGroupId(@Param("groupId") Long groupId);
+    @Query("SELECT e FROM Expense e LEFT JOIN FETCH e.group LEFT JOIN FETCH e.payer WHERE e.group.id = :groupId ORDER BY e.expenseDate DESC")
+    List<Expense> findWithGroupAndPayerByGroupId(@Param("groupId") Long groupId);
+
+    // Exportación: cursor del servidor en orden de ledger (índice idx_expenses_group_date_id), sin snapshots
+    // de dirty checking. Debe consumirse dentro de una transacción y cerrarse al terminar
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + DETAILS_BATCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT e FROM Expense e JOIN FETCH e.group LEFT JOIN FETCH e.payer WHERE e.group.id = :groupId ORDER BY e.expenseDate ASC, e.id ASC")
+    Stream<Expense> streamByGroupId(@Param("groupId") Long groupId);
+
+    // Gastos por grupo con sus detalles para evitar lazy loading
+    default List<Expense> findByGroupId(Long groupId) {
+        return fetchDetails(findWithGroupAndPayerByGroupId(groupId));
+    }
 
     // Gastos donde el usuario es el pagador
     @Query("SELECT e FROM Expense e WHERE e.payer.id = :payerId ORDER BY e.expenseDate DESC")
@@ -34,6 +116,31 @@ public interface ExpenseRepository extends JpaRepository<Expense, Long> {
     @Query("SELECT e FROM Expense e JOIN e.participants p WHERE p.id = :userId ORDER BY e.expenseDate DESC")
     List<Expense> findByParticipantId(@Param("userId") Long userId);
 
+    // Proyecciones de solo lectura para listados: solo las columnas que usa ExpenseDTO, sin entidades gestionadas
+    String EXPENSE_ROW = "SELECT new com.equalpay.dto.ExpenseRowDTO(e.id, e.description, e.amount, e.expenseDate, "
+            + "e.createdAt, e.updatedAt, e.splitType, e.notes, py.id, py.name, py.email, py.createdAt, py.updatedAt, "
+            + "g.id, g.name, g.description) FROM Expense e LEFT JOIN e.payer py LEFT JOIN e.group g ";
+
+    @Query(EXPENSE_ROW + "WHERE g.id = :groupId ORDER BY e.expenseDate DESC")
+    List<ExpenseRowDTO> findRowsByGroupId(@Param("groupId") Long groupId);
+
+    @Query(EXPENSE_ROW + "WHERE py.id = :payerId ORDER BY e.expenseDate DESC")
+    List<ExpenseRowDTO> findRowsByPayerId(@Param("payerId") Long payerId);
+
+    @Query(EXPENSE_ROW + "JOIN e.participants p WHERE p.id = :userId ORDER BY e.expenseDate DESC")
+    List<ExpenseRowDTO> findRowsByParticipantId(@Param("userId") Long userId);
+
+    @Query(EXPENSE_ROW + "WHERE py.id = :userId OR :userId IN (SELECT p.id FROM e.participants p) ORDER BY e.expenseDate DESC")
+    List<ExpenseRowDTO> findRowsByUserInvolved(@Param("userId") Long userId);
+
+    @Query("SELECT new com.equalpay.dto.ExpenseRowDTO$ParticipantRowDTO(e.id, p.id, p.name, p.email, p.createdAt, p.updatedAt) "
+            + "FROM Expense e JOIN e.participants p WHERE e.id IN :ids ORDER BY p.id")
+    List<ExpenseRowDTO.ParticipantRowDTO> findParticipantRowsByExpenseIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT new com.equalpay.dto.ExpenseRowDTO$SplitRowDTO(es.expense.id, u.id, u.name, es.amountOwed, es.percentage) "
+            + "FROM ExpenseSplit es JOIN es.user u WHERE es.expense.id IN :ids ORDER BY u.id")
+    List<ExpenseRowDTO.SplitRowDTO> findSplitRowsByExpenseIdIn(@Param("ids") Collection<Long> ids);
+
     // Gastos en un rango de fechas
     @Query("SELECT e FROM Expense e WHERE e.expenseDate BETWEEN :startDate AND :endDate ORDER BY e.expenseDate DESC")
     List<Expense> findByExpenseDateBetween(@Param("startDate") LocalDateTime startDate, 
@@ -49,6 +156,23 @@ public interface ExpenseRepository extends JpaRepository<Expense, Long> {
     @Query("SELECT e FROM Expense e WHERE LOWER(e.description) LIKE LOWER(CONCAT('%', :description, '%')) ORDER BY e.expenseDate DESC")
     List<Expense> findByDescriptionContainingIgnoreCase(@Param("description") String description);
 
+    // Pagador y monto de cada gasto del grupo (sin hidratar entidades)
+    @Query("SELECT e.payer.id, e.amount FROM Expense e WHERE e.group.id = :groupId")
+    List<Object[]> findPayerAmountsByGroupId(@Param("groupId") Long groupId);
+
+    // Igual, solo gastos con fecha en [from, to)
+    @Query("SELECT e.payer.id, e.amount FROM Expense e WHERE e.group.id = :groupId AND e.expenseDate >= :from AND e.expenseDate < :to")
+    List<Object[]> findPayerAmountsByGroupIdBetween(@Param("groupId") Long groupId,
+                                                    @Param("from") LocalDateTime from,
+                                                    @Param("to") LocalDateTime to);
+
+    // Fecha, pagador y monto en [from, to), ordenados por fecha (series de balances en una pasada)
+    @Query("SELECT e.expenseDate, e.payer.id, e.amount FROM Expense e WHERE e.group.id = :groupId " +
+           "AND e.expenseDate >= :from AND e.expenseDate < :to ORDER BY e.expenseDate")
+    List<Object[]> findDatedPayerAmountsByGroupIdBetween(@Param("groupId") Long groupId,
+                                                         @Param("from") LocalDateTime from,
+                                                         @Param("to") LocalDateTime to);
+
     // Estadísticas: Total gastado por grupo
     @Query("SELECT SUM(e.amount) FROM Expense e WHERE e.group.id = :groupId")
     BigDecimal getTotalAmountByGroupId(@Param("groupId") Long groupId);
@@ -83,9 +207,9 @@ public interface ExpenseRepository extends JpaRepository<Expense, Long> {
         return expenses.isEmpty() ? null : expenses.get(0);
     }
 
-    // Dashboard methods
-    @Query("SELECT DISTINCT e FROM Expense e LEFT JOIN FETCH e.group LEFT JOIN FETCH e.payer LEFT JOIN FETCH e.participants LEFT JOIN FETCH e.expenseSplits es LEFT JOIN FETCH es.user WHERE (e.payer.id = :userId OR :userId IN (SELECT p.id FROM e.participants p)) ORDER BY e.createdAt DESC")
-    List<Expense> findRecentExpensesByUserWithDetails(@Param("userId") Long userId);
+    // Recorrido completo por bloques de ID (inicialización del timeline de actividad)
+    @Query("SELECT e FROM Expense e JOIN FETCH e.payer WHERE e.id > :afterId ORDER BY e.id")
+    List<Expense> findBatchAfterId(@Param("afterId") Long afterId, Pageable pageable);
 
     @Query("SELECT e FROM Expense e JOIN e.participants p WHERE p.id = :userId AND e.createdAt >= :since")
     List<Expense> findExpensesByParticipantIdSince(@Param("userId") Long userId, @Param("since") LocalDateTime since);
@@ -1,5 +1,6 @@
 package com.equalpay.repository;
 
+import com.equalpay.dto.BalanceDTO;
 import com.equalpay.entity.ExpenseSplit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
@@ -8,11 +9,19 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
 public interface ExpenseSplitRepository extends JpaRepository<ExpenseSplit, Long> {
 
+    // Lo que le corresponde a cada usuario por grupo y mes del gasto (inicialización de user_month_spend).
+    // Filas [usuario, grupo, año, mes, monto]
+    @Query("SELECT es.user.id, e.group.id, YEAR(e.expenseDate), MONTH(e.expenseDate), SUM(es.amountOwed) " +
+           "FROM ExpenseSplit es JOIN es.expense e " +
+           "GROUP BY es.user.id, e.group.id, YEAR(e.expenseDate), MONTH(e.expenseDate)")
+    List<Object[]> sumAmountOwedByUserGroupAndMonth();
+
     // Divisiones por gasto
     @Query("SELECT es FROM ExpenseSplit es WHERE es.expense.id = :expenseId")
     List<ExpenseSplit> findByExpenseId(@Param("expenseId") Long expenseId);
@@ -33,6 +42,31 @@ public interface ExpenseSplitRepository extends JpaRepository<ExpenseSplit, Long
     @Query("SELECT SUM(es.amountOwed) FROM ExpenseSplit es WHERE es.user.id = :userId AND es.expense.group.id = :groupId")
     BigDecimal getTotalAmountOwedByUserIdAndGroupId(@Param("userId") Long userId, @Param("groupId") Long groupId);
 
+    // Deuda total de un usuario por grupo, agregada en la base de datos
+    // (el nombre del deudor se deja vacío, igual que en BalanceService)
+    @Query("SELECT new com.equalpay.dto.BalanceDTO$DebtDTO(u.id, '', g.id, g.name, SUM(es.amountOwed)) " +
+           "FROM ExpenseSplit es JOIN es.user u JOIN es.expense e JOIN e.group g " +
+           "WHERE u.id = :userId GROUP BY u.id, g.id, g.name")
+    List<BalanceDTO.DebtDTO> findDebtsByUserIdGroupedByGroup(@Param("userId") Long userId);
+
+    // Usuario y monto de cada división del grupo (sin hidratar entidades)
+    @Query("SELECT es.user.id, es.amountOwed FROM ExpenseSplit es WHERE es.expense.group.id = :groupId")
+    List<Object[]> findUserAmountsByGroupId(@Param("groupId") Long groupId);
+
+    // Igual, solo divisiones de gastos con fecha en [from, to)
+    @Query("SELECT es.user.id, es.amountOwed FROM ExpenseSplit es WHERE es.expense.group.id = :groupId " +
+           "AND es.expense.expenseDate >= :from AND es.expense.expenseDate < :to")
+    List<Object[]> findUserAmountsByGroupIdBetween(@Param("groupId") Long groupId,
+                                                   @Param("from") LocalDateTime from,
+                                                   @Param("to") LocalDateTime to);
+
+    // Fecha del gasto, usuario y monto en [from, to), ordenados por fecha
+    @Query("SELECT es.expense.expenseDate, es.user.id, es.amountOwed FROM ExpenseSplit es WHERE es.expense.group.id = :groupId " +
+           "AND es.expense.expenseDate >= :from AND es.expense.expenseDate < :to ORDER BY es.expense.expenseDate")
+    List<Object[]> findDatedUserAmountsByGroupIdBetween(@Param("groupId") Long groupId,
+                                                        @Param("from") LocalDateTime from,
+                                                        @Param("to") LocalDateTime to);
+
     // Eliminar todas las divisiones de un gasto
     @Modifying
     @Query("DELETE FROM ExpenseSplit es WHERE es.expense.id = :expenseId")
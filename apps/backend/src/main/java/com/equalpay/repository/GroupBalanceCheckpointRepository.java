@@ -0,0 +1,36 @@
+package com.equalpay.repository;
+
+import com.equalpay.entity.GroupBalanceCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface GroupBalanceCheckpointRepository extends JpaRepository<GroupBalanceCheckpoint, Long> {
+
+    // Último checkpoint del grupo que no supera la fecha pedida (null si no hay ninguno)
+    @Query("SELECT MAX(c.checkpointDate) FROM GroupBalanceCheckpoint c WHERE c.group.id = :groupId AND c.checkpointDate <= :date")
+    LocalDate findLatestDateOnOrBefore(@Param("groupId") Long groupId, @Param("date") LocalDate date);
+
+    @Query("SELECT c FROM GroupBalanceCheckpoint c WHERE c.group.id = :groupId AND c.checkpointDate = :date")
+    List<GroupBalanceCheckpoint> findByGroupIdAndCheckpointDate(@Param("groupId") Long groupId,
+                                                                @Param("date") LocalDate date);
+
+    // Un evento con fecha t invalida los checkpoints posteriores a su día (los que ya lo incluyen)
+    @Modifying
+    @Query("DELETE FROM GroupBalanceCheckpoint c WHERE c.group.id = :groupId AND c.checkpointDate > :date")
+    int deleteByGroupIdAndCheckpointDateAfter(@Param("groupId") Long groupId, @Param("date") LocalDate date);
+
+    @Modifying
+    @Query("DELETE FROM GroupBalanceCheckpoint c WHERE c.group.id = :groupId")
+    void deleteByGroupId(@Param("groupId") Long groupId);
+
+    @Modifying
+    @Query("DELETE FROM GroupBalanceCheckpoint c WHERE c.user.id = :userId")
+    void deleteByUserId(@Param("userId") Long userId);
+}
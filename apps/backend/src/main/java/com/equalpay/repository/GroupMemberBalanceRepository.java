@@ -0,0 +1,65 @@
+package com.equalpay.repository;
+
+import com.equalpay.entity.GroupMemberBalance;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface GroupMemberBalanceRepository extends JpaRepository<GroupMemberBalance, Long> {
+
+    @Query("SELECT b FROM GroupMemberBalance b WHERE b.group.id = :groupId")
+    List<GroupMemberBalance> findByGroupId(@Param("groupId") Long groupId);
+
+    // Bloquea las filas de los usuarios afectados para aplicar deltas sin perder actualizaciones
+    // concurrentes; una sola consulta, siempre en el mismo orden
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM GroupMemberBalance b WHERE b.group.id = :groupId AND b.user.id IN :userIds ORDER BY b.user.id")
+    List<GroupMemberBalance> findByGroupIdAndUserIdInForUpdate(@Param("groupId") Long groupId,
+                                                               @Param("userIds") Collection<Long> userIds);
+
+    // Suma de revisiones del ledger del grupo: crece con cada escritura confirmada de gastos o liquidaciones
+    @Query("SELECT COALESCE(SUM(b.revision), 0) FROM GroupMemberBalance b WHERE b.group.id = :groupId")
+    long sumRevisionByGroupId(@Param("groupId") Long groupId);
+
+    // Grupos de los que el usuario es miembro y su balance neto según el ledger: una fila [grupos, balance neto].
+    // Al neto se le descuentan las liquidaciones con alguien que ya no es miembro, como en el balance del grupo
+    @Query(value = "SELECT COUNT(*), COALESCE(SUM(b.net_balance), 0) - (" +
+           "SELECT COALESCE(SUM(s.amount), 0) FROM settlements s " +
+           "JOIN group_members sm ON sm.group_id = s.group_id AND sm.user_id = :userId " +
+           "WHERE (s.debtor_id = :userId AND NOT EXISTS (SELECT 1 FROM group_members c " +
+           "WHERE c.group_id = s.group_id AND c.user_id = s.creditor_id)) " +
+           "OR (s.creditor_id = :userId AND NOT EXISTS (SELECT 1 FROM group_members d " +
+           "WHERE d.group_id = s.group_id AND d.user_id = s.debtor_id))) " +
+           "FROM group_members m " +
+           "LEFT JOIN group_member_balance b ON b.group_id = m.group_id AND b.user_id = m.user_id " +
+           "WHERE m.user_id = :userId", nativeQuery = true)
+    List<Object[]> findMembershipTotalsByUserId(@Param("userId") Long userId);
+
+    // Crea la fila en cero si no existe. Con dos primeras escrituras concurrentes, la segunda espera a la
+    // primera y no inserta nada, en lugar de fallar por la restricción única (group_id, user_id)
+    @Modifying
+    @Query(value = "INSERT INTO group_member_balance " +
+           "(id, group_id, user_id, total_paid, total_owed, net_balance, expenses_paid, updated_at) " +
+           "VALUES (nextval('group_member_balance_seq'), :groupId, :userId, 0, 0, 0, 0, CURRENT_TIMESTAMP) " +
+           "ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("groupId") Long groupId, @Param("userId") Long userId);
+
+    @Query("SELECT COUNT(b) > 0 FROM GroupMemberBalance b WHERE b.group.id = :groupId")
+    boolean existsByGroupId(@Param("groupId") Long groupId);
+
+    @Modifying
+    @Query("DELETE FROM GroupMemberBalance b WHERE b.group.id = :groupId")
+    void deleteByGroupId(@Param("groupId") Long groupId);
+
+    @Modifying
+    @Query("DELETE FROM GroupMemberBalance b WHERE b.user.id = :userId")
+    void deleteByUserId(@Param("userId") Long userId);
+}
@@ -1,12 +1,18 @@
 package com.equalpay.repository;
 
+import com.equalpay.dto.MemberBalanceTotalsDTO;
 import com.equalpay.entity.Group;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 
 @Repository
 public interface GroupRepository extends JpaRepository<Group, Long> {
@@ -17,9 +23,57 @@ public interface GroupRepository extends JpaRepository<Group, Long> {
     @Query("SELECT g FROM Group g JOIN g.members m WHERE m.id = :userId")
     List<Group> findGroupsByUserId(@Param("userId") Long userId);
 
+    // Membresía consultada en group_members, sin cargar el conjunto de miembros
+    @Query("SELECT COUNT(m) > 0 FROM Group g JOIN g.members m WHERE g.id = :groupId AND m.id = :userId")
+    boolean isMember(@Param("groupId") Long groupId, @Param("userId") Long userId);
+
+    @Query("SELECT m.id FROM Group g JOIN g.members m WHERE g.id = :groupId")
+    Set<Long> findMemberIdsByGroupId(@Param("groupId") Long groupId);
+
+    @Query("SELECT m.id FROM Group g JOIN g.members m WHERE g.id = :groupId AND m.id IN :userIds")
+    Set<Long> findMemberIdsIn(@Param("groupId") Long groupId, @Param("userIds") Collection<Long> userIds);
+
+    // Lock compartido sobre la fila del grupo: lo toman las escrituras de gastos y liquidaciones antes de
+    // invalidar checkpoints y tocar el ledger, sin bloquearse entre ellas
+    @Lock(LockModeType.PESSIMISTIC_READ)
+    @Query("SELECT g FROM Group g WHERE g.id = :groupId")
+    Optional<Group> findByIdForShare(@Param("groupId") Long groupId);
+
+    // Lock exclusivo: lo toma quien guarda un checkpoint, para que ninguna escritura quede a mitad de camino
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT g FROM Group g WHERE g.id = :groupId")
+    Optional<Group> findByIdForUpdate(@Param("groupId") Long groupId);
+
     @Query("SELECT g FROM Group g WHERE g.creator.id = :creatorId")
     List<Group> findByCreatorId(@Param("creatorId") Long creatorId);
 
     @Query("SELECT COUNT(DISTINCT g) FROM Group g JOIN g.members m WHERE m.id = :userId")
     Long countActiveGroupsByUserId(@Param("userId") Long userId);
+
+    // Totales del usuario en cada uno de sus grupos en una sola consulta, con las mismas exclusiones que
+    // findMemberBalanceTotals (y que el balance del grupo)
+    @Query("SELECT new com.equalpay.dto.MemberBalanceTotalsDTO(g.id, g.name, " +
+           "(SELECT SUM(e.amount) FROM Expense e WHERE e.group.id = g.id AND e.payer.id = :userId), " +
+           "(SELECT SUM(es.amountOwed) FROM ExpenseSplit es WHERE es.expense.group.id = g.id AND es.user.id = :userId), " +
+           "(SELECT SUM(s.amount) FROM Settlement s WHERE s.group.id = g.id AND s.debtor.id = :userId " +
+           "AND s.creditor MEMBER OF g.members), " +
+           "(SELECT SUM(s.amount) FROM Settlement s WHERE s.group.id = g.id AND s.creditor.id = :userId " +
+           "AND s.debtor MEMBER OF g.members), " +
+           "(SELECT SUM(e.amount) FROM Expense e WHERE e.group.id = g.id)) " +
+           "FROM Group g JOIN g.members m WHERE m.id = :userId")
+    List<MemberBalanceTotalsDTO> findMemberBalanceTotalsByUserId(@Param("userId") Long userId);
+
+    // Totales de un usuario en un grupo puntual en un solo round trip. Mismo criterio que el balance del
+    // grupo: no cuentan las liquidaciones con alguien que ya no es miembro, y el total de gastos del grupo
+    // permite dejar el neto en cero si no hay ninguno
+    @Query("SELECT new com.equalpay.dto.MemberBalanceTotalsDTO(g.id, g.name, " +
+           "(SELECT SUM(e.amount) FROM Expense e WHERE e.group.id = g.id AND e.payer.id = :userId), " +
+           "(SELECT SUM(es.amountOwed) FROM ExpenseSplit es WHERE es.expense.group.id = g.id AND es.user.id = :userId), " +
+           "(SELECT SUM(s.amount) FROM Settlement s WHERE s.group.id = g.id AND s.debtor.id = :userId " +
+           "AND s.creditor MEMBER OF g.members), " +
+           "(SELECT SUM(s.amount) FROM Settlement s WHERE s.group.id = g.id AND s.creditor.id = :userId " +
+           "AND s.debtor MEMBER OF g.members), " +
+           "(SELECT SUM(e.amount) FROM Expense e WHERE e.group.id = g.id)) " +
+           "FROM Group g WHERE g.id = :groupId")
+    Optional<MemberBalanceTotalsDTO> findMemberBalanceTotals(@Param("userId") Long userId, @Param("groupId") Long groupId);
 }
\ No newline at end of file
@@ -1,11 +1,13 @@
 package com.equalpay.repository;
 
 import com.equalpay.entity.Settlement;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
@@ -17,6 +19,43 @@ public interface SettlementRepository extends JpaRepository<Settlement, Long> {
     @Query("SELECT s FROM Settlement s WHERE s.debtor.id = :userId OR s.creditor.id = :userId ORDER BY s.settledAt DESC")
     List<Settlement> findByUserIdOrderBySettledAtDesc(@Param("userId") Long userId);
     
+    // Deudor, acreedor y monto de cada liquidación del grupo (sin hidratar entidades)
+    @Query("SELECT s.debtor.id, s.creditor.id, s.amount FROM Settlement s WHERE s.group.id = :groupId")
+    List<Object[]> findTransfersByGroupId(@Param("groupId") Long groupId);
+
+    // Liquidaciones en las que el deudor o el acreedor ya no es miembro del grupo, sumadas por par.
+    // El cálculo original de balances las ignoraba; el ledger las registra y se descuentan al leer
+    @Query("SELECT s.debtor.id, s.creditor.id, SUM(s.amount) FROM Settlement s WHERE s.group.id = :groupId " +
+           "AND (s.debtor NOT MEMBER OF s.group.members OR s.creditor NOT MEMBER OF s.group.members) " +
+           "GROUP BY s.debtor.id, s.creditor.id")
+    List<Object[]> findFormerMemberTransfersByGroupId(@Param("groupId") Long groupId);
+
+    // Igual, solo liquidaciones con fecha anterior a before
+    @Query("SELECT s.debtor.id, s.creditor.id, SUM(s.amount) FROM Settlement s WHERE s.group.id = :groupId " +
+           "AND s.settledAt < :before " +
+           "AND (s.debtor NOT MEMBER OF s.group.members OR s.creditor NOT MEMBER OF s.group.members) " +
+           "GROUP BY s.debtor.id, s.creditor.id")
+    List<Object[]> findFormerMemberTransfersByGroupIdBefore(@Param("groupId") Long groupId,
+                                                            @Param("before") LocalDateTime before);
+
+    // Recorrido completo por bloques de ID (inicialización del timeline de actividad)
+    @Query("SELECT s FROM Settlement s JOIN FETCH s.debtor JOIN FETCH s.creditor WHERE s.id > :afterId ORDER BY s.id")
+    List<Settlement> findBatchAfterId(@Param("afterId") Long afterId, Pageable pageable);
+
+    // Igual, solo liquidaciones con fecha en [from, to)
+    @Query("SELECT s.debtor.id, s.creditor.id, s.amount FROM Settlement s WHERE s.group.id = :groupId " +
+           "AND s.settledAt >= :from AND s.settledAt < :to")
+    List<Object[]> findTransfersByGroupIdBetween(@Param("groupId") Long groupId,
+                                                 @Param("from") LocalDateTime from,
+                                                 @Param("to") LocalDateTime to);
+
+    // Fecha, deudor, acreedor y monto en [from, to), ordenados por fecha
+    @Query("SELECT s.settledAt, s.debtor.id, s.creditor.id, s.amount FROM Settlement s WHERE s.group.id = :groupId " +
+           "AND s.settledAt >= :from AND s.settledAt < :to ORDER BY s.settledAt")
+    List<Object[]> findDatedTransfersByGroupIdBetween(@Param("groupId") Long groupId,
+                                                      @Param("from") LocalDateTime from,
+                                                      @Param("to") LocalDateTime to);
+
     @Query("SELECT s FROM Settlement s WHERE s.group.id = :groupId AND s.debtor.id = :debtorId AND s.creditor.id = :creditorId ORDER BY s.settledAt DESC")
     List<Settlement> findByGroupAndDebtorAndCreditorOrderBySettledAtDesc(
             @Param("groupId") Long groupId, 
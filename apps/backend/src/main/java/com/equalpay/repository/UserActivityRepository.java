@@ -0,0 +1,61 @@
+package com.equalpay.repository;
+
+import com.equalpay.entity.UserActivity;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface UserActivityRepository extends JpaRepository<UserActivity, Long> {
+
+    // Actividad reciente: rango del índice (user_id, occurred_at, id) con límite; gasto o liquidación
+    // se traen en la misma consulta por clave primaria con sus relaciones a-uno
+    @Query("SELECT a FROM UserActivity a " +
+           "LEFT JOIN FETCH a.expense e LEFT JOIN FETCH e.group LEFT JOIN FETCH e.payer " +
+           "LEFT JOIN FETCH a.settlement s LEFT JOIN FETCH s.debtor LEFT JOIN FETCH s.creditor " +
+           "WHERE a.user.id = :userId ORDER BY a.occurredAt DESC, a.id DESC")
+    List<UserActivity> findRecentByUserId(@Param("userId") Long userId, Pageable pageable);
+
+    @Query("SELECT a FROM UserActivity a " +
+           "LEFT JOIN FETCH a.expense e LEFT JOIN FETCH e.group LEFT JOIN FETCH e.payer " +
+           "LEFT JOIN FETCH a.settlement s LEFT JOIN FETCH s.debtor LEFT JOIN FETCH s.creditor " +
+           "WHERE a.user.id = :userId " +
+           "AND (a.occurredAt < :occurredAt OR (a.occurredAt = :occurredAt AND a.id < :id)) " +
+           "ORDER BY a.occurredAt DESC, a.id DESC")
+    List<UserActivity> findRecentByUserIdBefore(@Param("userId") Long userId,
+                                                @Param("occurredAt") LocalDateTime occurredAt,
+                                                @Param("id") Long id,
+                                                Pageable pageable);
+
+    @Query("SELECT a.user.id FROM UserActivity a WHERE a.expense.id = :expenseId")
+    List<Long> findUserIdsByExpenseId(@Param("expenseId") Long expenseId);
+
+    @Modifying
+    @Query("DELETE FROM UserActivity a WHERE a.expense.id = :expenseId AND a.user.id IN :userIds")
+    void deleteByExpenseIdAndUserIdIn(@Param("expenseId") Long expenseId, @Param("userIds") Collection<Long> userIds);
+
+    @Modifying
+    @Query("DELETE FROM UserActivity a WHERE a.expense.id = :expenseId")
+    void deleteByExpenseId(@Param("expenseId") Long expenseId);
+
+    @Modifying
+    @Query("DELETE FROM UserActivity a WHERE a.settlement.id = :settlementId")
+    void deleteBySettlementId(@Param("settlementId") Long settlementId);
+
+    // Al borrar un grupo: entradas de sus gastos y liquidaciones
+    @Modifying
+    @Query("DELETE FROM UserActivity a WHERE a.expense.id IN (SELECT e.id FROM Expense e WHERE e.group.id = :groupId) " +
+           "OR a.settlement.id IN (SELECT s.id FROM Settlement s WHERE s.group.id = :groupId)")
+    void deleteByGroupId(@Param("groupId") Long groupId);
+
+    @Modifying
+    @Query("DELETE FROM UserActivity a WHERE a.user.id = :userId")
+    void deleteByUserId(@Param("userId") Long userId);
+}
@@ -0,0 +1,58 @@
+package com.equalpay.repository;
+
+import com.equalpay.entity.UserMonthSpend;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface UserMonthSpendRepository extends JpaRepository<UserMonthSpend, Long> {
+
+    // Filas a modificar por un delta, bloqueadas en orden (usuario, mes) como en el ledger de balances.
+    // Puede devolver combinaciones usuario/mes que no están en el delta: el llamador filtra
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM UserMonthSpend s WHERE s.group.id = :groupId AND s.user.id IN :userIds " +
+           "AND s.month IN :months ORDER BY s.user.id, s.month")
+    List<UserMonthSpend> findForUpdate(@Param("groupId") Long groupId,
+                                       @Param("userIds") Collection<Long> userIds,
+                                       @Param("months") Collection<LocalDate> months);
+
+    // Crea la fila en cero si no existe; como en el ledger de balances, dos primeras escrituras concurrentes
+    // del mismo usuario, mes y grupo no fallan por la restricción única
+    @Modifying
+    @Query(value = "INSERT INTO user_month_spend (id, user_id, group_id, spend_month, spent_cents, updated_at) " +
+           "VALUES (nextval('user_month_spend_seq'), :userId, :groupId, :month, 0, CURRENT_TIMESTAMP) " +
+           "ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("groupId") Long groupId, @Param("userId") Long userId, @Param("month") LocalDate month);
+
+    // Gasto del dashboard desde el rollup: una fila [total, mes actual, mes anterior] en centavos
+    @Query(value = "SELECT COALESCE(SUM(s.spent_cents), 0), " +
+           "       COALESCE(SUM(s.spent_cents) FILTER (WHERE s.spend_month = :monthStart), 0), " +
+           "       COALESCE(SUM(s.spent_cents) FILTER (WHERE s.spend_month = :previousMonthStart), 0) " +
+           "FROM user_month_spend s WHERE s.user_id = :userId", nativeQuery = true)
+    List<Object[]> findSpendTotalsByUserId(@Param("userId") Long userId,
+                                           @Param("monthStart") LocalDate monthStart,
+                                           @Param("previousMonthStart") LocalDate previousMonthStart);
+
+    // Historial de gasto: recorrido del índice único (user_id, spend_month, group_id) desde el mes indicado.
+    // Filas [mes, grupo, nombre del grupo, centavos]
+    @Query("SELECT s.month, g.id, g.name, s.spentCents FROM UserMonthSpend s JOIN s.group g " +
+           "WHERE s.user.id = :userId AND s.month >= :fromMonth AND s.spentCents <> 0 ORDER BY s.month, g.id")
+    List<Object[]> findHistoryByUserId(@Param("userId") Long userId, @Param("fromMonth") LocalDate fromMonth);
+
+    @Modifying
+    @Query("DELETE FROM UserMonthSpend s WHERE s.group.id = :groupId")
+    void deleteByGroupId(@Param("groupId") Long groupId);
+
+    @Modifying
+    @Query("DELETE FROM UserMonthSpend s WHERE s.user.id = :userId")
+    void deleteByUserId(@Param("userId") Long userId);
+}
@@ -0,0 +1,43 @@
+package com.equalpay.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+@Component
+public class BalanceCacheInvalidator {
+
+    public static final String GROUP_BALANCES = "groupBalances";
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @EventListener
+    public void onGroupBalanceChanged(GroupBalanceChangedEvent event) {
+        Long groupId = event.getGroupId();
+        evict(groupId);
+
+        // Una lectura concurrente puede volver a cachear el estado previo antes del commit: se invalida
+        // otra vez cuando la transacción confirma. Las lecturas que empezaron antes de esa segunda
+        // invalidación no llegan a cachear su resultado (GenerationCheckedCache)
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(groupId);
+                }
+            });
+        }
+    }
+
+    void evict(Long groupId) {
+        Cache cache = cacheManager.getCache(GROUP_BALANCES);
+        if (cache != null) {
+            cache.evict(groupId);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.equalpay.service;
+
+import com.equalpay.entity.GroupBalanceCheckpoint;
+import com.equalpay.repository.ExpenseRepository;
+import com.equalpay.repository.ExpenseSplitRepository;
+import com.equalpay.repository.GroupBalanceCheckpointRepository;
+import com.equalpay.repository.GroupMemberBalanceRepository;
+import com.equalpay.repository.GroupRepository;
+import com.equalpay.repository.SettlementRepository;
+import com.equalpay.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Balances de un grupo en un instante pasado: parte del último checkpoint diario (sumas acumuladas por
+// miembro) y reproduce solo los eventos posteriores. Los checkpoints se crean al consultarse un día por
+// primera vez y BalanceLedgerService borra los que un gasto o liquidación con fecha anterior deja obsoletos
+@Service
+@Transactional
+public class BalanceCheckpointService {
+
+    // Límite inferior para reproducir desde el inicio del historial
+    private static final LocalDateTime HISTORY_START = LocalDateTime.of(1900, 1, 1, 0, 0);
+
+    @Autowired
+    private GroupBalanceCheckpointRepository checkpointRepository;
+
+    @Autowired
+    private GroupMemberBalanceRepository groupMemberBalanceRepository;
+
+    @Autowired
+    private ExpenseRepository expenseRepository;
+
+    @Autowired
+    private ExpenseSplitRepository expenseSplitRepository;
+
+    @Autowired
+    private SettlementRepository settlementRepository;
+
+    @Autowired
+    private GroupRepository groupRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    // Acumulados con los gastos y liquidaciones de fecha <= asOf
+    public GroupBalanceKernel replayUntil(Long groupId, LocalDateTime asOf) {
+        LocalDate day = asOf.toLocalDate();
+        GroupBalanceKernel kernel = openingBalances(groupId, day);
+        // asOf inclusivo: la base guarda las fechas con precisión de microsegundos
+        replay(kernel, groupId, day.atStartOfDay(), asOf.plusNanos(1_000));
+        return kernel;
+    }
+
+    // Revierte sobre los acumulados las liquidaciones anteriores a before con alguien que ya no es miembro,
+    // como hacía el cálculo original de balances. Los checkpoints guardan las sumas sin este ajuste
+    public void excludeFormerMemberSettlements(GroupBalanceKernel kernel, Long groupId, LocalDateTime before) {
+        for (Object[] row : settlementRepository.findFormerMemberTransfersByGroupIdBefore(groupId, before)) {
+            kernel.addSettlement(kernel.register((Long) row[0]), kernel.register((Long) row[1]),
+                    -GroupBalanceKernel.toCents((BigDecimal) row[2]));
+        }
+    }
+
+    // Acumulados al inicio del día (eventos anteriores a day 00:00)
+    public GroupBalanceKernel openingBalances(Long groupId, LocalDate day) {
+        GroupBalanceKernel kernel = new GroupBalanceKernel(16);
+
+        LocalDate checkpointDate = checkpointRepository.findLatestDateOnOrBefore(groupId, day);
+        boolean createCheckpoint = !day.equals(checkpointDate) && !day.isAfter(LocalDate.now());
+        // La revisión se lee antes de reproducir: si cambia, alguna escritura confirmó en el medio
+        long revision = createCheckpoint ? groupMemberBalanceRepository.sumRevisionByGroupId(groupId) : 0;
+
+        // La reproducción, la parte cara, corre sin locks y no frena a las escrituras del grupo
+        LocalDateTime from = loadCheckpoint(kernel, groupId, checkpointDate);
+        replay(kernel, groupId, from, day.atStartOfDay());
+
+        // Sin eventos anteriores al día no hay nada que guardar ni que bloquear
+        if (createCheckpoint && kernel.size() > 0) {
+            // Lock exclusivo sobre la fila del grupo solo para guardar: espera a las escrituras en curso y
+            // frena las nuevas hasta el commit, así ninguna invalidación queda entre la validación y el guardado.
+            // Si otra lectura ya guardó el día o el ledger cambió desde la reproducción, no se guarda
+            groupRepository.findByIdForUpdate(groupId);
+            if (!day.equals(checkpointRepository.findLatestDateOnOrBefore(groupId, day))
+                    && groupMemberBalanceRepository.sumRevisionByGroupId(groupId) == revision) {
+                saveCheckpoint(kernel, groupId, day);
+            }
+        }
+        return kernel;
+    }
+
+    private LocalDateTime loadCheckpoint(GroupBalanceKernel kernel, Long groupId, LocalDate checkpointDate) {
+        if (checkpointDate == null) {
+            return HISTORY_START;
+        }
+        for (GroupBalanceCheckpoint row : checkpointRepository.findByGroupIdAndCheckpointDate(groupId, checkpointDate)) {
+            kernel.addTotals(kernel.register(row.getUser().getId()),
+                    row.getPaidCents(), row.getOwedCents(), row.getExpensesPaidCents());
+        }
+        return checkpointDate.atStartOfDay();
+    }
+
+    // Eventos con fecha en [from, to), en centavos y sin hidratar entidades
+    private void replay(GroupBalanceKernel kernel, Long groupId, LocalDateTime from, LocalDateTime to) {
+        if (!from.isBefore(to)) {
+            return;
+        }
+        for (Object[] row : expenseRepository.findPayerAmountsByGroupIdBetween(groupId, from, to)) {
+            kernel.addExpense(kernel.register((Long) row[0]), GroupBalanceKernel.toCents((BigDecimal) row[1]));
+        }
+        for (Object[] row : expenseSplitRepository.findUserAmountsByGroupIdBetween(groupId, from, to)) {
+            kernel.addShare(kernel.register((Long) row[0]), GroupBalanceKernel.toCents((BigDecimal) row[1]));
+        }
+        for (Object[] row : settlementRepository.findTransfersByGroupIdBetween(groupId, from, to)) {
+            kernel.addSettlement(kernel.register((Long) row[0]), kernel.register((Long) row[1]),
+                    GroupBalanceKernel.toCents((BigDecimal) row[2]));
+        }
+    }
+
+    private void saveCheckpoint(GroupBalanceKernel kernel, Long groupId, LocalDate day) {
+        List<GroupBalanceCheckpoint> rows = new ArrayList<>(kernel.size());
+        for (int i = 0; i < kernel.size(); i++) {
+            rows.add(new GroupBalanceCheckpoint(
+                groupRepository.getReferenceById(groupId),
+                userRepository.getReferenceById(kernel.userId(i)),
+                day,
+                kernel.paid(i),
+                kernel.owed(i),
+                kernel.expensesPaid(i)
+            ));
+        }
+        checkpointRepository.saveAll(rows);
+    }
+}
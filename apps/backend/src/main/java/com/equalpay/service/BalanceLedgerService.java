@@ -0,0 +1,270 @@
+package com.equalpay.service;
+
+import com.equalpay.entity.Expense;
+import com.equalpay.entity.ExpenseSplit;
+import com.equalpay.entity.Group;
+import com.equalpay.entity.GroupMemberBalance;
+import com.equalpay.entity.Settlement;
+import com.equalpay.repository.ExpenseRepository;
+import com.equalpay.repository.ExpenseSplitRepository;
+import com.equalpay.repository.GroupBalanceCheckpointRepository;
+import com.equalpay.repository.GroupMemberBalanceRepository;
+import com.equalpay.repository.GroupRepository;
+import com.equalpay.repository.SettlementRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Mantiene el ledger group_member_balance aplicando deltas en la misma transacción
+// que modifica gastos y liquidaciones, para que leer balances no dependa del historial
+@Service
+@Transactional
+public class BalanceLedgerService {
+
+    private static final int PAID = 0;
+    private static final int OWED = 1;
+    private static final int EXPENSES_PAID = 2;
+
+    @Autowired
+    private GroupMemberBalanceRepository groupMemberBalanceRepository;
+
+    @Autowired
+    private ExpenseRepository expenseRepository;
+
+    @Autowired
+    private ExpenseSplitRepository expenseSplitRepository;
+
+    @Autowired
+    private SettlementRepository settlementRepository;
+
+    @Autowired
+    private GroupRepository groupRepository;
+
+    @Autowired
+    private GroupBalanceCheckpointRepository checkpointRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    public void recordExpense(Expense expense, Collection<ExpenseSplit> splits) {
+        applyExpense(expense, splits, false);
+    }
+
+    // Varios gastos nuevos (importación): un único delta por grupo en lugar de uno por gasto
+    public void recordExpenses(Map<Expense, ? extends Collection<ExpenseSplit>> expenses) {
+        Map<Long, Map<Long, BigDecimal[]>> deltasByGroup = new TreeMap<>();
+        Map<Long, LocalDateTime> earliestByGroup = new HashMap<>();
+        expenses.forEach((expense, splits) -> {
+            Long groupId = expense.getGroup().getId();
+            accumulateExpense(deltasByGroup.computeIfAbsent(groupId, id -> new TreeMap<>()), expense, splits, false);
+            earliestByGroup.merge(groupId, expense.getExpenseDate(), (a, b) -> a.isBefore(b) ? a : b);
+        });
+        deltasByGroup.forEach((groupId, deltas) -> applyDeltas(groupId, deltas, earliestByGroup.get(groupId)));
+    }
+
+    // Debe llamarse antes de modificar el gasto, con sus divisiones actuales
+    public void revertExpense(Expense expense, Collection<ExpenseSplit> splits) {
+        applyExpense(expense, splits, true);
+    }
+
+    // Edición de un gasto: aplica solo la diferencia entre el monto y las partes previas y las actuales.
+    // El pagador no cambia en una edición; los usuarios sin diferencia no se tocan ni se bloquean
+    public void recordExpenseChange(Expense expense, BigDecimal previousAmount, LocalDateTime previousDate,
+                                    Map<Long, BigDecimal> previousShares, Collection<ExpenseSplit> splits) {
+        Map<Long, BigDecimal[]> deltas = new TreeMap<>();
+        BigDecimal amountDelta = expense.getAmount().subtract(previousAmount);
+        if (amountDelta.signum() != 0) {
+            BigDecimal[] payerDelta = deltaFor(deltas, expense.getPayer().getId());
+            payerDelta[PAID] = payerDelta[PAID].add(amountDelta);
+            payerDelta[EXPENSES_PAID] = payerDelta[EXPENSES_PAID].add(amountDelta);
+        }
+
+        Map<Long, BigDecimal> shareDeltas = new HashMap<>();
+        for (ExpenseSplit split : splits) {
+            shareDeltas.merge(split.getUser().getId(), split.getAmountOwed(), BigDecimal::add);
+        }
+        previousShares.forEach((userId, amount) -> shareDeltas.merge(userId, amount.negate(), BigDecimal::add));
+        shareDeltas.forEach((userId, delta) -> {
+            if (delta.signum() != 0) {
+                BigDecimal[] userDelta = deltaFor(deltas, userId);
+                userDelta[OWED] = userDelta[OWED].add(delta);
+            }
+        });
+
+        // Con o sin diferencia de montos, el gasto pudo moverse de fecha: el historial cambia desde la anterior.
+        // Un cambio solo de fecha aplica un delta nulo al pagador, para que su revisión registre la escritura
+        LocalDateTime expenseDate = expense.getExpenseDate();
+        if (!previousDate.equals(expenseDate)) {
+            deltaFor(deltas, expense.getPayer().getId());
+        }
+        applyDeltas(expense.getGroup().getId(), deltas,
+                previousDate.isBefore(expenseDate) ? previousDate : expenseDate);
+    }
+
+    public void recordSettlement(Settlement settlement) {
+        applySettlement(settlement, false);
+    }
+
+    public void revertSettlement(Settlement settlement) {
+        applySettlement(settlement, true);
+    }
+
+    // Reconstruye el ledger de un grupo desde el historial completo (migración de datos existentes)
+    public void rebuildGroup(Long groupId) {
+        groupRepository.findByIdForShare(groupId);
+        groupMemberBalanceRepository.deleteByGroupId(groupId);
+        checkpointRepository.deleteByGroupId(groupId);
+
+        // Reproducir el historial en centavos sin hidratar entidades
+        GroupBalanceKernel kernel = new GroupBalanceKernel(16);
+        for (Object[] row : expenseRepository.findPayerAmountsByGroupId(groupId)) {
+            kernel.addExpense(kernel.register((Long) row[0]), GroupBalanceKernel.toCents((BigDecimal) row[1]));
+        }
+        for (Object[] row : expenseSplitRepository.findUserAmountsByGroupId(groupId)) {
+            kernel.addShare(kernel.register((Long) row[0]), GroupBalanceKernel.toCents((BigDecimal) row[1]));
+        }
+        for (Object[] row : settlementRepository.findTransfersByGroupId(groupId)) {
+            kernel.addSettlement(kernel.register((Long) row[0]), kernel.register((Long) row[1]),
+                    GroupBalanceKernel.toCents((BigDecimal) row[2]));
+        }
+
+        Map<Long, BigDecimal[]> deltas = new TreeMap<>();
+        for (int i = 0; i < kernel.size(); i++) {
+            BigDecimal[] delta = deltaFor(deltas, kernel.userId(i));
+            delta[PAID] = kernel.paidAmount(i);
+            delta[OWED] = kernel.owedAmount(i);
+            delta[EXPENSES_PAID] = kernel.expensesPaidAmount(i);
+        }
+        applyDeltas(groupId, deltas, null);
+    }
+
+    // Inicializa el ledger de los grupos con historial previo a su existencia
+    public int rebuildMissingLedgers() {
+        int rebuilt = 0;
+        for (Group group : groupRepository.findAll()) {
+            Long groupId = group.getId();
+            if (groupMemberBalanceRepository.existsByGroupId(groupId)) {
+                continue;
+            }
+            if (expenseRepository.countByGroupId(groupId) > 0
+                    || !settlementRepository.findByGroupIdOrderBySettledAtDesc(groupId).isEmpty()) {
+                rebuildGroup(groupId);
+                rebuilt++;
+            }
+        }
+        return rebuilt;
+    }
+
+    private void applyExpense(Expense expense, Collection<ExpenseSplit> splits, boolean revert) {
+        Map<Long, BigDecimal[]> deltas = new TreeMap<>();
+        accumulateExpense(deltas, expense, splits, revert);
+        applyDeltas(expense.getGroup().getId(), deltas, expense.getExpenseDate());
+    }
+
+    private void applySettlement(Settlement settlement, boolean revert) {
+        Map<Long, BigDecimal[]> deltas = new TreeMap<>();
+        accumulateSettlement(deltas, settlement, revert);
+        applyDeltas(settlement.getGroup().getId(), deltas, settlement.getSettledAt());
+    }
+
+    private void accumulateExpense(Map<Long, BigDecimal[]> deltas, Expense expense,
+                                   Collection<ExpenseSplit> splits, boolean revert) {
+        BigDecimal amount = signed(expense.getAmount(), revert);
+        BigDecimal[] payerDelta = deltaFor(deltas, expense.getPayer().getId());
+        payerDelta[PAID] = payerDelta[PAID].add(amount);
+        payerDelta[EXPENSES_PAID] = payerDelta[EXPENSES_PAID].add(amount);
+
+        for (ExpenseSplit split : splits) {
+            BigDecimal[] userDelta = deltaFor(deltas, split.getUser().getId());
+            userDelta[OWED] = userDelta[OWED].add(signed(split.getAmountOwed(), revert));
+        }
+    }
+
+    // Se aplican siempre ambas partes, aunque alguna deje el grupo después. Las lecturas de balance descuentan
+    // las liquidaciones con quien ya no es miembro (SettlementRepository.findFormerMemberTransfersByGroupId)
+    private void accumulateSettlement(Map<Long, BigDecimal[]> deltas, Settlement settlement, boolean revert) {
+        BigDecimal amount = signed(settlement.getAmount(), revert);
+
+        // El deudor efectivamente "pagó" esta cantidad adicional
+        BigDecimal[] debtorDelta = deltaFor(deltas, settlement.getDebtor().getId());
+        debtorDelta[PAID] = debtorDelta[PAID].add(amount);
+
+        // Al acreedor se le reduce lo que debe al grupo (mismo criterio que BalanceService)
+        BigDecimal[] creditorDelta = deltaFor(deltas, settlement.getCreditor().getId());
+        creditorDelta[OWED] = creditorDelta[OWED].subtract(amount);
+    }
+
+    // Primero el lock compartido del grupo y recién entonces la invalidación de checkpoints desde changedFrom
+    // (null si no hay que invalidar): un checkpoint que se estaba guardando ya está confirmado y se borra,
+    // y ninguno nuevo se guarda hasta que esta transacción termine (BalanceCheckpointService.openingBalances).
+    // Las filas se bloquean en una sola consulta ordenada por usuario, para que los locks se tomen
+    // siempre en el mismo orden; una consulta por usuario forzaba además un flush por fila
+    private void applyDeltas(Long groupId, Map<Long, BigDecimal[]> deltas, LocalDateTime changedFrom) {
+        groupRepository.findByIdForShare(groupId);
+        if (changedFrom != null) {
+            invalidateCheckpoints(groupId, changedFrom);
+        }
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        Map<Long, GroupMemberBalance> rows = lockRows(groupId, deltas.keySet());
+        if (rows.size() < deltas.size()) {
+            // Primera escritura de algún miembro: se crean sus filas con insert-if-absent (una fila vacía
+            // no tiene nada que bloquear y dos INSERT concurrentes chocarían) y se vuelven a bloquear todas
+            for (Long userId : deltas.keySet()) {
+                if (!rows.containsKey(userId)) {
+                    groupMemberBalanceRepository.insertIfAbsent(groupId, userId);
+                }
+            }
+            rows = lockRows(groupId, deltas.keySet());
+        }
+
+        List<GroupMemberBalance> changed = new ArrayList<>(deltas.size());
+        for (Map.Entry<Long, BigDecimal[]> entry : deltas.entrySet()) {
+            BigDecimal[] delta = entry.getValue();
+            GroupMemberBalance balance = rows.get(entry.getKey());
+            balance.apply(delta[PAID], delta[OWED], delta[EXPENSES_PAID]);
+            changed.add(balance);
+        }
+        groupMemberBalanceRepository.saveAll(changed);
+
+        // Todo cambio de gastos o liquidaciones pasa por aquí: avisar que el balance del grupo cambió
+        eventPublisher.publishEvent(new GroupBalanceChangedEvent(groupId));
+    }
+
+    private Map<Long, GroupMemberBalance> lockRows(Long groupId, Collection<Long> userIds) {
+        Map<Long, GroupMemberBalance> rows = new HashMap<>();
+        if (!userIds.isEmpty()) {
+            for (GroupMemberBalance row : groupMemberBalanceRepository.findByGroupIdAndUserIdInForUpdate(groupId, userIds)) {
+                rows.put(row.getUser().getId(), row);
+            }
+        }
+        return rows;
+    }
+
+    // Los checkpoints de balances pasados posteriores al día del evento ya no son válidos. Los eventos
+    // con fecha de hoy no borran nada: solo existen checkpoints hasta el día de hoy, que cubren días anteriores
+    private void invalidateCheckpoints(Long groupId, LocalDateTime eventDate) {
+        checkpointRepository.deleteByGroupIdAndCheckpointDateAfter(groupId, eventDate.toLocalDate());
+    }
+
+    private static BigDecimal[] deltaFor(Map<Long, BigDecimal[]> deltas, Long userId) {
+        return deltas.computeIfAbsent(userId,
+                id -> new BigDecimal[] {BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO});
+    }
+
+    private static BigDecimal signed(BigDecimal amount, boolean revert) {
+        return revert ? amount.negate() : amount;
+    }
+}
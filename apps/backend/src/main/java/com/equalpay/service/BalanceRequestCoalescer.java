@@ -0,0 +1,81 @@
+package com.equalpay.service;
+
+import com.equalpay.dto.BalanceDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Agrupa peticiones concurrentes del mismo balance: la primera calcula y las demás esperan su resultado
+@Service
+public class BalanceRequestCoalescer {
+
+    @Autowired
+    private BalanceService balanceService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<String, CompletableFuture<BalanceDTO>> inFlight = new ConcurrentHashMap<>();
+
+    private Counter computations;
+    private Counter coalesced;
+
+    @PostConstruct
+    void registerMetrics() {
+        computations = Counter.builder("equalpay.balances.computations")
+                .description("Cálculos de balance ejecutados")
+                .register(meterRegistry);
+        coalesced = Counter.builder("equalpay.balances.coalesced")
+                .description("Peticiones de balance que reutilizaron un cálculo en curso")
+                .register(meterRegistry);
+    }
+
+    public BalanceDTO calculateGroupBalance(Long groupId, String mode) {
+        String key = groupId + ":" + Objects.toString(mode, "");
+
+        CompletableFuture<BalanceDTO> mine = new CompletableFuture<>();
+        CompletableFuture<BalanceDTO> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            coalesced.increment();
+            return await(existing);
+        }
+
+        // El líder calcula en su propio hilo y libera la clave al terminar (éxito o error):
+        // solo se comparte el cálculo mientras está en curso, nunca se guarda el resultado.
+        // Se captura Throwable: con un Error sin propagar, las peticiones en espera no terminarían nunca
+        try {
+            computations.increment();
+            BalanceDTO balance = balanceService.calculateGroupBalance(groupId, mode);
+            mine.complete(balance);
+            return balance;
+        } catch (Throwable e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    private static BalanceDTO await(CompletableFuture<BalanceDTO> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            // Propagar la excepción original (p. ej. grupo no encontrado) a cada petición en espera
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.equalpay.service;
+
+import com.equalpay.dto.BalanceSeriesDTO;
+import com.equalpay.entity.Group;
+import com.equalpay.entity.User;
+import com.equalpay.repository.ExpenseRepository;
+import com.equalpay.repository.ExpenseSplitRepository;
+import com.equalpay.repository.GroupRepository;
+import com.equalpay.repository.SettlementRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+// Series de balance neto por miembro. Parte de los acumulados al inicio del rango (checkpoints) y recorre
+// una sola vez los gastos, divisiones y liquidaciones del rango, ordenados por fecha, tomando una foto
+// de los acumuladores en centavos al cierre de cada período
+@Service
+@Transactional
+public class BalanceSeriesService {
+
+    // Tope de períodos por consulta (miembros x períodos valores en la respuesta)
+    private static final int MAX_PERIODS = 1000;
+
+    public enum Bucket {
+        DAY, WEEK;
+
+        // null si el valor no es un período conocido
+        public static Bucket fromParam(String value) {
+            for (Bucket bucket : values()) {
+                if (bucket.name().equalsIgnoreCase(value)) {
+                    return bucket;
+                }
+            }
+            return null;
+        }
+
+        LocalDate periodStart(LocalDate date) {
+            return this == WEEK ? date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)) : date;
+        }
+
+        LocalDate nextPeriod(LocalDate start) {
+            return this == WEEK ? start.plusWeeks(1) : start.plusDays(1);
+        }
+
+        // Rango por defecto: 30 días o 12 semanas hasta la fecha final
+        LocalDate defaultFrom(LocalDate to) {
+            return this == WEEK ? to.minusWeeks(11) : to.minusDays(29);
+        }
+    }
+
+    @Autowired
+    private BalanceCheckpointService balanceCheckpointService;
+
+    @Autowired
+    private GroupRepository groupRepository;
+
+    @Autowired
+    private ExpenseRepository expenseRepository;
+
+    @Autowired
+    private ExpenseSplitRepository expenseSplitRepository;
+
+    @Autowired
+    private SettlementRepository settlementRepository;
+
+    // Vacío si el grupo no existe. from y to son opcionales (por defecto, el rango que termina hoy)
+    public Optional<BalanceSeriesDTO> calculateBalanceSeries(Long groupId, Bucket bucket, LocalDate from, LocalDate to) {
+        Optional<Group> found = groupRepository.findById(groupId);
+        if (found.isEmpty()) {
+            return Optional.empty();
+        }
+        Group group = found.get();
+
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = bucket.periodStart(from != null ? from : bucket.defaultFrom(end));
+        if (start.isAfter(end)) {
+            throw new IllegalArgumentException("La fecha inicial debe ser anterior a la final");
+        }
+        List<LocalDate> periods = new ArrayList<>();
+        for (LocalDate period = start; !period.isAfter(end); period = bucket.nextPeriod(period)) {
+            if (periods.size() == MAX_PERIODS) {
+                throw new IllegalArgumentException("El rango supera los " + MAX_PERIODS + " períodos");
+            }
+            periods.add(period);
+        }
+
+        // Acumulados al inicio del primer período; los miembros actuales se registran para tener índice fijo
+        GroupBalanceKernel kernel = balanceCheckpointService.openingBalances(groupId, start);
+        balanceCheckpointService.excludeFormerMemberSettlements(kernel, groupId, start.atStartOfDay());
+        List<User> members = new ArrayList<>(group.getMembers());
+        members.sort(Comparator.comparing(User::getId));
+        int[] memberIndex = new int[members.size()];
+        Set<Long> memberIds = new HashSet<>();
+        for (int m = 0; m < members.size(); m++) {
+            memberIndex[m] = kernel.register(members.get(m).getId());
+            memberIds.add(members.get(m).getId());
+        }
+
+        LocalDateTime rangeStart = start.atStartOfDay();
+        LocalDateTime rangeEnd = bucket.nextPeriod(periods.get(periods.size() - 1)).atStartOfDay();
+        List<Object[]> expenses = expenseRepository.findDatedPayerAmountsByGroupIdBetween(groupId, rangeStart, rangeEnd);
+        List<Object[]> shares = expenseSplitRepository.findDatedUserAmountsByGroupIdBetween(groupId, rangeStart, rangeEnd);
+        List<Object[]> transfers = settlementRepository.findDatedTransfersByGroupIdBetween(groupId, rangeStart, rangeEnd);
+
+        long[][] nets = new long[members.size()][periods.size()];
+        int e = 0;
+        int s = 0;
+        int t = 0;
+        for (int p = 0; p < periods.size(); p++) {
+            LocalDateTime periodEnd = bucket.nextPeriod(periods.get(p)).atStartOfDay();
+            for (; e < expenses.size() && before(expenses.get(e), periodEnd); e++) {
+                Object[] row = expenses.get(e);
+                kernel.addExpense(kernel.register((Long) row[1]), GroupBalanceKernel.toCents((BigDecimal) row[2]));
+            }
+            for (; s < shares.size() && before(shares.get(s), periodEnd); s++) {
+                Object[] row = shares.get(s);
+                kernel.addShare(kernel.register((Long) row[1]), GroupBalanceKernel.toCents((BigDecimal) row[2]));
+            }
+            for (; t < transfers.size() && before(transfers.get(t), periodEnd); t++) {
+                Object[] row = transfers.get(t);
+                // Liquidaciones con alguien que ya no es miembro: no cuentan, como en el balance actual
+                if (!memberIds.contains((Long) row[1]) || !memberIds.contains((Long) row[2])) {
+                    continue;
+                }
+                kernel.addSettlement(kernel.register((Long) row[1]), kernel.register((Long) row[2]),
+                        GroupBalanceKernel.toCents((BigDecimal) row[3]));
+            }
+            for (int m = 0; m < members.size(); m++) {
+                nets[m][p] = kernel.net(memberIndex[m]);
+            }
+        }
+
+        List<BalanceSeriesDTO.MemberSeriesDTO> series = new ArrayList<>(members.size());
+        for (int m = 0; m < members.size(); m++) {
+            List<BigDecimal> netBalances = new ArrayList<>(periods.size());
+            for (long net : nets[m]) {
+                netBalances.add(Cents.toBigDecimal(net));
+            }
+            User member = members.get(m);
+            series.add(new BalanceSeriesDTO.MemberSeriesDTO(member.getId(), member.getName(), netBalances));
+        }
+        return Optional.of(new BalanceSeriesDTO(groupId, bucket.name().toLowerCase(), periods, series));
+    }
+
+    private static boolean before(Object[] row, LocalDateTime periodEnd) {
+        return ((LocalDateTime) row[0]).isBefore(periodEnd);
+    }
+}
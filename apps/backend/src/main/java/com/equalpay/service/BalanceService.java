@@ -1,20 +1,22 @@
 package com.equalpay.service;
 
 import com.equalpay.dto.BalanceDTO;
-import com.equalpay.entity.Expense;
-import com.equalpay.entity.ExpenseSplit;
+import com.equalpay.dto.MemberBalanceTotalsDTO;
 import com.equalpay.entity.Group;
-import com.equalpay.entity.Settlement;
+import com.equalpay.entity.GroupMemberBalance;
 import com.equalpay.entity.User;
-import com.equalpay.repository.ExpenseRepository;
 import com.equalpay.repository.ExpenseSplitRepository;
+import com.equalpay.repository.GroupMemberBalanceRepository;
 import com.equalpay.repository.GroupRepository;
 import com.equalpay.repository.SettlementRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -22,96 +24,72 @@ import java.util.stream.Collectors;
 @Transactional(readOnly = true)
 public class BalanceService {
 
-    @Autowired
-    private ExpenseRepository expenseRepository;
-
     @Autowired
     private ExpenseSplitRepository expenseSplitRepository;
 
     @Autowired
     private GroupRepository groupRepository;
     
+    @Autowired
+    private GroupMemberBalanceRepository groupMemberBalanceRepository;
+
     @Autowired
     private SettlementRepository settlementRepository;
 
+    @Autowired
+    private BalanceCheckpointService balanceCheckpointService;
+
+    @Autowired
+    private Map<String, SettlementPlanner> settlementPlanners;
+
+    @Value("${equalpay.balances.settlement-planner:heap}")
+    private String settlementPlannerName;
+
+    // Cacheado por grupo; BalanceCacheInvalidator lo invalida en cada escritura que afecta al grupo
+    @Cacheable(cacheNames = BalanceCacheInvalidator.GROUP_BALANCES, key = "#groupId")
     public BalanceDTO calculateGroupBalance(Long groupId) {
+        return calculateGroupBalance(groupId, null);
+    }
+
+    // mode: nombre del planificador de liquidaciones (greedy, heap, optimal); null usa el configurado
+    // Solo se cachea el planificador por defecto: los modos explícitos se calculan siempre
+    @Cacheable(cacheNames = BalanceCacheInvalidator.GROUP_BALANCES, key = "#groupId", condition = "#mode == null")
+    public BalanceDTO calculateGroupBalance(Long groupId, String mode) {
         Group group = groupRepository.findById(groupId)
                 .orElseThrow(() -> new IllegalArgumentException("Grupo no encontrado"));
 
-        List<Expense> expenses = expenseRepository.findByGroupId(groupId);
-        
-        if (expenses.isEmpty()) {
-            return createEmptyBalance(group);
+        // Leer el ledger mantenido incrementalmente: una fila por miembro, sin recorrer el historial
+        Map<Long, GroupMemberBalance> ledger = new HashMap<>();
+        BigDecimal totalExpenses = BigDecimal.ZERO;
+        for (GroupMemberBalance row : groupMemberBalanceRepository.findByGroupId(groupId)) {
+            ledger.put(row.getUser().getId(), row);
+            totalExpenses = totalExpenses.add(row.getExpensesPaid());
         }
 
-        // Calcular total de gastos del grupo
-        BigDecimal totalExpenses = expenses.stream()
-                .map(Expense::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        if (totalExpenses.signum() == 0) {
+            return createEmptyBalance(group);
+        }
 
-        // Crear mapa de balances por usuario
+        // Crear mapa de balances por usuario (solo miembros actuales del grupo)
         Map<Long, BalanceDTO.UserBalanceDTO> userBalances = new HashMap<>();
-
-        // Inicializar balances para todos los miembros del grupo
         for (User member : group.getMembers()) {
+            GroupMemberBalance row = ledger.get(member.getId());
             userBalances.put(member.getId(), new BalanceDTO.UserBalanceDTO(
                 member.getId(),
                 member.getName(),
-                BigDecimal.ZERO,  // totalPaid
-                BigDecimal.ZERO,  // totalOwed
-                BigDecimal.ZERO   // netBalance
+                row != null ? row.getTotalPaid() : BigDecimal.ZERO,
+                row != null ? row.getTotalOwed() : BigDecimal.ZERO,
+                row != null ? row.getNetBalance() : BigDecimal.ZERO
             ));
         }
 
-        // Calcular lo que cada usuario pagó
-        for (Expense expense : expenses) {
-            Long payerId = expense.getPayer().getId();
-            BalanceDTO.UserBalanceDTO payerBalance = userBalances.get(payerId);
-            if (payerBalance != null) {
-                payerBalance.setTotalPaid(payerBalance.getTotalPaid().add(expense.getAmount()));
-            }
-        }
-
-        // Calcular lo que cada usuario debe
-        List<ExpenseSplit> allSplits = expenses.stream()
-                .flatMap(expense -> expense.getExpenseSplits().stream())
-                .collect(Collectors.toList());
-
-        for (ExpenseSplit split : allSplits) {
-            Long userId = split.getUser().getId();
-            BalanceDTO.UserBalanceDTO userBalance = userBalances.get(userId);
-            if (userBalance != null) {
-                userBalance.setTotalOwed(userBalance.getTotalOwed().add(split.getAmountOwed()));
-            }
-        }
-
-        // Ajustar balances por settlements (pagos realizados)
-        // Un settlement representa que alguien pagó una deuda pendiente
-        List<Settlement> completedSettlements = settlementRepository.findByGroupIdOrderBySettledAtDesc(groupId);
-        for (Settlement settlement : completedSettlements) {
-            Long debtorId = settlement.getDebtor().getId();
-            Long creditorId = settlement.getCreditor().getId();
-            BigDecimal settledAmount = settlement.getAmount();
-            
-            BalanceDTO.UserBalanceDTO debtorBalance = userBalances.get(debtorId);
-            BalanceDTO.UserBalanceDTO creditorBalance = userBalances.get(creditorId);
-            
-            if (debtorBalance != null && creditorBalance != null) {
-                // El deudor efectivamente "pagó" esta cantidad adicional
-                debtorBalance.setTotalPaid(debtorBalance.getTotalPaid().add(settledAmount));
-                // El acreedor efectivamente "recibió" esta cantidad, por lo que se reduce lo que el acreedor debe al grupo
-                creditorBalance.setTotalOwed(creditorBalance.getTotalOwed().subtract(settledAmount));
-            }
-        }
-
-        // Calcular balance neto (lo que pagó - lo que debe)
-        for (BalanceDTO.UserBalanceDTO balance : userBalances.values()) {
-            BigDecimal netBalance = balance.getTotalPaid().subtract(balance.getTotalOwed());
-            balance.setNetBalance(netBalance);
+        // Como el cálculo original: una liquidación con alguien que ya no es miembro no cuenta para el otro
+        for (Object[] row : settlementRepository.findFormerMemberTransfersByGroupId(groupId)) {
+            excludeSettlement(userBalances, (Long) row[0], (Long) row[1], (BigDecimal) row[2]);
         }
 
         // Calcular las liquidaciones (quién debe a quién)
-        List<BalanceDTO.DebtDTO> settlements = calculateSettlements(userBalances);
+        List<BalanceDTO.DebtDTO> settlements = getSettlementPlanner(mode).plan(userBalances.values());
 
         // Crear resultado final
         BalanceDTO result = new BalanceDTO(groupId, group.getName(), totalExpenses);
@@ -121,30 +99,55 @@ public class BalanceService {
         return result;
     }
 
-    public List<BalanceDTO.DebtDTO> calculateUserDebts(Long userId) {
-        List<ExpenseSplit> userSplits = expenseSplitRepository.findByUserId(userId);
-        Map<Long, BigDecimal> debtsByGroup = new HashMap<>();
-        Map<Long, String> groupNames = new HashMap<>();
+    // Balance del grupo con los gastos y liquidaciones hasta asOf (inclusive), sobre los miembros actuales.
+    // No se cachea; escribe el checkpoint del día si todavía no existe
+    @Transactional
+    public BalanceDTO calculateGroupBalanceAsOf(Long groupId, LocalDateTime asOf, String mode) {
+        Group group = groupRepository.findById(groupId)
+                .orElseThrow(() -> new IllegalArgumentException("Grupo no encontrado"));
 
-        // Agrupar deudas por grupo
-        for (ExpenseSplit split : userSplits) {
-            Long groupId = split.getExpense().getGroup().getId();
-            String groupName = split.getExpense().getGroup().getName();
-            
-            debtsByGroup.merge(groupId, split.getAmountOwed(), BigDecimal::add);
-            groupNames.put(groupId, groupName);
+        GroupBalanceKernel kernel = balanceCheckpointService.replayUntil(groupId, asOf);
+        balanceCheckpointService.excludeFormerMemberSettlements(kernel, groupId, asOf.plusNanos(1_000));
+        if (kernel.expensesTotal() == 0) {
+            return createEmptyBalance(group);
         }
 
-        // Convertir a DTOs
-        return debtsByGroup.entrySet().stream()
-                .map(entry -> new BalanceDTO.DebtDTO(
-                    userId,
-                    "", // Se llenará en el controller si es necesario
-                    entry.getKey(),
-                    groupNames.get(entry.getKey()),
-                    entry.getValue()
-                ))
-                .collect(Collectors.toList());
+        Map<Long, BalanceDTO.UserBalanceDTO> userBalances = new HashMap<>();
+        for (User member : group.getMembers()) {
+            int index = kernel.indexOf(member.getId());
+            userBalances.put(member.getId(), new BalanceDTO.UserBalanceDTO(
+                member.getId(),
+                member.getName(),
+                index >= 0 ? kernel.paidAmount(index) : BigDecimal.ZERO,
+                index >= 0 ? kernel.owedAmount(index) : BigDecimal.ZERO,
+                index >= 0 ? kernel.netAmount(index) : BigDecimal.ZERO
+            ));
+        }
+
+        BalanceDTO result = new BalanceDTO(groupId, group.getName(), kernel.expensesTotalAmount());
+        result.setUserBalances(new ArrayList<>(userBalances.values()));
+        result.setSettlements(getSettlementPlanner(mode).plan(userBalances.values()));
+        return result;
+    }
+
+    // Deshace el efecto de una liquidación sobre las partes que siguen en el grupo
+    private static void excludeSettlement(Map<Long, BalanceDTO.UserBalanceDTO> userBalances,
+                                          Long debtorId, Long creditorId, BigDecimal amount) {
+        BalanceDTO.UserBalanceDTO debtor = userBalances.get(debtorId);
+        if (debtor != null) {
+            debtor.setTotalPaid(debtor.getTotalPaid().subtract(amount));
+            debtor.setNetBalance(debtor.getTotalPaid().subtract(debtor.getTotalOwed()));
+        }
+        BalanceDTO.UserBalanceDTO creditor = userBalances.get(creditorId);
+        if (creditor != null) {
+            creditor.setTotalOwed(creditor.getTotalOwed().add(amount));
+            creditor.setNetBalance(creditor.getTotalPaid().subtract(creditor.getTotalOwed()));
+        }
+    }
+
+    public List<BalanceDTO.DebtDTO> calculateUserDebts(Long userId) {
+        // Una sola consulta agrupada por grupo: sin cargar divisiones ni navegar gasto -> grupo por fila
+        return expenseSplitRepository.findDebtsByUserIdGroupedByGroup(userId);
     }
 
     private BalanceDTO createEmptyBalance(Group group) {
@@ -166,121 +169,36 @@ public class BalanceService {
         return balance;
     }
 
-    private List<BalanceDTO.DebtDTO> calculateSettlements(Map<Long, BalanceDTO.UserBalanceDTO> userBalances) {
-        List<BalanceDTO.DebtDTO> settlements = new ArrayList<>();
-
-        // Separar deudores (balance negativo) y acreedores (balance positivo)
-        List<BalanceDTO.UserBalanceDTO> debtors = userBalances.values().stream()
-                .filter(balance -> balance.getNetBalance().compareTo(BigDecimal.ZERO) < 0)
-                .sorted(Comparator.comparing(BalanceDTO.UserBalanceDTO::getNetBalance))
-                .collect(Collectors.toList());
-
-        List<BalanceDTO.UserBalanceDTO> creditors = userBalances.values().stream()
-                .filter(balance -> balance.getNetBalance().compareTo(BigDecimal.ZERO) > 0)
-                .sorted(Comparator.comparing(BalanceDTO.UserBalanceDTO::getNetBalance).reversed())
-                .collect(Collectors.toList());
-
-        // Crear copias para manipular sin afectar los originales
-        Map<Long, BigDecimal> debtorBalances = debtors.stream()
-                .collect(Collectors.toMap(
-                    BalanceDTO.UserBalanceDTO::getUserId,
-                    balance -> balance.getNetBalance().abs()
-                ));
-
-        Map<Long, BigDecimal> creditorBalances = creditors.stream()
-                .collect(Collectors.toMap(
-                    BalanceDTO.UserBalanceDTO::getUserId,
-                    BalanceDTO.UserBalanceDTO::getNetBalance
-                ));
-
-        // Algoritmo de minimización de transacciones
-        for (BalanceDTO.UserBalanceDTO debtor : debtors) {
-            BigDecimal debtAmount = debtorBalances.get(debtor.getUserId());
-            
-            if (debtAmount.compareTo(BigDecimal.ZERO) <= 0) {
-                continue;
-            }
-
-            for (BalanceDTO.UserBalanceDTO creditor : creditors) {
-                BigDecimal creditAmount = creditorBalances.get(creditor.getUserId());
-                
-                if (creditAmount.compareTo(BigDecimal.ZERO) <= 0) {
-                    continue;
-                }
-
-                // Calcular el monto a transferir
-                BigDecimal transferAmount = debtAmount.min(creditAmount);
-                
-                if (transferAmount.compareTo(BigDecimal.ZERO) > 0) {
-                    // Crear la liquidación
-                    settlements.add(new BalanceDTO.DebtDTO(
-                        debtor.getUserId(),
-                        debtor.getUserName(),
-                        creditor.getUserId(),
-                        creditor.getUserName(),
-                        transferAmount
-                    ));
-
-                    // Actualizar balances restantes
-                    debtAmount = debtAmount.subtract(transferAmount);
-                    creditAmount = creditAmount.subtract(transferAmount);
-                    
-                    debtorBalances.put(debtor.getUserId(), debtAmount);
-                    creditorBalances.put(creditor.getUserId(), creditAmount);
-
-                    if (debtAmount.compareTo(BigDecimal.ZERO) <= 0) {
-                        break;
-                    }
-                }
-            }
-        }
-
-        return settlements;
+    public BigDecimal getUserNetBalanceInGroup(Long userId, Long groupId) {
+        // Pagado, adeudado y liquidaciones en ambos sentidos, agregados en la base de datos con las mismas
+        // exclusiones que calculateGroupBalance
+        return groupRepository.findMemberBalanceTotals(userId, groupId)
+                .map(MemberBalanceTotalsDTO::getNetBalance)
+                .orElse(BigDecimal.ZERO);
     }
 
-    public BigDecimal getUserNetBalanceInGroup(Long userId, Long groupId) {
-        // Lo que el usuario pagó en el grupo
-        BigDecimal totalPaid = expenseRepository.findByGroupId(groupId).stream()
-                .filter(expense -> expense.getPayer().getId().equals(userId))
-                .map(Expense::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    public boolean supportsSettlementMode(String mode) {
+        return mode == null || settlementPlanners.containsKey(mode);
+    }
 
-        // Lo que el usuario debe en el grupo
-        BigDecimal totalOwed = expenseSplitRepository.getTotalAmountOwedByUserIdAndGroupId(userId, groupId);
-        if (totalOwed == null) {
-            totalOwed = BigDecimal.ZERO;
+    private SettlementPlanner getSettlementPlanner(String mode) {
+        String name = mode != null ? mode : settlementPlannerName;
+        SettlementPlanner planner = settlementPlanners.get(name);
+        if (planner == null) {
+            throw new IllegalStateException("Planificador de liquidaciones desconocido: " + name);
         }
-
-        return totalPaid.subtract(totalOwed);
+        return planner;
     }
 
     public List<BalanceDTO> getUserBalances(Long userId) {
-        // Get all groups where user is a member
-        List<Group> userGroups = groupRepository.findGroupsByUserId(userId);
-        
-        return userGroups.stream()
-                .map(group -> {
-                    BalanceDTO groupBalance = calculateGroupBalance(group.getId());
-                    // Find this user's balance in the group
-                    Optional<BalanceDTO.UserBalanceDTO> userBalance = groupBalance.getUserBalances().stream()
-                            .filter(ub -> ub.getUserId().equals(userId))
-                            .findFirst();
-                    
-                    if (userBalance.isPresent()) {
-                        // Create a simplified BalanceDTO with just the user's balance
-                        BalanceDTO result = new BalanceDTO();
-                        result.setGroupId(group.getId());
-                        result.setGroupName(group.getName());
-                        result.setBalance(userBalance.get().getNetBalance().doubleValue());
-                        return result;
-                    } else {
-                        // User has no balance in this group
-                        BalanceDTO result = new BalanceDTO();
-                        result.setGroupId(group.getId());
-                        result.setGroupName(group.getName());
-                        result.setBalance(0.0);
-                        return result;
-                    }
+        // Un solo agregado SQL por grupo del usuario, sin materializar gastos ni divisiones
+        return groupRepository.findMemberBalanceTotalsByUserId(userId).stream()
+                .map(totals -> {
+                    BalanceDTO result = new BalanceDTO();
+                    result.setGroupId(totals.getGroupId());
+                    result.setGroupName(totals.getGroupName());
+                    result.setBalance(totals.getNetBalance().doubleValue());
+                    return result;
                 })
                 .collect(Collectors.toList());
     }
@@ -0,0 +1,473 @@
+package com.equalpay.service;
+
+import com.equalpay.dto.BalanceDTO;
+import com.equalpay.dto.BalanceDeltaDTO;
+import com.equalpay.repository.GroupRepository;
+import com.equalpay.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Streams SSE de balances: por grupo (balance del grupo) y por usuario (balances de sus grupos y stats del dashboard).
+// Los cambios se envían cuando confirma la transacción que los escribió, con un cálculo por grupo y commit
+// sin importar cuántos clientes miran. Los cálculos corren en un único hilo (el último balance enviado por
+// grupo, base de los deltas, no necesita locks) y los grupos de varios commits se juntan en un solo cálculo;
+// los envíos van a una cola acotada por cliente que vacía un
+// pool de hilos, así cada cliente recibe sus eventos en orden y uno lento no demora a los demás
+@Service
+public class BalanceStreamService {
+
+    public static final String BALANCE_EVENT = "balance";
+    public static final String BALANCE_DELTA_EVENT = "balance-delta";
+    public static final String DASHBOARD_EVENT = "dashboard";
+    public static final String GROUP_DELETED_EVENT = "group-deleted";
+
+    @Autowired
+    private BalanceRequestCoalescer balanceRequestCoalescer;
+
+    @Autowired
+    private BalanceCacheInvalidator balanceCacheInvalidator;
+
+    @Autowired
+    private DashboardService dashboardService;
+
+    @Autowired
+    private GroupRepository groupRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Value("${equalpay.streams.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    // Comentario periódico para que proxies no corten la conexión y detectar clientes que se fueron
+    @Value("${equalpay.streams.heartbeat-seconds:25}")
+    private long heartbeatSeconds;
+
+    @Value("${equalpay.streams.send-threads:8}")
+    private int sendThreads;
+
+    // Eventos pendientes por cliente; si no consume a tiempo se lo desconecta y al reconectar recibe una foto nueva
+    @Value("${equalpay.streams.client-queue-capacity:32}")
+    private int clientQueueCapacity;
+
+    private final Map<Long, Set<Client>> groupEmitters = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Client>> userEmitters = new ConcurrentHashMap<>();
+
+    // Último balance enviado por grupo; solo lo usa el hilo de cálculo
+    private final Map<Long, BalanceDTO> lastPushed = new HashMap<>();
+
+    // Grupos confirmados pendientes de envío. Los commits se suman al mismo conjunto y a lo sumo una tarea
+    // de vaciado espera en el hilo de cálculo: una ráfaga de escrituras cuesta un cálculo por grupo
+    private final Set<Long> dirtyGroups = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+
+    private ScheduledExecutorService dispatcher;
+
+    // Cada cliente tiene a lo sumo una tarea de vaciado en la cola del pool
+    private ExecutorService sender;
+
+    @PostConstruct
+    void start() {
+        dispatcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "balance-stream");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sender = Executors.newFixedThreadPool(sendThreads, runnable -> {
+            Thread thread = new Thread(runnable, "balance-stream-send");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dispatcher.scheduleAtFixedRate(this::heartbeat, heartbeatSeconds, heartbeatSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        dispatcher.shutdownNow();
+        sender.shutdownNow();
+        groupEmitters.values().forEach(clients -> clients.forEach(client -> client.emitter.complete()));
+        userEmitters.values().forEach(clients -> clients.forEach(client -> client.emitter.complete()));
+    }
+
+    // Primer evento: el balance completo del grupo; después, un delta por cada commit que lo cambie
+    public SseEmitter subscribeGroup(Long groupId) {
+        return subscribeGroup(groupId, new SseEmitter(timeoutMs));
+    }
+
+    // Primer evento: las stats del dashboard; después, deltas de balance de sus grupos y stats actualizadas
+    public SseEmitter subscribeUser(Long userId) {
+        return subscribeUser(userId, new SseEmitter(timeoutMs));
+    }
+
+    SseEmitter subscribeGroup(Long groupId, SseEmitter emitter) {
+        if (!groupRepository.existsById(groupId)) {
+            throw new IllegalArgumentException("Grupo no encontrado");
+        }
+        // Se registra antes de calcular la foto inicial: un commit posterior llega como delta
+        Client client = register(groupEmitters, groupId, emitter);
+        dispatcher.execute(() -> {
+            try {
+                BalanceDTO snapshot = balanceRequestCoalescer.calculateGroupBalance(groupId, null);
+                // Sin envíos previos pendientes de base, la foto inicial es la base del próximo delta
+                lastPushed.putIfAbsent(groupId, snapshot);
+                client.enqueue(event(BALANCE_EVENT, snapshot));
+            } catch (IllegalArgumentException e) {
+                client.finish();
+            }
+        });
+        return emitter;
+    }
+
+    SseEmitter subscribeUser(Long userId, SseEmitter emitter) {
+        if (!userRepository.existsById(userId)) {
+            throw new IllegalArgumentException("Usuario no encontrado");
+        }
+        Client client = register(userEmitters, userId, emitter);
+        dispatcher.execute(() -> client.enqueue(event(DASHBOARD_EVENT, dashboardService.getDashboardStats(userId))));
+        return emitter;
+    }
+
+    // Dentro de una transacción los grupos se acumulan y se envían una sola vez después del commit;
+    // si la transacción se revierte no se envía nada
+    @EventListener
+    @SuppressWarnings("unchecked")
+    public void onGroupBalanceChanged(GroupBalanceChangedEvent event) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            markDirty(Set.of(event.getGroupId()));
+            return;
+        }
+
+        Set<Long> pending = (Set<Long>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            Set<Long> groupIds = new LinkedHashSet<>();
+            TransactionSynchronizationManager.bindResource(this, groupIds);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    markDirty(groupIds);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(BalanceStreamService.this);
+                }
+            });
+            pending = groupIds;
+        }
+        pending.add(event.getGroupId());
+    }
+
+    private void markDirty(Set<Long> groupIds) {
+        dirtyGroups.addAll(groupIds);
+        if (drainScheduled.compareAndSet(false, true)) {
+            dispatcher.execute(this::drain);
+        }
+    }
+
+    // Se libera la marca antes de tomar los grupos: lo que llegue después programa otro vaciado
+    private void drain() {
+        drainScheduled.set(false);
+        Set<Long> groupIds = new LinkedHashSet<>();
+        for (Long groupId : dirtyGroups) {
+            if (dirtyGroups.remove(groupId)) {
+                groupIds.add(groupId);
+            }
+        }
+        if (!groupIds.isEmpty()) {
+            dispatch(groupIds);
+        }
+    }
+
+    private void dispatch(Set<Long> groupIds) {
+        Set<Long> affectedUsers = new LinkedHashSet<>();
+        for (Long groupId : groupIds) {
+            Set<Client> viewers = groupEmitters.getOrDefault(groupId, Set.of());
+            if (viewers.isEmpty() && !hasSubscribedMember(groupId)) {
+                lastPushed.remove(groupId);
+                continue;
+            }
+
+            // El invalidador también evicta al confirmar, pero sin orden garantizado respecto de este envío
+            balanceCacheInvalidator.evict(groupId);
+            BalanceDTO balance;
+            try {
+                balance = balanceRequestCoalescer.calculateGroupBalance(groupId, null);
+            } catch (IllegalArgumentException e) {
+                groupDeleted(groupId, affectedUsers);
+                continue;
+            }
+
+            Set<Long> members = new LinkedHashSet<>();
+            for (BalanceDTO.UserBalanceDTO userBalance : balance.getUserBalances()) {
+                members.add(userBalance.getUserId());
+            }
+            BalanceDTO previous = lastPushed.get(groupId);
+            if (previous != null) {
+                // Un miembro que salió del grupo también debe enterarse
+                previous.getUserBalances().forEach(userBalance -> members.add(userBalance.getUserId()));
+            }
+            members.retainAll(userEmitters.keySet());
+            if (viewers.isEmpty() && members.isEmpty()) {
+                lastPushed.remove(groupId);
+                continue;
+            }
+
+            BalanceDeltaDTO delta = diff(previous, balance);
+            lastPushed.put(groupId, balance);
+            if (delta == null) {
+                continue;
+            }
+            sendAll(groupEmitters, groupId, BALANCE_DELTA_EVENT, delta);
+            for (Long userId : members) {
+                sendAll(userEmitters, userId, BALANCE_DELTA_EVENT, delta);
+            }
+            affectedUsers.addAll(members);
+        }
+
+        // Stats del dashboard una vez por usuario, aunque el commit haya tocado varios de sus grupos
+        for (Long userId : affectedUsers) {
+            sendAll(userEmitters, userId, DASHBOARD_EVENT, dashboardService.getDashboardStats(userId));
+        }
+    }
+
+    // Sin nadie mirando el grupo, solo se recalcula si algún usuario conectado es o era miembro
+    private boolean hasSubscribedMember(Long groupId) {
+        if (userEmitters.isEmpty()) {
+            return false;
+        }
+        BalanceDTO previous = lastPushed.get(groupId);
+        if (previous != null) {
+            for (BalanceDTO.UserBalanceDTO userBalance : previous.getUserBalances()) {
+                if (userEmitters.containsKey(userBalance.getUserId())) {
+                    return true;
+                }
+            }
+        }
+        return !groupRepository.findMemberIdsIn(groupId, new ArrayList<>(userEmitters.keySet())).isEmpty();
+    }
+
+    private void groupDeleted(Long groupId, Set<Long> affectedUsers) {
+        BalanceDTO previous = lastPushed.remove(groupId);
+        Set<Client> viewers = groupEmitters.remove(groupId);
+        if (viewers != null) {
+            for (Client client : viewers) {
+                client.enqueue(event(GROUP_DELETED_EVENT, groupId));
+                client.finish();
+            }
+        }
+        if (previous != null) {
+            for (BalanceDTO.UserBalanceDTO userBalance : previous.getUserBalances()) {
+                Long userId = userBalance.getUserId();
+                if (userEmitters.containsKey(userId)) {
+                    sendAll(userEmitters, userId, GROUP_DELETED_EVENT, groupId);
+                    affectedUsers.add(userId);
+                }
+            }
+        }
+    }
+
+    // Miembros cuyo balance cambió respecto del último envío (todos si no hubo envío previo); null si nada cambió
+    static BalanceDeltaDTO diff(BalanceDTO previous, BalanceDTO current) {
+        Map<Long, BalanceDTO.UserBalanceDTO> before = new HashMap<>();
+        if (previous != null) {
+            for (BalanceDTO.UserBalanceDTO userBalance : previous.getUserBalances()) {
+                before.put(userBalance.getUserId(), userBalance);
+            }
+        }
+
+        List<BalanceDTO.UserBalanceDTO> changed = new ArrayList<>();
+        for (BalanceDTO.UserBalanceDTO userBalance : current.getUserBalances()) {
+            BalanceDTO.UserBalanceDTO old = before.remove(userBalance.getUserId());
+            if (old == null || !sameBalance(old, userBalance)) {
+                changed.add(userBalance);
+            }
+        }
+        // Los que ya no están en el grupo se informan con balance en cero
+        for (BalanceDTO.UserBalanceDTO removed : before.values()) {
+            changed.add(new BalanceDTO.UserBalanceDTO(removed.getUserId(), removed.getUserName(),
+                    BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO));
+        }
+
+        boolean sameGroup = previous != null
+                && Objects.equals(previous.getGroupName(), current.getGroupName())
+                && previous.getTotalExpenses().compareTo(current.getTotalExpenses()) == 0;
+        if (changed.isEmpty() && sameGroup) {
+            return null;
+        }
+        return new BalanceDeltaDTO(current.getGroupId(), current.getGroupName(), current.getTotalExpenses(),
+                changed, current.getSettlements());
+    }
+
+    private static boolean sameBalance(BalanceDTO.UserBalanceDTO a, BalanceDTO.UserBalanceDTO b) {
+        return Objects.equals(a.getUserName(), b.getUserName())
+                && a.getTotalPaid().compareTo(b.getTotalPaid()) == 0
+                && a.getTotalOwed().compareTo(b.getTotalOwed()) == 0
+                && a.getNetBalance().compareTo(b.getNetBalance()) == 0;
+    }
+
+    // Solo encola: el hilo de cálculo nunca escribe en una conexión
+    private void heartbeat() {
+        for (Map<Long, Set<Client>> registry : List.of(groupEmitters, userEmitters)) {
+            registry.values().forEach(clients ->
+                    clients.forEach(client -> client.enqueue(SseEmitter.event().comment("ping"))));
+        }
+    }
+
+    private Client register(Map<Long, Set<Client>> registry, Long key, SseEmitter emitter) {
+        Client client = new Client(registry, key, emitter);
+        registry.compute(key, (k, clients) -> {
+            Set<Client> set = clients != null ? clients : ConcurrentHashMap.newKeySet();
+            set.add(client);
+            return set;
+        });
+        emitter.onCompletion(client::close);
+        emitter.onTimeout(client::close);
+        emitter.onError(e -> client.close());
+        return client;
+    }
+
+    private void unregister(Map<Long, Set<Client>> registry, Long key, Client client) {
+        registry.computeIfPresent(key, (k, clients) -> {
+            clients.remove(client);
+            return clients.isEmpty() ? null : clients;
+        });
+    }
+
+    private void sendAll(Map<Long, Set<Client>> registry, Long key, String eventName, Object data) {
+        for (Client client : registry.getOrDefault(key, Set.of())) {
+            client.enqueue(event(eventName, data));
+        }
+    }
+
+    private static SseEmitter.SseEventBuilder event(String eventName, Object data) {
+        return SseEmitter.event().name(eventName).data(data);
+    }
+
+    // Conexión de un cliente con su cola de eventos pendientes. Una sola tarea del pool la vacía a la vez,
+    // lo que mantiene el orden de los eventos de ese cliente sin ordenar los de los demás
+    private final class Client {
+
+        private final Map<Long, Set<Client>> registry;
+        private final Long key;
+        private final SseEmitter emitter;
+        private final Deque<SseEmitter.SseEventBuilder> pending = new ArrayDeque<>();
+        private boolean draining;
+        private boolean finishing;
+        private boolean closed;
+
+        private Client(Map<Long, Set<Client>> registry, Long key, SseEmitter emitter) {
+            this.registry = registry;
+            this.key = key;
+            this.emitter = emitter;
+        }
+
+        void enqueue(SseEmitter.SseEventBuilder event) {
+            boolean overflow = false;
+            boolean startDrain = false;
+            synchronized (this) {
+                if (closed || finishing) {
+                    return;
+                }
+                if (pending.size() >= clientQueueCapacity) {
+                    overflow = true;
+                } else {
+                    pending.add(event);
+                    startDrain = !draining;
+                    draining = true;
+                }
+            }
+            if (overflow) {
+                close();
+                emitter.complete();
+            } else if (startDrain) {
+                schedule();
+            }
+        }
+
+        // Cierra la conexión después de enviar lo que ya está en cola
+        void finish() {
+            boolean startDrain;
+            synchronized (this) {
+                if (closed || finishing) {
+                    return;
+                }
+                finishing = true;
+                startDrain = !draining;
+                draining = true;
+            }
+            if (startDrain) {
+                schedule();
+            }
+        }
+
+        void close() {
+            synchronized (this) {
+                closed = true;
+                pending.clear();
+            }
+            unregister(registry, key, this);
+        }
+
+        private void schedule() {
+            try {
+                sender.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                close();
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                SseEmitter.SseEventBuilder event;
+                boolean complete = false;
+                synchronized (this) {
+                    event = closed ? null : pending.poll();
+                    if (event == null) {
+                        draining = false;
+                        complete = finishing && !closed;
+                    }
+                }
+                if (event == null) {
+                    if (complete) {
+                        close();
+                        emitter.complete();
+                    }
+                    return;
+                }
+                // Un cliente desconectado falla al escribir: se da de baja y el contenedor cierra la petición
+                try {
+                    emitter.send(event);
+                } catch (IOException | IllegalStateException e) {
+                    close();
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.equalpay.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+// Conversión entre montos BigDecimal (escala 2) y centavos en long para cálculos sin asignaciones
+final class Cents {
+
+    private Cents() {}
+
+    static long of(BigDecimal amount) {
+        // Camino rápido para montos ya persistidos con escala 2: sin BigInteger intermedio
+        if (amount.scale() == 2) {
+            return amount.scaleByPowerOfTen(2).longValueExact();
+        }
+        return amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    static BigDecimal toBigDecimal(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+}
@@ -2,107 +2,190 @@ package com.equalpay.service;
 
 import com.equalpay.dto.DashboardStatsDTO;
 import com.equalpay.dto.RecentActivityDTO;
+import com.equalpay.dto.SpendHistoryDTO;
 import com.equalpay.entity.Expense;
-import com.equalpay.repository.ExpenseRepository;
-import com.equalpay.repository.GroupRepository;
+import com.equalpay.entity.Settlement;
+import com.equalpay.entity.UserActivity;
+import com.equalpay.repository.GroupMemberBalanceRepository;
+import com.equalpay.repository.UserMonthSpendRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 
 @Service
+@Transactional(readOnly = true)
 public class DashboardService {
 
+    private static final int MAX_ACTIVITY_LIMIT = 100;
+    private static final int MAX_HISTORY_MONTHS = 120;
+
     @Autowired
-    private ExpenseRepository expenseRepository;
+    private UserMonthSpendRepository userMonthSpendRepository;
 
     @Autowired
-    private GroupRepository groupRepository;
+    private GroupMemberBalanceRepository groupMemberBalanceRepository;
 
     @Autowired
-    private BalanceService balanceService;
+    private UserActivityService userActivityService;
 
-    public DashboardStatsDTO getDashboardStats(Long userId) {
-        // Calculate total spent (all expenses where user is a participant)
-        Double totalSpent = calculateTotalSpentByUser(userId);
-        
-        // Get active groups count
-        Integer activeGroups = getActiveGroupsCount(userId);
-        
-        // Calculate net balance (what user owes or is owed)
-        Double netBalance = calculateNetBalance(userId);
-        
-        // Calculate monthly changes
-        DashboardStatsDTO.MonthlyChangeDTO monthlyChange = calculateMonthlyChanges(userId);
-        
-        return new DashboardStatsDTO(totalSpent, activeGroups, netBalance, monthlyChange);
-    }
+    @Autowired
+    @Qualifier("dashboardExecutor")
+    private Executor dashboardExecutor;
 
-    public RecentActivityDTO getRecentActivity(Long userId, int limit) {
-        // Get recent expenses where user is involved (as payer or participant)
-        List<Expense> recentExpenses = expenseRepository.findRecentExpensesByUserWithDetails(userId);
-        
-        List<RecentActivityDTO.RecentExpenseDTO> expenseList = recentExpenses.stream()
-            .limit(limit) // Apply limit in Java
-            .<RecentActivityDTO.RecentExpenseDTO>map(expense -> new RecentActivityDTO.RecentExpenseDTO(
-                expense.getId(),
-                expense.getDescription(),
-                expense.getAmount().doubleValue(),
-                getSplitTypeDisplayName(expense.getSplitType()), // Use split type instead of "General"
-                expense.getGroup().getName(),
-                expense.getPayer().getName(),
-                expense.getCreatedAt()
-            ))
-            .collect(Collectors.toList());
-        
-        // For now, return empty settlements list as we don't have settlement tracking yet
-        List<RecentActivityDTO.RecentSettlementDTO> settlements = List.of();
-        
-        return new RecentActivityDTO(expenseList, settlements);
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Plazo total de las consultas en paralelo de getDashboardStats
+    @Value("${equalpay.dashboard.part-timeout-ms:2000}")
+    private long partTimeoutMs;
+
+    private TransactionTemplate readOnlyTransaction;
+
+    @PostConstruct
+    void initTransactionTemplate() {
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+        // cancel() no interrumpe una consulta en curso: el timeout de la transacción la corta en la base
+        readOnlyTransaction.setTimeout((int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(partTimeoutMs + 999)));
     }
 
-    private Double calculateTotalSpentByUser(Long userId) {
-        List<Expense> expenses = expenseRepository.findByParticipantId(userId);
-        return expenses.stream()
-            .mapToDouble(expense -> {
-                // Calculate user's share of each expense
-                return expense.getAmount().divide(BigDecimal.valueOf(expense.getExpenseSplits().size())).doubleValue();
-            })
-            .sum();
+    // Gasto (rollup) y membresías (ledger) son consultas independientes: se ejecutan en paralelo, cada una
+    // en su propia transacción de solo lectura, y la latencia es la de la más lenta. Una parte que falla o
+    // supera el tiempo límite se informa en cero y la respuesta sale marcada como parcial
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public DashboardStatsDTO getDashboardStats(Long userId) {
+        LocalDate monthStart = UserMonthSpendService.monthOf(LocalDateTime.now());
+        CompletableFuture<Object[]> spentPart = submitPart(() -> userMonthSpendRepository
+                .findSpendTotalsByUserId(userId, monthStart, monthStart.minusMonths(1)).get(0));
+        CompletableFuture<Object[]> membershipPart = submitPart(() -> groupMemberBalanceRepository
+                .findMembershipTotalsByUserId(userId).get(0));
+
+        // Un solo plazo para ambas partes, no uno por parte
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(partTimeoutMs);
+        Object[] spent = awaitPart("spent", spentPart, deadline);
+        Object[] memberships = awaitPart("memberships", membershipPart, deadline);
+        boolean partial = spent == null || memberships == null;
+        if (spent == null) {
+            spent = new Object[] {0L, 0L, 0L};
+        }
+        if (memberships == null) {
+            memberships = new Object[] {0L, 0L};
+        }
+
+        Double totalSpent = centsToDouble(spent[0]);
+        Integer activeGroups = ((Number) memberships[0]).intValue();
+        Double netBalance = ((Number) memberships[1]).doubleValue();
+        DashboardStatsDTO.MonthlyChangeDTO monthlyChange = calculateMonthlyChanges(
+                centsToDouble(spent[1]), centsToDouble(spent[2]));
+
+        DashboardStatsDTO stats = new DashboardStatsDTO(totalSpent, activeGroups, netBalance, monthlyChange);
+        stats.setPartial(partial);
+        return stats;
     }
 
-    private Integer getActiveGroupsCount(Long userId) {
-        return groupRepository.countActiveGroupsByUserId(userId).intValue();
+    // Gasto mensual de los últimos meses (incluido el actual), leído del rollup: O(meses x grupos)
+    public SpendHistoryDTO getSpendHistory(Long userId, int months) {
+        if (months < 1 || months > MAX_HISTORY_MONTHS) {
+            throw new IllegalArgumentException("La cantidad de meses debe estar entre 1 y " + MAX_HISTORY_MONTHS);
+        }
+        LocalDate currentMonth = UserMonthSpendService.monthOf(LocalDateTime.now());
+        LocalDate fromMonth = currentMonth.minusMonths(months - 1);
+        List<Object[]> rows = userMonthSpendRepository.findHistoryByUserId(userId, fromMonth);
+
+        // Filas ordenadas por mes: un solo recorrido rellenando los meses sin gasto
+        List<SpendHistoryDTO.MonthSpendDTO> history = new ArrayList<>(months);
+        int next = 0;
+        for (LocalDate month = fromMonth; !month.isAfter(currentMonth); month = month.plusMonths(1)) {
+            long totalCents = 0;
+            List<SpendHistoryDTO.GroupSpendDTO> groups = new ArrayList<>();
+            while (next < rows.size() && month.equals(rows.get(next)[0])) {
+                Object[] row = rows.get(next++);
+                long cents = (Long) row[3];
+                totalCents += cents;
+                groups.add(new SpendHistoryDTO.GroupSpendDTO((Long) row[1], (String) row[2], Cents.toBigDecimal(cents)));
+            }
+            history.add(new SpendHistoryDTO.MonthSpendDTO(month, Cents.toBigDecimal(totalCents), groups));
+        }
+        return new SpendHistoryDTO(userId, history);
     }
 
-    private Double calculateNetBalance(Long userId) {
-        try {
-            // Get all balances for the user across all groups
-            List<com.equalpay.dto.BalanceDTO> userBalances = balanceService.getUserBalances(userId);
-            
-            // Calculate net balance from all groups
-            double totalBalance = 0.0;
-            for (com.equalpay.dto.BalanceDTO balance : userBalances) {
-                totalBalance += balance.getBalance();
+    // Actividad reciente desde el timeline user_activity: un recorrido del índice (user_id, occurred_at, id)
+    // de limit + 1 filas. before es el nextCursor de la página anterior
+    public RecentActivityDTO getRecentActivity(Long userId, int limit, String before) {
+        if (limit < 1 || limit > MAX_ACTIVITY_LIMIT) {
+            throw new IllegalArgumentException("El límite debe estar entre 1 y " + MAX_ACTIVITY_LIMIT);
+        }
+        ActivityCursor cursor = ActivityCursor.decode(before);
+        List<UserActivity> rows = cursor == null
+                ? userActivityService.findRecent(userId, null, null, limit + 1)
+                : userActivityService.findRecent(userId, cursor.occurredAt, cursor.id, limit + 1);
+
+        List<RecentActivityDTO.RecentExpenseDTO> expenseList = new ArrayList<>();
+        List<RecentActivityDTO.RecentSettlementDTO> settlementList = new ArrayList<>();
+        for (UserActivity row : rows.subList(0, Math.min(limit, rows.size()))) {
+            if (row.getType() == UserActivity.Type.EXPENSE) {
+                expenseList.add(toRecentExpense(row.getExpense()));
+            } else {
+                settlementList.add(toRecentSettlement(row.getSettlement()));
             }
-            return totalBalance;
-        } catch (Exception e) {
-            // If balance calculation fails, return 0
-            return 0.0;
         }
+
+        RecentActivityDTO activity = new RecentActivityDTO(expenseList, settlementList);
+        if (rows.size() > limit) {
+            UserActivity last = rows.get(limit - 1);
+            activity.setNextCursor(new ActivityCursor(last.getOccurredAt(), last.getId()).encode());
+        }
+        return activity;
     }
 
-    private DashboardStatsDTO.MonthlyChangeDTO calculateMonthlyChanges(Long userId) {
-        LocalDateTime oneMonthAgo = LocalDateTime.now().minusMonths(1);
-        
+    private RecentActivityDTO.RecentExpenseDTO toRecentExpense(Expense expense) {
+        return new RecentActivityDTO.RecentExpenseDTO(
+            expense.getId(),
+            expense.getDescription(),
+            expense.getAmount().doubleValue(),
+            getSplitTypeDisplayName(expense.getSplitType()), // Use split type instead of "General"
+            expense.getGroup().getName(),
+            expense.getPayer().getName(),
+            expense.getCreatedAt()
+        );
+    }
+
+    private RecentActivityDTO.RecentSettlementDTO toRecentSettlement(Settlement settlement) {
+        return new RecentActivityDTO.RecentSettlementDTO(
+            settlement.getId(),
+            settlement.getDebtor().getName(),
+            settlement.getCreditor().getName(),
+            settlement.getAmount().doubleValue(),
+            settlement.getSettledAt()
+        );
+    }
+
+    private DashboardStatsDTO.MonthlyChangeDTO calculateMonthlyChanges(Double currentMonthSpent, Double previousMonthSpent) {
         // Calculate changes compared to last month
-        Double currentMonthSpent = calculateTotalSpentByUserSince(userId, oneMonthAgo);
-        Double previousMonthSpent = calculateTotalSpentByUserBetween(userId, oneMonthAgo.minusMonths(1), oneMonthAgo);
-        
         Double spentChange = previousMonthSpent > 0 ? 
             ((currentMonthSpent - previousMonthSpent) / previousMonthSpent) * 100 : 0.0;
         
@@ -113,20 +196,39 @@ public class DashboardService {
         return new DashboardStatsDTO.MonthlyChangeDTO(spentChange, groupsChange, balanceChange);
     }
 
-    private Double calculateTotalSpentByUserSince(Long userId, LocalDateTime since) {
-        List<Expense> expenses = expenseRepository.findExpensesByParticipantIdSince(userId, since);
-        return expenses.stream()
-            .mapToDouble(expense -> expense.getAmount().divide(BigDecimal.valueOf(expense.getExpenseSplits().size())).doubleValue())
-            .sum();
+    // Dentro de una transacción ya abierta (otro servicio, tests) la parte se ejecuta en ella:
+    // en otro hilo no vería los cambios aún no confirmados
+    private <T> CompletableFuture<T> submitPart(Supplier<T> query) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            try {
+                return CompletableFuture.completedFuture(query.get());
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        return CompletableFuture.supplyAsync(() -> readOnlyTransaction.execute(status -> query.get()), dashboardExecutor);
     }
 
-    private Double calculateTotalSpentByUserBetween(Long userId, LocalDateTime start, LocalDateTime end) {
-        List<Expense> expenses = expenseRepository.findExpensesByParticipantIdBetween(userId, start, end);
-        return expenses.stream()
-            .mapToDouble(expense -> expense.getAmount().divide(BigDecimal.valueOf(expense.getExpenseSplits().size())).doubleValue())
-            .sum();
+    // null si la parte falló o no terminó antes del plazo; ambos casos se cuentan en
+    // equalpay.dashboard.stats.partial con la parte como etiqueta
+    private <T> T awaitPart(String part, CompletableFuture<T> future, long deadline) {
+        try {
+            return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+        } catch (ExecutionException e) {
+            // Sin log por petición: una base caída lo imprimiría en cada carga del dashboard
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        meterRegistry.counter("equalpay.dashboard.stats.partial", "part", part).increment();
+        return null;
     }
-    
+
+    private static Double centsToDouble(Object cents) {
+        return Cents.toBigDecimal(((Number) cents).longValue()).doubleValue();
+    }
+
     private String getSplitTypeDisplayName(com.equalpay.entity.Expense.SplitType splitType) {
         switch (splitType) {
             case EQUAL:
@@ -139,4 +241,34 @@ public class DashboardService {
                 return "Split";
         }
     }
-}
\ No newline at end of file
+
+    // Última fila del timeline entregada (occurredAt, id)
+    private static final class ActivityCursor {
+        private final LocalDateTime occurredAt;
+        private final Long id;
+
+        private ActivityCursor(LocalDateTime occurredAt, Long id) {
+            this.occurredAt = occurredAt;
+            this.id = id;
+        }
+
+        private String encode() {
+            String raw = occurredAt + "|" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        private static ActivityCursor decode(String cursor) {
+            if (cursor == null || cursor.isBlank()) {
+                return null;
+            }
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = raw.lastIndexOf('|');
+                return new ActivityCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                        Long.valueOf(raw.substring(separator + 1)));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Cursor de actividad inválido");
+            }
+        }
+    }
+}
@@ -0,0 +1,317 @@
+package com.equalpay.service;
+
+import com.equalpay.dto.ExpenseImportResultDTO;
+import com.equalpay.dto.ExpenseImportRowDTO;
+import com.equalpay.repository.GroupRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Importación masiva de gastos desde CSV o NDJSON: lee el cuerpo línea a línea, valida cada fila contra
+// la membresía del grupo (IDs cacheados por importación) y escribe en bloques, cada uno en su transacción
+@Service
+public class ExpenseImportService {
+
+    public enum Format { CSV, NDJSON }
+
+    // Tope de errores detallados en la respuesta (el contador de fallidas sigue siendo exacto)
+    private static final int MAX_REPORTED_ERRORS = 1000;
+
+    @Autowired
+    private ExpenseService expenseService;
+
+    @Autowired
+    private GroupRepository groupRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${equalpay.expenses.import.chunk-size:500}")
+    private int chunkSize;
+
+    public ExpenseImportResultDTO importExpenses(InputStream body, Format format) throws IOException {
+        long start = System.nanoTime();
+        ImportRun run = new ImportRun();
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            Map<String, Integer> header = null;
+            String line;
+            long lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                if (format == Format.CSV && header == null) {
+                    header = parseHeader(line);
+                    continue;
+                }
+
+                run.result.setRowsRead(run.result.getRowsRead() + 1);
+                try {
+                    RawRow raw = format == Format.CSV ? csvRow(header, line) : jsonRow(line);
+                    run.chunk.add(validate(run, lineNumber, raw));
+                } catch (IllegalArgumentException e) {
+                    run.fail(lineNumber, e.getMessage());
+                }
+
+                if (run.chunk.size() >= chunkSize) {
+                    flush(run);
+                }
+            }
+        }
+        flush(run);
+
+        long elapsedNanos = System.nanoTime() - start;
+        run.result.setElapsedMs(elapsedNanos / 1_000_000);
+        run.result.setRowsPerSecond(elapsedNanos > 0 ? run.result.getRowsRead() * 1e9 / elapsedNanos : 0);
+        return run.result;
+    }
+
+    // Cada bloque es una transacción: si falla la escritura, se informan todas sus filas
+    private void flush(ImportRun run) {
+        if (run.chunk.isEmpty()) {
+            return;
+        }
+        try {
+            int imported = expenseService.importExpenses(run.chunk);
+            run.result.setImported(run.result.getImported() + imported);
+        } catch (RuntimeException e) {
+            for (ExpenseImportRowDTO row : run.chunk) {
+                run.fail(row.getLine(), "Error al guardar el bloque: " + e.getMessage());
+            }
+        }
+        run.chunk = new ArrayList<>(chunkSize);
+    }
+
+    private ExpenseImportRowDTO validate(ImportRun run, long line, RawRow raw) {
+        Long groupId = parseId(raw.groupId, "groupId");
+        Long payerId = parseId(raw.payerId, "payerId");
+
+        String description = raw.description != null ? raw.description.trim() : "";
+        if (description.length() < 3 || description.length() > 200) {
+            throw new IllegalArgumentException("La descripción debe tener entre 3 y 200 caracteres");
+        }
+
+        BigDecimal amount;
+        try {
+            amount = new BigDecimal(required(raw.amount, "amount").trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Monto inválido: " + raw.amount);
+        }
+        if (amount.compareTo(new BigDecimal("0.01")) < 0 || amount.scale() > 2 || amount.precision() - amount.scale() > 8) {
+            throw new IllegalArgumentException("El monto debe ser mayor a 0, con hasta 2 decimales");
+        }
+
+        LocalDateTime expenseDate = null;
+        if (raw.expenseDate != null && !raw.expenseDate.isBlank()) {
+            try {
+                expenseDate = LocalDateTime.parse(raw.expenseDate.trim());
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("Fecha inválida: " + raw.expenseDate);
+            }
+            if (expenseDate.isAfter(LocalDateTime.now())) {
+                throw new IllegalArgumentException("La fecha del gasto no puede ser futura");
+            }
+        }
+
+        Set<Long> members = run.membersOf(groupId);
+        if (members == null) {
+            throw new IllegalArgumentException("Grupo " + groupId + " no encontrado");
+        }
+        if (!members.contains(payerId)) {
+            throw new IllegalArgumentException("El pagador debe ser miembro del grupo");
+        }
+
+        // Sin participantes: todos los miembros del grupo, igual que en el alta individual
+        Set<Long> participantIds = new LinkedHashSet<>(raw.participantIds);
+        if (participantIds.isEmpty()) {
+            participantIds.addAll(members);
+        }
+        List<Long> nonMembers = new ArrayList<>();
+        for (Long participantId : participantIds) {
+            if (!members.contains(participantId)) {
+                nonMembers.add(participantId);
+            }
+        }
+        if (!nonMembers.isEmpty()) {
+            throw new IllegalArgumentException("Todos los participantes deben ser miembros del grupo (no miembros: " + nonMembers + ")");
+        }
+
+        return new ExpenseImportRowDTO(line, groupId, payerId, description, amount, expenseDate,
+                new ArrayList<>(participantIds), blankToNull(raw.notes));
+    }
+
+    private RawRow jsonRow(String line) {
+        JsonNode node;
+        try {
+            node = objectMapper.readTree(line);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("JSON inválido");
+        }
+        if (node == null || !node.isObject()) {
+            throw new IllegalArgumentException("Cada línea debe ser un objeto JSON");
+        }
+
+        RawRow raw = new RawRow();
+        raw.groupId = text(node, "groupId");
+        raw.payerId = text(node, "payerId");
+        raw.description = text(node, "description");
+        raw.amount = text(node, "amount");
+        raw.expenseDate = text(node, "expenseDate");
+        raw.notes = text(node, "notes");
+        // Presente pero no lista es un error de la fila: ignorarlo repartiría el gasto entre todo el grupo
+        JsonNode participants = node.get("participantIds");
+        if (participants != null && !participants.isNull()) {
+            if (!participants.isArray()) {
+                throw new IllegalArgumentException("participantIds debe ser una lista de ids");
+            }
+            for (JsonNode participant : participants) {
+                raw.participantIds.add(parseId(participant.asText(), "participantIds"));
+            }
+        }
+        return raw;
+    }
+
+    private RawRow csvRow(Map<String, Integer> header, String line) {
+        List<String> values = splitCsv(line);
+        RawRow raw = new RawRow();
+        raw.groupId = column(header, values, "groupId");
+        raw.payerId = column(header, values, "payerId");
+        raw.description = column(header, values, "description");
+        raw.amount = column(header, values, "amount");
+        raw.expenseDate = column(header, values, "expenseDate");
+        raw.notes = column(header, values, "notes");
+        String participants = column(header, values, "participantIds");
+        if (participants != null) {
+            for (String id : participants.split(";")) {
+                if (!id.isBlank()) {
+                    raw.participantIds.add(parseId(id, "participantIds"));
+                }
+            }
+        }
+        return raw;
+    }
+
+    private Map<String, Integer> parseHeader(String line) {
+        Map<String, Integer> header = new HashMap<>();
+        List<String> names = splitCsv(line);
+        for (int i = 0; i < names.size(); i++) {
+            header.put(names.get(i).trim(), i);
+        }
+        for (String required : List.of("groupId", "payerId", "description", "amount")) {
+            if (!header.containsKey(required)) {
+                throw new IllegalArgumentException("Falta la columna " + required + " en el encabezado CSV");
+            }
+        }
+        return header;
+    }
+
+    // CSV con comillas dobles opcionales ("" escapa una comilla dentro del campo)
+    private static List<String> splitCsv(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        values.add(current.toString());
+        return values;
+    }
+
+    private static String column(Map<String, Integer> header, List<String> values, String name) {
+        Integer index = header.get(name);
+        return index != null && index < values.size() ? values.get(index) : null;
+    }
+
+    private static String text(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        return value == null || value.isNull() ? null : value.asText();
+    }
+
+    private static Long parseId(String value, String field) {
+        try {
+            return Long.valueOf(required(value, field).trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("ID inválido en " + field + ": " + value);
+        }
+    }
+
+    private static String required(String value, String field) {
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("Falta el campo " + field);
+        }
+        return value;
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value;
+    }
+
+    private static class RawRow {
+        private String groupId;
+        private String payerId;
+        private String description;
+        private String amount;
+        private String expenseDate;
+        private String notes;
+        private final List<Long> participantIds = new ArrayList<>();
+    }
+
+    // Estado de una importación: bloque pendiente, resultado y miembros por grupo ya consultados
+    private class ImportRun {
+        private final ExpenseImportResultDTO result = new ExpenseImportResultDTO();
+        private final Map<Long, Set<Long>> membersByGroup = new HashMap<>();
+        private List<ExpenseImportRowDTO> chunk = new ArrayList<>();
+
+        private Set<Long> membersOf(Long groupId) {
+            if (!membersByGroup.containsKey(groupId)) {
+                membersByGroup.put(groupId, groupRepository.existsById(groupId)
+                        ? groupRepository.findMemberIdsByGroupId(groupId)
+                        : null);
+            }
+            return membersByGroup.get(groupId);
+        }
+
+        private void fail(long line, String message) {
+            result.setFailed(result.getFailed() + 1);
+            if (result.getErrors().size() < MAX_REPORTED_ERRORS) {
+                result.getErrors().add(new ExpenseImportResultDTO.RowErrorDTO(line, message));
+            }
+        }
+    }
+}
@@ -1,6 +1,9 @@
 package com.equalpay.service;
 
 import com.equalpay.dto.ExpenseDTO;
+import com.equalpay.dto.ExpenseImportRowDTO;
+import com.equalpay.dto.ExpensePageDTO;
+import com.equalpay.dto.ExpenseRowDTO;
 import com.equalpay.dto.GroupDTO;
 import com.equalpay.dto.SplitDTO;
 import com.equalpay.dto.UserDTO;
@@ -12,17 +15,36 @@ import com.equalpay.repository.ExpenseRepository;
 import com.equalpay.repository.ExpenseSplitRepository;
 import com.equalpay.repository.GroupRepository;
 import com.equalpay.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @Transactional
@@ -40,6 +62,30 @@ public class ExpenseService {
     @Autowired
     private GroupRepository groupRepository;
 
+    @Autowired
+    private BalanceLedgerService balanceLedgerService;
+
+    @Autowired
+    private UserActivityService userActivityService;
+
+    @Autowired
+    private UserMonthSpendService userMonthSpendService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${equalpay.expenses.page-size.default:50}")
+    private int defaultPageSize;
+
+    @Value("${equalpay.expenses.page-size.max:200}")
+    private int maxPageSize;
+
     public List<ExpenseDTO> getAllExpenses() {
         return expenseRepository.findAllWithDetails()
                 .stream()
@@ -47,37 +93,78 @@ public class ExpenseService {
                 .collect(Collectors.toList());
     }
 
+    // cursor: valor nextCursor de la página anterior (null para la primera)
+    public ExpensePageDTO getExpensesPage(String cursor, Integer size) {
+        int pageSize = resolvePageSize(size);
+        PageRequest limit = PageRequest.of(0, pageSize + 1);
+        ExpenseCursor after = ExpenseCursor.decode(cursor);
+
+        List<Long> ids = after == null
+                ? expenseRepository.findPageIds(limit)
+                : expenseRepository.findPageIdsAfter(after.expenseDate, after.id, limit);
+        return loadPage(ids, pageSize);
+    }
+
+    public ExpensePageDTO getExpensesPageByGroupId(Long groupId, String cursor, Integer size) {
+        int pageSize = resolvePageSize(size);
+        PageRequest limit = PageRequest.of(0, pageSize + 1);
+        ExpenseCursor after = ExpenseCursor.decode(cursor);
+
+        List<Long> ids = after == null
+                ? expenseRepository.findPageIdsByGroupId(groupId, limit)
+                : expenseRepository.findPageIdsByGroupIdAfter(groupId, after.expenseDate, after.id, limit);
+        return loadPage(ids, pageSize);
+    }
+
     public Optional<ExpenseDTO> getExpenseById(Long id) {
         return expenseRepository.findByIdWithDetails(id)
                 .map(this::convertToDTO);
     }
 
+    // Los listados se arman desde proyecciones: sin entidades gestionadas ni dirty checking
+    @Transactional(readOnly = true)
     public List<ExpenseDTO> getExpensesByGroupId(Long groupId) {
-        return expenseRepository.findByGroupId(groupId)
-                .stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return assembleFromRows(expenseRepository.findRowsByGroupId(groupId));
+    }
+
+    @Transactional(readOnly = true)
+    public boolean groupExists(Long groupId) {
+        return groupRepository.existsById(groupId);
+    }
+
+    // Exportación NDJSON (una línea por gasto, en orden de ledger). Los gastos llegan por cursor y se
+    // procesan por bloques: detalles en dos consultas IN, escritura y limpieza del contexto de persistencia,
+    // de modo que la memoria usada no depende del tamaño del grupo
+    @Transactional(readOnly = true)
+    public long exportExpensesByGroupId(Long groupId, OutputStream out) throws IOException {
+        long written = 0;
+        List<Expense> chunk = new ArrayList<>(ExpenseRepository.DETAILS_BATCH_SIZE);
+        try (Stream<Expense> expenses = expenseRepository.streamByGroupId(groupId)) {
+            Iterator<Expense> iterator = expenses.iterator();
+            while (iterator.hasNext()) {
+                chunk.add(iterator.next());
+                if (chunk.size() == ExpenseRepository.DETAILS_BATCH_SIZE) {
+                    written += writeNdjson(chunk, out);
+                }
+            }
+            written += writeNdjson(chunk, out);
+        }
+        return written;
     }
 
+    @Transactional(readOnly = true)
     public List<ExpenseDTO> getExpensesByPayerId(Long payerId) {
-        return expenseRepository.findByPayerId(payerId)
-                .stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return assembleFromRows(expenseRepository.findRowsByPayerId(payerId));
     }
 
+    @Transactional(readOnly = true)
     public List<ExpenseDTO> getExpensesByParticipantId(Long userId) {
-        return expenseRepository.findByParticipantId(userId)
-                .stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return assembleFromRows(expenseRepository.findRowsByParticipantId(userId));
     }
 
+    @Transactional(readOnly = true)
     public List<ExpenseDTO> getExpensesByUserInvolved(Long userId) {
-        return expenseRepository.findByUserInvolved(userId)
-                .stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return assembleFromRows(expenseRepository.findRowsByUserInvolved(userId));
     }
 
     public ExpenseDTO createExpense(ExpenseDTO expenseDTO) {
@@ -90,7 +177,7 @@ public class ExpenseService {
                 .orElseThrow(() -> new IllegalArgumentException("Grupo no encontrado"));
 
         // Validar que el pagador es miembro del grupo
-        if (!group.getMembers().contains(payer)) {
+        if (!groupRepository.isMember(group.getId(), payer.getId())) {
             throw new IllegalArgumentException("El pagador debe ser miembro del grupo");
         }
 
@@ -116,18 +203,7 @@ public class ExpenseService {
         // Agregar participantes (usando IDs de la lista de participants si está disponible)
         Set<User> participants = new HashSet<>();
         if (expenseDTO.getParticipants() != null && !expenseDTO.getParticipants().isEmpty()) {
-            participants = expenseDTO.getParticipants().stream()
-                    .map(userDTO -> userRepository.findById(userDTO.getId())
-                            .orElseThrow(() -> new IllegalArgumentException("Participante con ID " + userDTO.getId() + " no encontrado")))
-                    .collect(Collectors.toSet());
-            
-            // Validar que todos los participantes son miembros del grupo
-            for (User participant : participants) {
-                if (!group.getMembers().contains(participant)) {
-                    throw new IllegalArgumentException("Todos los participantes deben ser miembros del grupo");
-                }
-            }
-            
+            participants = resolveParticipants(group.getId(), expenseDTO.getParticipants());
             expense.setParticipants(participants);
         } else {
             // Si no se especifican participantes, incluir a todos los miembros del grupo
@@ -138,15 +214,69 @@ public class ExpenseService {
         Expense savedExpense = expenseRepository.save(expense);
 
         // Crear las divisiones automáticamente
-        createExpenseSplits(savedExpense);
+        List<ExpenseSplit> splits = createExpenseSplits(savedExpense);
+
+        // Actualizar el ledger de balances del grupo
+        balanceLedgerService.recordExpense(savedExpense, splits);
+        userMonthSpendService.recordExpense(savedExpense, splits);
+        userActivityService.recordExpense(savedExpense);
 
         return convertToDTO(savedExpense);
     }
 
+    // Importación masiva: persiste un bloque de filas ya validadas en una sola transacción.
+    // Grupo, pagador y participantes se referencian por ID sin cargarlos; gastos, participantes y
+    // divisiones se insertan en lotes JDBC y el ledger recibe un único delta por grupo. Al terminar se vacía
+    // el contexto de persistencia: con open-in-view sigue vivo entre bloques y cada flush revisaría todas
+    // las entidades de los bloques anteriores
+    public int importExpenses(List<ExpenseImportRowDTO> rows) {
+        Map<Expense, List<ExpenseSplit>> imported = new LinkedHashMap<>();
+        List<ExpenseSplit> allSplits = new ArrayList<>();
+        for (ExpenseImportRowDTO row : rows) {
+            Expense expense = new Expense();
+            expense.setDescription(row.getDescription());
+            expense.setAmount(row.getAmount());
+            expense.setPayer(userRepository.getReferenceById(row.getPayerId()));
+            expense.setGroup(groupRepository.getReferenceById(row.getGroupId()));
+            expense.setSplitType(Expense.SplitType.EQUAL);
+            expense.setNotes(row.getNotes());
+            if (row.getExpenseDate() != null) {
+                expense.setExpenseDate(row.getExpenseDate());
+            }
+
+            Set<User> participants = new HashSet<>();
+            for (Long participantId : row.getParticipantIds()) {
+                participants.add(userRepository.getReferenceById(participantId));
+            }
+            expense.setParticipants(participants);
+
+            List<ExpenseSplit> splits = buildExpenseSplits(expense);
+            imported.put(expense, splits);
+            allSplits.addAll(splits);
+        }
+
+        expenseRepository.saveAll(imported.keySet());
+        expenseSplitRepository.saveAll(allSplits);
+        balanceLedgerService.recordExpenses(imported);
+        userMonthSpendService.recordExpenses(imported);
+        userActivityService.recordExpenses(imported.keySet());
+        entityManager.flush();
+        entityManager.clear();
+        return imported.size();
+    }
+
     public ExpenseDTO updateExpense(Long id, ExpenseDTO expenseDTO) {
         Expense expense = expenseRepository.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("Gasto no encontrado"));
 
+        // Estado previo para aplicar al ledger solo la diferencia
+        BigDecimal previousAmount = expense.getAmount();
+        LocalDateTime previousDate = expense.getExpenseDate();
+        Map<Long, BigDecimal> previousShares = new HashMap<>();
+        for (ExpenseSplit split : expense.getExpenseSplits()) {
+            previousShares.put(split.getUser().getId(), split.getAmountOwed());
+        }
+
         // Actualizar campos básicos
         expense.setDescription(expenseDTO.getDescription());
         expense.setAmount(expenseDTO.getAmount());
@@ -166,39 +296,57 @@ public class ExpenseService {
         // Note: Pagador (payer) no se actualiza en edición para mantener integridad
         // Si se requiere cambiar el pagador, se debe eliminar y crear un nuevo gasto
 
-        // Actualizar participantes si se especifican
+        // Actualizar participantes si se especifican. Se modifica la colección gestionada en lugar de
+        // reemplazarla: Hibernate solo borra e inserta las filas de expense_participants que cambian
         if (expenseDTO.getParticipants() != null) {
-            Set<User> participants = expenseDTO.getParticipants().stream()
-                    .map(userDTO -> userRepository.findById(userDTO.getId())
-                            .orElseThrow(() -> new IllegalArgumentException("Participante con ID " + userDTO.getId() + " no encontrado")))
-                    .collect(Collectors.toSet());
-            
-            // Validar que todos los participantes son miembros del grupo
+            Set<User> participants = resolveParticipants(expense.getGroup().getId(), expenseDTO.getParticipants());
+            Set<Long> participantIds = new HashSet<>();
             for (User participant : participants) {
-                if (!expense.getGroup().getMembers().contains(participant)) {
-                    throw new IllegalArgumentException("Todos los participantes deben ser miembros del grupo");
+                participantIds.add(participant.getId());
+            }
+            Set<Long> currentIds = new HashSet<>();
+            expense.getParticipants().removeIf(user -> !participantIds.contains(user.getId()));
+            for (User user : expense.getParticipants()) {
+                currentIds.add(user.getId());
+            }
+            for (User participant : participants) {
+                if (!currentIds.contains(participant.getId())) {
+                    expense.getParticipants().add(participant);
                 }
             }
-            
-            expense.setParticipants(participants);
         }
 
         // Guardar cambios
         Expense updatedExpense = expenseRepository.save(expense);
 
-        // Recrear las divisiones con los nuevos datos
-        recreateExpenseSplits(updatedExpense);
+        // Escribir solo las divisiones que cambian (nada si la edición es solo de descripción o notas)
+        int rowsWritten = updateExpenseSplits(updatedExpense);
+        meterRegistry.summary("equalpay.expenses.update.split.rows").record(rowsWritten);
+        if (rowsWritten > 0 || previousAmount.compareTo(updatedExpense.getAmount()) != 0
+                || !previousDate.equals(updatedExpense.getExpenseDate())) {
+            balanceLedgerService.recordExpenseChange(updatedExpense, previousAmount, previousDate, previousShares,
+                    updatedExpense.getExpenseSplits());
+            userMonthSpendService.recordExpenseChange(updatedExpense, previousDate, previousShares,
+                    updatedExpense.getExpenseSplits());
+        }
+        if (expenseDTO.getParticipants() != null) {
+            userActivityService.updateExpense(updatedExpense);
+        }
 
         return convertToDTO(updatedExpense);
     }
 
     public void deleteExpense(Long id) {
-        if (!expenseRepository.existsById(id)) {
-            throw new IllegalArgumentException("Gasto no encontrado");
-        }
-        
+        Expense expense = expenseRepository.findById(id)
+                .orElseThrow(() -> new IllegalArgumentException("Gasto no encontrado"));
+
+        List<ExpenseSplit> splits = expenseSplitRepository.findByExpenseId(id);
+        balanceLedgerService.revertExpense(expense, splits);
+        userMonthSpendService.revertExpense(expense, splits);
+        userActivityService.removeExpense(id);
+
         // Las divisiones se eliminan automáticamente por cascade
-        expenseRepository.deleteById(id);
+        expenseRepository.delete(expense);
     }
 
     public BigDecimal getTotalAmountByGroupId(Long groupId) {
@@ -216,15 +364,167 @@ public class ExpenseService {
         return total != null ? total : BigDecimal.ZERO;
     }
 
+    // Resuelve los participantes con una consulta de usuarios y otra de membresía (sin cargar el grupo
+    // completo) e informa de una sola vez todos los IDs inexistentes o que no son miembros
+    private Set<User> resolveParticipants(Long groupId, List<UserDTO> participantDTOs) {
+        Set<Long> requestedIds = new LinkedHashSet<>();
+        for (UserDTO userDTO : participantDTOs) {
+            requestedIds.add(userDTO.getId());
+        }
+        if (requestedIds.isEmpty()) {
+            return new HashSet<>();
+        }
+
+        Set<User> participants = new HashSet<>(userRepository.findAllById(requestedIds));
+        Set<Long> memberIds = groupRepository.findMemberIdsIn(groupId, requestedIds);
+
+        Set<Long> foundIds = new HashSet<>();
+        for (User participant : participants) {
+            foundIds.add(participant.getId());
+        }
+        List<Long> missing = new ArrayList<>();
+        List<Long> nonMembers = new ArrayList<>();
+        for (Long id : requestedIds) {
+            if (!foundIds.contains(id)) {
+                missing.add(id);
+            } else if (!memberIds.contains(id)) {
+                nonMembers.add(id);
+            }
+        }
+
+        List<String> errors = new ArrayList<>();
+        if (!missing.isEmpty()) {
+            errors.add("Participantes no encontrados: " + missing);
+        }
+        if (!nonMembers.isEmpty()) {
+            errors.add("Todos los participantes deben ser miembros del grupo (no miembros: " + nonMembers + ")");
+        }
+        if (!errors.isEmpty()) {
+            throw new IllegalArgumentException(String.join("; ", errors));
+        }
+        return participants;
+    }
+
+    private int resolvePageSize(Integer size) {
+        if (size == null) {
+            return defaultPageSize;
+        }
+        if (size < 1) {
+            throw new IllegalArgumentException("El tamaño de página debe ser mayor a 0");
+        }
+        return Math.min(size, maxPageSize);
+    }
+
+    // Se piden pageSize + 1 IDs: si sobra uno hay página siguiente
+    private ExpensePageDTO loadPage(List<Long> ids, int pageSize) {
+        boolean hasMore = ids.size() > pageSize;
+        List<Long> pageIds = hasMore ? ids.subList(0, pageSize) : ids;
+        if (pageIds.isEmpty()) {
+            return new ExpensePageDTO(new ArrayList<>(), null, pageSize);
+        }
+
+        // El fetch join no garantiza el orden: reordenar según los IDs de la página
+        Map<Long, Integer> position = new HashMap<>();
+        for (int i = 0; i < pageIds.size(); i++) {
+            position.put(pageIds.get(i), i);
+        }
+        List<Expense> expenses = new ArrayList<>(expenseRepository.findAllWithDetailsByIdIn(pageIds));
+        expenses.sort(Comparator.comparing(expense -> position.get(expense.getId())));
+
+        List<ExpenseDTO> items = expenses.stream()
+                .map(this::convertToDTO)
+                .collect(Collectors.toList());
+
+        String nextCursor = null;
+        if (hasMore) {
+            Expense last = expenses.get(expenses.size() - 1);
+            nextCursor = new ExpenseCursor(last.getExpenseDate(), last.getId()).encode();
+        }
+        return new ExpensePageDTO(items, nextCursor, pageSize);
+    }
+
+    // Posición (expenseDate, id) del último gasto entregado, codificada en base64 url-safe
+    private static final class ExpenseCursor {
+        private final LocalDateTime expenseDate;
+        private final Long id;
+
+        private ExpenseCursor(LocalDateTime expenseDate, Long id) {
+            this.expenseDate = expenseDate;
+            this.id = id;
+        }
+
+        private String encode() {
+            String raw = expenseDate + "|" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        private static ExpenseCursor decode(String cursor) {
+            if (cursor == null || cursor.isBlank()) {
+                return null;
+            }
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = raw.lastIndexOf('|');
+                return new ExpenseCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                        Long.valueOf(raw.substring(separator + 1)));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Cursor de paginación inválido");
+            }
+        }
+    }
+
     // Método privado para crear divisiones automáticamente
-    private void createExpenseSplits(Expense expense) {
-        // Solo limpiar divisiones existentes si ya tiene ID (gasto existente)
-        if (expense.getId() != null) {
-            expenseSplitRepository.deleteByExpenseId(expense.getId());
+    private List<ExpenseSplit> createExpenseSplits(Expense expense) {
+        // Un solo saveAll: con IDs de secuencia los INSERT se envían en lotes al hacer flush
+        return expenseSplitRepository.saveAll(buildExpenseSplits(expense));
+    }
+
+    // Compara las divisiones actuales con las que corresponden al gasto editado y escribe solo
+    // la diferencia: montos cambiados, participantes agregados y quitados. Devuelve las filas escritas
+    private int updateExpenseSplits(Expense expense) {
+        Map<Long, ExpenseSplit> desired = new LinkedHashMap<>();
+        for (ExpenseSplit split : buildExpenseSplits(expense)) {
+            desired.put(split.getUser().getId(), split);
+        }
+
+        int rowsWritten = 0;
+        Iterator<ExpenseSplit> current = expense.getExpenseSplits().iterator();
+        while (current.hasNext()) {
+            ExpenseSplit existing = current.next();
+            ExpenseSplit target = desired.remove(existing.getUser().getId());
+            if (target == null) {
+                current.remove();
+                expenseSplitRepository.delete(existing);
+                rowsWritten++;
+            } else if (!sameAmount(existing.getAmountOwed(), target.getAmountOwed())
+                    || !sameAmount(existing.getPercentage(), target.getPercentage())) {
+                // Entidad gestionada: el UPDATE sale en el flush
+                existing.setAmountOwed(target.getAmountOwed());
+                existing.setPercentage(target.getPercentage());
+                rowsWritten++;
+            }
+        }
+
+        if (!desired.isEmpty()) {
+            expense.getExpenseSplits().addAll(expenseSplitRepository.saveAll(desired.values()));
+            rowsWritten += desired.size();
         }
+        return rowsWritten;
+    }
+
+    // Las columnas tienen escala 2: comparar con esa precisión para no reescribir filas iguales
+    private static boolean sameAmount(BigDecimal stored, BigDecimal computed) {
+        if (stored == null || computed == null) {
+            return stored == computed;
+        }
+        return stored.setScale(2, RoundingMode.HALF_UP).compareTo(computed.setScale(2, RoundingMode.HALF_UP)) == 0;
+    }
 
+    // Divisiones que corresponden al gasto según su tipo, sin persistir
+    private List<ExpenseSplit> buildExpenseSplits(Expense expense) {
+        List<ExpenseSplit> splits = new ArrayList<>();
         if (expense.getParticipants().isEmpty()) {
-            return;
+            return splits;
         }
 
         BigDecimal amountPerParticipant;
@@ -241,7 +541,7 @@ public class ExpenseService {
                 for (User participant : expense.getParticipants()) {
                     ExpenseSplit split = new ExpenseSplit(expense, participant, amountPerParticipant);
                     split.setPercentage(BigDecimal.valueOf(100.0 / expense.getParticipants().size()));
-                    expenseSplitRepository.save(split);
+                    splits.add(split);
                 }
                 break;
                 
@@ -257,15 +557,81 @@ public class ExpenseService {
                 
                 for (User participant : expense.getParticipants()) {
                     ExpenseSplit split = new ExpenseSplit(expense, participant, amountPerParticipant);
-                    expenseSplitRepository.save(split);
+                    splits.add(split);
                 }
                 break;
         }
+        return splits;
     }
 
-    // Método privado para recrear divisiones
-    private void recreateExpenseSplits(Expense expense) {
-        createExpenseSplits(expense);
+    // Arma los ExpenseDTO de un listado: una consulta de gastos y una por colección para todos ellos
+    private List<ExpenseDTO> assembleFromRows(List<ExpenseRowDTO> rows) {
+        if (rows.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        List<Long> ids = rows.stream().map(ExpenseRowDTO::getId).collect(Collectors.toList());
+        Map<Long, List<UserDTO>> participantsByExpense = new HashMap<>();
+        Map<Long, List<SplitDTO>> splitsByExpense = new HashMap<>();
+        for (int from = 0; from < ids.size(); from += ExpenseRepository.DETAILS_BATCH_SIZE) {
+            List<Long> batch = ids.subList(from, Math.min(from + ExpenseRepository.DETAILS_BATCH_SIZE, ids.size()));
+            for (ExpenseRowDTO.ParticipantRowDTO row : expenseRepository.findParticipantRowsByExpenseIdIn(batch)) {
+                participantsByExpense.computeIfAbsent(row.getExpenseId(), id -> new ArrayList<>()).add(row.getUser());
+            }
+            for (ExpenseRowDTO.SplitRowDTO row : expenseRepository.findSplitRowsByExpenseIdIn(batch)) {
+                splitsByExpense.computeIfAbsent(row.getExpenseId(), id -> new ArrayList<>()).add(row.getSplit());
+            }
+        }
+
+        List<ExpenseDTO> result = new ArrayList<>(rows.size());
+        for (ExpenseRowDTO row : rows) {
+            ExpenseDTO dto = new ExpenseDTO();
+            dto.setId(row.getId());
+            dto.setDescription(row.getDescription());
+            dto.setAmount(row.getAmount());
+            dto.setExpenseDate(row.getExpenseDate());
+            dto.setCreatedAt(row.getCreatedAt());
+            dto.setUpdatedAt(row.getUpdatedAt());
+            dto.setSplitType(row.getSplitType());
+            dto.setNotes(row.getNotes());
+
+            if (row.getPayerId() != null) {
+                dto.setPayer(new UserDTO(row.getPayerId(), row.getPayerName(), row.getPayerEmail(),
+                        row.getPayerCreatedAt(), row.getPayerUpdatedAt()));
+            }
+            if (row.getGroupId() != null) {
+                GroupDTO groupDTO = new GroupDTO();
+                groupDTO.setId(row.getGroupId());
+                groupDTO.setName(row.getGroupName());
+                groupDTO.setDescription(row.getGroupDescription());
+                dto.setGroup(groupDTO);
+            }
+
+            dto.setParticipants(participantsByExpense.getOrDefault(row.getId(), new ArrayList<>()));
+            List<SplitDTO> splits = splitsByExpense.get(row.getId());
+            if (splits != null) {
+                dto.setSplits(splits);
+            }
+            result.add(dto);
+        }
+        return result;
+    }
+
+    private int writeNdjson(List<Expense> chunk, OutputStream out) throws IOException {
+        if (chunk.isEmpty()) {
+            return 0;
+        }
+        expenseRepository.fetchDetails(chunk);
+        for (Expense expense : chunk) {
+            out.write(objectMapper.writeValueAsBytes(convertToDTO(expense)));
+            out.write('\n');
+        }
+        out.flush();
+
+        int written = chunk.size();
+        chunk.clear();
+        entityManager.clear();
+        return written;
     }
 
     // Método de conversión a DTO
@@ -0,0 +1,90 @@
+package com.equalpay.service;
+
+import com.equalpay.dto.BalanceDTO;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+// Algoritmo original: recorre deudores x acreedores ordenados, O(D·C)
+@Component("greedy")
+public class GreedySettlementPlanner implements SettlementPlanner {
+
+    @Override
+    public List<BalanceDTO.DebtDTO> plan(Collection<BalanceDTO.UserBalanceDTO> userBalances) {
+        List<BalanceDTO.DebtDTO> settlements = new ArrayList<>();
+
+        // Separar deudores (balance negativo) y acreedores (balance positivo)
+        List<BalanceDTO.UserBalanceDTO> debtors = userBalances.stream()
+                .filter(balance -> balance.getNetBalance().compareTo(BigDecimal.ZERO) < 0)
+                .sorted(Comparator.comparing(BalanceDTO.UserBalanceDTO::getNetBalance))
+                .collect(Collectors.toList());
+
+        List<BalanceDTO.UserBalanceDTO> creditors = userBalances.stream()
+                .filter(balance -> balance.getNetBalance().compareTo(BigDecimal.ZERO) > 0)
+                .sorted(Comparator.comparing(BalanceDTO.UserBalanceDTO::getNetBalance).reversed())
+                .collect(Collectors.toList());
+
+        // Crear copias para manipular sin afectar los originales
+        Map<Long, BigDecimal> debtorBalances = debtors.stream()
+                .collect(Collectors.toMap(
+                    BalanceDTO.UserBalanceDTO::getUserId,
+                    balance -> balance.getNetBalance().abs()
+                ));
+
+        Map<Long, BigDecimal> creditorBalances = creditors.stream()
+                .collect(Collectors.toMap(
+                    BalanceDTO.UserBalanceDTO::getUserId,
+                    BalanceDTO.UserBalanceDTO::getNetBalance
+                ));
+
+        // Algoritmo de minimización de transacciones
+        for (BalanceDTO.UserBalanceDTO debtor : debtors) {
+            BigDecimal debtAmount = debtorBalances.get(debtor.getUserId());
+            
+            if (debtAmount.compareTo(BigDecimal.ZERO) <= 0) {
+                continue;
+            }
+
+            for (BalanceDTO.UserBalanceDTO creditor : creditors) {
+                BigDecimal creditAmount = creditorBalances.get(creditor.getUserId());
+                
+                if (creditAmount.compareTo(BigDecimal.ZERO) <= 0) {
+                    continue;
+                }
+
+                // Calcular el monto a transferir
+                BigDecimal transferAmount = debtAmount.min(creditAmount);
+                
+                if (transferAmount.compareTo(BigDecimal.ZERO) > 0) {
+                    // Crear la liquidación
+                    settlements.add(new BalanceDTO.DebtDTO(
+                        debtor.getUserId(),
+                        debtor.getUserName(),
+                        creditor.getUserId(),
+                        creditor.getUserName(),
+                        transferAmount
+                    ));
+
+                    // Actualizar balances restantes
+                    debtAmount = debtAmount.subtract(transferAmount);
+                    creditAmount = creditAmount.subtract(transferAmount);
+                    
+                    debtorBalances.put(debtor.getUserId(), debtAmount);
+                    creditorBalances.put(creditor.getUserId(), creditAmount);
+
+                    if (debtAmount.compareTo(BigDecimal.ZERO) <= 0) {
+                        break;
+                    }
+                }
+            }
+        }
+
+        return settlements;
+    }
+}
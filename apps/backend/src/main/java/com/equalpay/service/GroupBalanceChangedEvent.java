@@ -0,0 +1,20 @@
+package com.equalpay.service;
+
+// Se publica cuando una escritura cambia (o puede cambiar) el balance de un grupo
+public class GroupBalanceChangedEvent {
+
+    private final Long groupId;
+
+    public GroupBalanceChangedEvent(Long groupId) {
+        this.groupId = groupId;
+    }
+
+    public Long getGroupId() {
+        return groupId;
+    }
+
+    @Override
+    public String toString() {
+        return "GroupBalanceChangedEvent{groupId=" + groupId + '}';
+    }
+}
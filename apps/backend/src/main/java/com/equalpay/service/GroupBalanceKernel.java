@@ -0,0 +1,179 @@
+package com.equalpay.service;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+// Acumulador de balances de un grupo en centavos (long[]) indexados de forma densa por miembro.
+// No crea objetos por gasto, división o liquidación: solo se convierte a BigDecimal al armar el DTO.
+public final class GroupBalanceKernel {
+
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    // Tabla hash de direccionamiento abierto userId -> índice denso
+    private long[] keys;
+    private int[] slots;
+
+    private long[] userIds;
+    private long[] paid;
+    private long[] owed;
+    private long[] expensesPaid;
+    private long expensesTotal;
+    private int size;
+
+    public GroupBalanceKernel(int expectedMembers) {
+        int capacity = Math.max(4, expectedMembers);
+        userIds = new long[capacity];
+        paid = new long[capacity];
+        owed = new long[capacity];
+        expensesPaid = new long[capacity];
+        allocateTable(capacity);
+    }
+
+    // Devuelve el índice del usuario, registrándolo si todavía no existe
+    public int register(long userId) {
+        int index = indexOf(userId);
+        if (index >= 0) {
+            return index;
+        }
+        if (size == userIds.length) {
+            grow();
+        }
+        index = size++;
+        userIds[index] = userId;
+        insert(userId, index);
+        return index;
+    }
+
+    // -1 si el usuario no está registrado (por ejemplo, si ya no es miembro del grupo)
+    public int indexOf(long userId) {
+        int mask = keys.length - 1;
+        for (int slot = mix(userId) & mask; keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+            if (keys[slot] == userId) {
+                return slots[slot];
+            }
+        }
+        return -1;
+    }
+
+    public void addExpense(int payer, long amountCents) {
+        expensesTotal += amountCents;
+        if (payer >= 0) {
+            paid[payer] += amountCents;
+            expensesPaid[payer] += amountCents;
+        }
+    }
+
+    public void addShare(int user, long amountCents) {
+        owed[user] += amountCents;
+    }
+
+    // Mismo criterio que el cálculo original: el deudor "pagó" y al acreedor se le reduce lo que debe
+    public void addSettlement(int debtor, int creditor, long amountCents) {
+        paid[debtor] += amountCents;
+        owed[creditor] -= amountCents;
+    }
+
+    // Suma acumulados ya calculados (por ejemplo, los de un checkpoint)
+    public void addTotals(int user, long paidCents, long owedCents, long expensesPaidCents) {
+        paid[user] += paidCents;
+        owed[user] += owedCents;
+        expensesPaid[user] += expensesPaidCents;
+        expensesTotal += expensesPaidCents;
+    }
+
+    public void reset() {
+        Arrays.fill(keys, EMPTY);
+        Arrays.fill(paid, 0, size, 0);
+        Arrays.fill(owed, 0, size, 0);
+        Arrays.fill(expensesPaid, 0, size, 0);
+        expensesTotal = 0;
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long userId(int index) {
+        return userIds[index];
+    }
+
+    public long paid(int index) {
+        return paid[index];
+    }
+
+    public long owed(int index) {
+        return owed[index];
+    }
+
+    public long net(int index) {
+        return paid[index] - owed[index];
+    }
+
+    public long expensesPaid(int index) {
+        return expensesPaid[index];
+    }
+
+    public long expensesTotal() {
+        return expensesTotal;
+    }
+
+    public BigDecimal paidAmount(int index) {
+        return Cents.toBigDecimal(paid[index]);
+    }
+
+    public BigDecimal owedAmount(int index) {
+        return Cents.toBigDecimal(owed[index]);
+    }
+
+    public BigDecimal netAmount(int index) {
+        return Cents.toBigDecimal(net(index));
+    }
+
+    public BigDecimal expensesPaidAmount(int index) {
+        return Cents.toBigDecimal(expensesPaid[index]);
+    }
+
+    public BigDecimal expensesTotalAmount() {
+        return Cents.toBigDecimal(expensesTotal);
+    }
+
+    public static long toCents(BigDecimal amount) {
+        return Cents.of(amount);
+    }
+
+    private void grow() {
+        int capacity = userIds.length * 2;
+        userIds = Arrays.copyOf(userIds, capacity);
+        paid = Arrays.copyOf(paid, capacity);
+        owed = Arrays.copyOf(owed, capacity);
+        expensesPaid = Arrays.copyOf(expensesPaid, capacity);
+        allocateTable(capacity);
+        for (int i = 0; i < size; i++) {
+            insert(userIds[i], i);
+        }
+    }
+
+    // Factor de carga <= 0.5 para que las búsquedas sean cortas
+    private void allocateTable(int capacity) {
+        int tableSize = Integer.highestOneBit(capacity * 4 - 1);
+        keys = new long[tableSize];
+        slots = new int[tableSize];
+        Arrays.fill(keys, EMPTY);
+    }
+
+    private void insert(long userId, int index) {
+        int mask = keys.length - 1;
+        int slot = mix(userId) & mask;
+        while (keys[slot] != EMPTY) {
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = userId;
+        slots[slot] = index;
+    }
+
+    private static int mix(long value) {
+        long h = value * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
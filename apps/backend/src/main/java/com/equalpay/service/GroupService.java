@@ -4,9 +4,14 @@ import com.equalpay.dto.GroupDTO;
 import com.equalpay.dto.UserDTO;
 import com.equalpay.entity.Group;
 import com.equalpay.entity.User;
+import com.equalpay.repository.GroupBalanceCheckpointRepository;
+import com.equalpay.repository.GroupMemberBalanceRepository;
 import com.equalpay.repository.GroupRepository;
+import com.equalpay.repository.UserActivityRepository;
+import com.equalpay.repository.UserMonthSpendRepository;
 import com.equalpay.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -24,9 +29,24 @@ public class GroupService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private GroupMemberBalanceRepository groupMemberBalanceRepository;
+
+    @Autowired
+    private GroupBalanceCheckpointRepository checkpointRepository;
+
+    @Autowired
+    private UserActivityRepository userActivityRepository;
+
+    @Autowired
+    private UserMonthSpendRepository userMonthSpendRepository;
+
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     public List<GroupDTO> getAllGroups() {
         return groupRepository.findAll()
                 .stream()
@@ -61,6 +81,7 @@ public class GroupService {
         group.setDescription(groupDTO.getDescription());
 
         Group updatedGroup = groupRepository.save(group);
+        eventPublisher.publishEvent(new GroupBalanceChangedEvent(id));
         return convertToDTO(updatedGroup);
     }
 
@@ -68,7 +89,12 @@ public class GroupService {
         if (!groupRepository.existsById(id)) {
             throw new IllegalArgumentException("Grupo no encontrado");
         }
+        groupMemberBalanceRepository.deleteByGroupId(id);
+        checkpointRepository.deleteByGroupId(id);
+        userActivityRepository.deleteByGroupId(id);
+        userMonthSpendRepository.deleteByGroupId(id);
         groupRepository.deleteById(id);
+        eventPublisher.publishEvent(new GroupBalanceChangedEvent(id));
     }
 
     public List<GroupDTO> searchGroupsByName(String name) {
@@ -105,6 +131,7 @@ public class GroupService {
 
         group.addMember(user);
         Group updatedGroup = groupRepository.save(group);
+        eventPublisher.publishEvent(new GroupBalanceChangedEvent(groupId));
         return convertToDTO(updatedGroup);
     }
 
@@ -125,6 +152,7 @@ public class GroupService {
 
         group.removeMember(user);
         Group updatedGroup = groupRepository.save(group);
+        eventPublisher.publishEvent(new GroupBalanceChangedEvent(groupId));
         return convertToDTO(updatedGroup);
     }
 
@@ -0,0 +1,113 @@
+package com.equalpay.service;
+
+import com.equalpay.dto.BalanceDTO;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+// Greedy con dos max-heaps (deudores y acreedores) sobre centavos en long: O(n log n),
+// como máximo n-1 transferencias porque cada paso salda por completo a uno de los dos
+@Component("heap")
+public class HeapSettlementPlanner implements SettlementPlanner {
+
+    @Override
+    public List<BalanceDTO.DebtDTO> plan(Collection<BalanceDTO.UserBalanceDTO> balances) {
+        BalanceDTO.UserBalanceDTO[] members = balances.toArray(new BalanceDTO.UserBalanceDTO[0]);
+        int n = members.length;
+
+        // Monto pendiente de cada miembro (siempre positivo) e índices de cada heap
+        long[] remaining = new long[n];
+        int[] debtors = new int[n];
+        int[] creditors = new int[n];
+        int debtorCount = 0;
+        int creditorCount = 0;
+
+        for (int i = 0; i < n; i++) {
+            long net = Cents.of(members[i].getNetBalance());
+            if (net < 0) {
+                remaining[i] = -net;
+                debtors[debtorCount++] = i;
+            } else if (net > 0) {
+                remaining[i] = net;
+                creditors[creditorCount++] = i;
+            }
+        }
+
+        return plan(members, remaining, debtors, debtorCount, creditors, creditorCount);
+    }
+
+    // Variante sobre un subconjunto ya separado (la usan otros planificadores)
+    List<BalanceDTO.DebtDTO> plan(BalanceDTO.UserBalanceDTO[] members, long[] remaining,
+                                  int[] debtors, int debtorCount, int[] creditors, int creditorCount) {
+        List<BalanceDTO.DebtDTO> settlements = new ArrayList<>(Math.max(0, debtorCount + creditorCount - 1));
+
+        heapify(debtors, debtorCount, remaining);
+        heapify(creditors, creditorCount, remaining);
+
+        while (debtorCount > 0 && creditorCount > 0) {
+            int debtor = debtors[0];
+            int creditor = creditors[0];
+            long transfer = Math.min(remaining[debtor], remaining[creditor]);
+
+            settlements.add(new BalanceDTO.DebtDTO(
+                members[debtor].getUserId(),
+                members[debtor].getUserName(),
+                members[creditor].getUserId(),
+                members[creditor].getUserName(),
+                Cents.toBigDecimal(transfer)
+            ));
+
+            remaining[debtor] -= transfer;
+            remaining[creditor] -= transfer;
+
+            debtorCount = remaining[debtor] == 0
+                    ? pop(debtors, debtorCount, remaining)
+                    : siftDown(debtors, debtorCount, 0, remaining);
+            creditorCount = remaining[creditor] == 0
+                    ? pop(creditors, creditorCount, remaining)
+                    : siftDown(creditors, creditorCount, 0, remaining);
+        }
+
+        return settlements;
+    }
+
+    private static void heapify(int[] heap, int size, long[] keys) {
+        for (int i = size / 2 - 1; i >= 0; i--) {
+            siftDown(heap, size, i, keys);
+        }
+    }
+
+    private static int pop(int[] heap, int size, long[] keys) {
+        size--;
+        heap[0] = heap[size];
+        return siftDown(heap, size, 0, keys);
+    }
+
+    // Devuelve el tamaño para poder encadenarlo con pop
+    private static int siftDown(int[] heap, int size, int pos, long[] keys) {
+        int node = heap[pos];
+        while (true) {
+            int child = 2 * pos + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && before(heap[child + 1], heap[child], keys)) {
+                child++;
+            }
+            if (!before(heap[child], node, keys)) {
+                break;
+            }
+            heap[pos] = heap[child];
+            pos = child;
+        }
+        heap[pos] = node;
+        return size;
+    }
+
+    // Mayor monto primero; a igual monto, el índice menor para que el resultado sea determinista
+    private static boolean before(int a, int b, long[] keys) {
+        return keys[a] > keys[b] || (keys[a] == keys[b] && a < b);
+    }
+}
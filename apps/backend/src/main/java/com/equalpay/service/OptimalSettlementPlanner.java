@@ -0,0 +1,203 @@
+package com.equalpay.service;
+
+import com.equalpay.dto.BalanceDTO;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+// Mínimo número de transferencias: particiona los balances no nulos en la mayor cantidad posible
+// de subconjuntos que suman cero (DP sobre máscaras de bits). Con k subconjuntos hacen falta
+// n - k transferencias. Si el grupo es muy grande o se agota el tiempo, usa el greedy con heaps.
+@Component("optimal")
+public class OptimalSettlementPlanner implements SettlementPlanner {
+
+    // Cada cuántas máscaras se revisa el presupuesto de tiempo
+    private static final int BUDGET_CHECK_INTERVAL = 4096;
+
+    // Con más miembros 1 << n desborda un int
+    private static final int MAX_SUPPORTED_MEMBERS = 30;
+
+    @Autowired
+    private HeapSettlementPlanner heapSettlementPlanner;
+
+    @Value("${equalpay.balances.optimal.max-members:20}")
+    private int maxMembers = 20;
+
+    @Value("${equalpay.balances.optimal.time-budget-ms:50}")
+    private long timeBudgetMillis = 50;
+
+    // Tablas de la DP que se conservan entre cálculos (con 20 miembros, ~9 MB cada par). Si no hay una
+    // libre se reserva otra para ese cálculo y se descarta al terminar si el pool ya está lleno
+    @Value("${equalpay.balances.optimal.table-pool-size:4}")
+    private int tablePoolSize = 4;
+
+    private BlockingQueue<DpTables> tablePool;
+
+    public OptimalSettlementPlanner() {}
+
+    public OptimalSettlementPlanner(HeapSettlementPlanner heapSettlementPlanner, int maxMembers, long timeBudgetMillis) {
+        this.heapSettlementPlanner = heapSettlementPlanner;
+        this.maxMembers = maxMembers;
+        this.timeBudgetMillis = timeBudgetMillis;
+        init();
+    }
+
+    @PostConstruct
+    void init() {
+        if (maxMembers > MAX_SUPPORTED_MEMBERS) {
+            throw new IllegalStateException("equalpay.balances.optimal.max-members no puede superar "
+                    + MAX_SUPPORTED_MEMBERS + " (valor: " + maxMembers + ")");
+        }
+        tablePool = new ArrayBlockingQueue<>(Math.max(1, tablePoolSize));
+    }
+
+    @Override
+    public List<BalanceDTO.DebtDTO> plan(Collection<BalanceDTO.UserBalanceDTO> balances) {
+        // Solo participan los miembros con balance distinto de cero
+        List<BalanceDTO.UserBalanceDTO> pending = new ArrayList<>();
+        List<Long> pendingCents = new ArrayList<>();
+        for (BalanceDTO.UserBalanceDTO balance : balances) {
+            long cents = Cents.of(balance.getNetBalance());
+            if (cents != 0) {
+                pending.add(balance);
+                pendingCents.add(cents);
+            }
+        }
+
+        int n = pending.size();
+        if (n == 0) {
+            return new ArrayList<>();
+        }
+        if (n > maxMembers) {
+            return heapSettlementPlanner.plan(balances);
+        }
+
+        long[] values = new long[n];
+        for (int i = 0; i < n; i++) {
+            values[i] = pendingCents.get(i);
+        }
+
+        int[] order = zeroSumOrder(values, System.nanoTime() + timeBudgetMillis * 1_000_000L);
+        if (order == null) {
+            return heapSettlementPlanner.plan(balances);
+        }
+
+        return planByBlocks(pending.toArray(new BalanceDTO.UserBalanceDTO[0]), values, order);
+    }
+
+    // Devuelve un orden de los miembros en el que cada bloque consecutivo que suma cero es uno
+    // de los subconjuntos de la partición óptima; null si se agotó el presupuesto de tiempo
+    private int[] zeroSumOrder(long[] values, long deadline) {
+        int n = values.length;
+        int full = (1 << n) - 1;
+        DpTables tables = tablePool.poll();
+        if (tables == null || tables.sum.length <= full) {
+            // Antes de reservar tablas se mira si queda presupuesto
+            if (System.nanoTime() > deadline) {
+                return null;
+            }
+            tables = new DpTables(full + 1);
+        }
+        try {
+            return zeroSumOrder(values, deadline, tables.sum, tables.best);
+        } finally {
+            tablePool.offer(tables);
+        }
+    }
+
+    // Las tablas pueden venir de un cálculo anterior: cada entrada se escribe antes de leerse
+    private static int[] zeroSumOrder(long[] values, long deadline, long[] sum, byte[] best) {
+        int n = values.length;
+        int full = (1 << n) - 1;
+        sum[0] = 0;
+        best[0] = 0;
+
+        for (int mask = 1; mask <= full; mask++) {
+            if ((mask & (BUDGET_CHECK_INTERVAL - 1)) == 0 && System.nanoTime() > deadline) {
+                return null;
+            }
+
+            int lowest = Integer.numberOfTrailingZeros(mask);
+            sum[mask] = sum[mask & (mask - 1)] + values[lowest];
+
+            // best[mask] = máximo sobre i en mask de best[mask sin i], +1 si mask suma cero
+            int max = 0;
+            for (int rest = mask; rest != 0; rest &= rest - 1) {
+                int candidate = best[mask & ~(rest & -rest)];
+                if (candidate > max) {
+                    max = candidate;
+                }
+            }
+            best[mask] = (byte) (sum[mask] == 0 ? max + 1 : max);
+        }
+
+        // Reconstruir el camino desde la máscara completa quitando un miembro por paso
+        int[] order = new int[n];
+        int mask = full;
+        for (int position = n - 1; position >= 0; position--) {
+            int target = sum[mask] == 0 ? best[mask] - 1 : best[mask];
+            for (int rest = mask; rest != 0; rest &= rest - 1) {
+                int bit = rest & -rest;
+                if (best[mask & ~bit] == target) {
+                    order[position] = Integer.numberOfTrailingZeros(bit);
+                    mask &= ~bit;
+                    break;
+                }
+            }
+        }
+        return order;
+    }
+
+    private static final class DpTables {
+        private final long[] sum;
+        private final byte[] best;
+
+        private DpTables(int size) {
+            sum = new long[size];
+            best = new byte[size];
+        }
+    }
+
+    // Cada bloque que suma cero se liquida por separado con el greedy de heaps (k-1 transferencias)
+    private List<BalanceDTO.DebtDTO> planByBlocks(BalanceDTO.UserBalanceDTO[] members, long[] values, int[] order) {
+        List<BalanceDTO.DebtDTO> settlements = new ArrayList<>();
+        int n = members.length;
+        long[] remaining = new long[n];
+        int[] debtors = new int[n];
+        int[] creditors = new int[n];
+        int debtorCount = 0;
+        int creditorCount = 0;
+        long blockSum = 0;
+
+        for (int member : order) {
+            long value = values[member];
+            blockSum += value;
+            remaining[member] = Math.abs(value);
+            if (value < 0) {
+                debtors[debtorCount++] = member;
+            } else {
+                creditors[creditorCount++] = member;
+            }
+
+            if (blockSum == 0) {
+                settlements.addAll(heapSettlementPlanner.plan(members, remaining,
+                        debtors, debtorCount, creditors, creditorCount));
+                debtorCount = 0;
+                creditorCount = 0;
+            }
+        }
+        // Si los balances no suman cero el último bloque queda abierto: se liquida lo posible
+        if (debtorCount > 0 || creditorCount > 0) {
+            settlements.addAll(heapSettlementPlanner.plan(members, remaining,
+                    debtors, debtorCount, creditors, creditorCount));
+        }
+        return settlements;
+    }
+}
@@ -0,0 +1,12 @@
+package com.equalpay.service;
+
+import com.equalpay.dto.BalanceDTO;
+
+import java.util.Collection;
+import java.util.List;
+
+// Estrategia para convertir balances netos en transferencias (quién le paga a quién)
+public interface SettlementPlanner {
+
+    List<BalanceDTO.DebtDTO> plan(Collection<BalanceDTO.UserBalanceDTO> balances);
+}
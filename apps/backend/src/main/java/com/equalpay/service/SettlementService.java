@@ -30,6 +30,12 @@ public class SettlementService {
     @Autowired
     private GroupRepository groupRepository;
 
+    @Autowired
+    private BalanceLedgerService balanceLedgerService;
+
+    @Autowired
+    private UserActivityService userActivityService;
+
     public List<SettlementDTO> getSettlementsByGroupId(Long groupId) {
         List<Settlement> settlements = settlementRepository.findByGroupIdOrderBySettledAtDesc(groupId);
         return settlements.stream()
@@ -77,14 +83,18 @@ public class SettlementService {
         }
 
         Settlement savedSettlement = settlementRepository.save(settlement);
+        balanceLedgerService.recordSettlement(savedSettlement);
+        userActivityService.recordSettlement(savedSettlement);
         return convertToDTO(savedSettlement);
     }
 
     public void deleteSettlement(Long id) {
-        if (!settlementRepository.existsById(id)) {
-            throw new IllegalArgumentException("Liquidación no encontrada");
-        }
-        settlementRepository.deleteById(id);
+        Settlement settlement = settlementRepository.findById(id)
+                .orElseThrow(() -> new IllegalArgumentException("Liquidación no encontrada"));
+
+        balanceLedgerService.revertSettlement(settlement);
+        userActivityService.removeSettlement(id);
+        settlementRepository.delete(settlement);
     }
 
     public BigDecimal getTotalSettledByGroup(Long groupId) {
@@ -0,0 +1,158 @@
+package com.equalpay.service;
+
+import com.equalpay.entity.Expense;
+import com.equalpay.entity.Settlement;
+import com.equalpay.entity.User;
+import com.equalpay.entity.UserActivity;
+import com.equalpay.repository.ExpenseRepository;
+import com.equalpay.repository.SettlementRepository;
+import com.equalpay.repository.UserActivityRepository;
+import com.equalpay.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+// Mantiene el timeline user_activity en la misma transacción que escribe gastos y liquidaciones,
+// para que la actividad reciente del dashboard se lea con un solo recorrido de índice por usuario
+@Service
+@Transactional
+public class UserActivityService {
+
+    private static final int BACKFILL_BATCH_SIZE = 500;
+
+    @Autowired
+    private UserActivityRepository userActivityRepository;
+
+    @Autowired
+    private ExpenseRepository expenseRepository;
+
+    @Autowired
+    private SettlementRepository settlementRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // Una fila por usuario involucrado (pagador y participantes); el gasto ya debe estar persistido
+    public void recordExpense(Expense expense) {
+        recordExpenses(List.of(expense));
+    }
+
+    public void recordExpenses(Collection<Expense> expenses) {
+        List<UserActivity> rows = new ArrayList<>();
+        for (Expense expense : expenses) {
+            for (Long userId : involvedUserIds(expense)) {
+                rows.add(UserActivity.forExpense(userRepository.getReferenceById(userId), expense));
+            }
+        }
+        userActivityRepository.saveAll(rows);
+    }
+
+    // Edición: el pagador no cambia, solo se agregan o quitan las filas de los participantes que cambian
+    public void updateExpense(Expense expense) {
+        Set<Long> involved = involvedUserIds(expense);
+        Set<Long> existing = new HashSet<>(userActivityRepository.findUserIdsByExpenseId(expense.getId()));
+
+        Set<Long> removed = new HashSet<>(existing);
+        removed.removeAll(involved);
+        if (!removed.isEmpty()) {
+            userActivityRepository.deleteByExpenseIdAndUserIdIn(expense.getId(), removed);
+        }
+
+        List<UserActivity> added = new ArrayList<>();
+        for (Long userId : involved) {
+            if (!existing.contains(userId)) {
+                added.add(UserActivity.forExpense(userRepository.getReferenceById(userId), expense));
+            }
+        }
+        userActivityRepository.saveAll(added);
+    }
+
+    // Debe llamarse antes de eliminar el gasto (las filas lo referencian)
+    public void removeExpense(Long expenseId) {
+        userActivityRepository.deleteByExpenseId(expenseId);
+    }
+
+    public void recordSettlement(Settlement settlement) {
+        Set<User> involved = new LinkedHashSet<>(List.of(settlement.getDebtor(), settlement.getCreditor()));
+        List<UserActivity> rows = new ArrayList<>(involved.size());
+        for (User user : involved) {
+            rows.add(UserActivity.forSettlement(user, settlement));
+        }
+        userActivityRepository.saveAll(rows);
+    }
+
+    // Debe llamarse antes de eliminar la liquidación
+    public void removeSettlement(Long settlementId) {
+        userActivityRepository.deleteBySettlementId(settlementId);
+    }
+
+    // Actividad reciente del usuario, más nueva primero; con before, solo lo anterior a (occurredAt, id)
+    @Transactional(readOnly = true)
+    public List<UserActivity> findRecent(Long userId, LocalDateTime beforeOccurredAt, Long beforeId, int limit) {
+        PageRequest page = PageRequest.of(0, limit);
+        return beforeOccurredAt == null
+                ? userActivityRepository.findRecentByUserId(userId, page)
+                : userActivityRepository.findRecentByUserIdBefore(userId, beforeOccurredAt, beforeId, page);
+    }
+
+    // Datos previos al timeline: se generan una sola vez, por bloques y limpiando el contexto de persistencia
+    public long backfillIfEmpty() {
+        if (userActivityRepository.count() > 0) {
+            return 0;
+        }
+
+        long written = 0;
+        Long afterId = 0L;
+        List<Expense> expenses;
+        while (!(expenses = expenseRepository.findBatchAfterId(afterId, PageRequest.of(0, BACKFILL_BATCH_SIZE))).isEmpty()) {
+            List<Long> ids = new ArrayList<>(expenses.size());
+            for (Expense expense : expenses) {
+                ids.add(expense.getId());
+            }
+            expenseRepository.fetchParticipantsByIdIn(ids);
+            recordExpenses(expenses);
+            written += expenses.size();
+            afterId = ids.get(ids.size() - 1);
+            entityManager.flush();
+            entityManager.clear();
+        }
+
+        afterId = 0L;
+        List<Settlement> settlements;
+        while (!(settlements = settlementRepository.findBatchAfterId(afterId, PageRequest.of(0, BACKFILL_BATCH_SIZE))).isEmpty()) {
+            for (Settlement settlement : settlements) {
+                recordSettlement(settlement);
+            }
+            written += settlements.size();
+            afterId = settlements.get(settlements.size() - 1).getId();
+            entityManager.flush();
+            entityManager.clear();
+        }
+        return written;
+    }
+
+    private static Set<Long> involvedUserIds(Expense expense) {
+        Set<Long> userIds = new LinkedHashSet<>();
+        userIds.add(expense.getPayer().getId());
+        if (expense.getParticipants() != null) {
+            for (User participant : expense.getParticipants()) {
+                userIds.add(participant.getId());
+            }
+        }
+        return userIds;
+    }
+}
@@ -0,0 +1,177 @@
+package com.equalpay.service;
+
+import com.equalpay.entity.Expense;
+import com.equalpay.entity.ExpenseSplit;
+import com.equalpay.entity.UserMonthSpend;
+import com.equalpay.repository.ExpenseSplitRepository;
+import com.equalpay.repository.GroupRepository;
+import com.equalpay.repository.UserMonthSpendRepository;
+import com.equalpay.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+// Mantiene el rollup user_month_spend (centavos por usuario, grupo y mes del gasto) aplicando deltas
+// en la misma transacción que modifica los gastos, igual que el ledger de balances
+@Service
+@Transactional
+public class UserMonthSpendService {
+
+    private static final int BACKFILL_BATCH_SIZE = 500;
+
+    @Autowired
+    private UserMonthSpendRepository userMonthSpendRepository;
+
+    @Autowired
+    private ExpenseSplitRepository expenseSplitRepository;
+
+    @Autowired
+    private GroupRepository groupRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public void recordExpense(Expense expense, Collection<ExpenseSplit> splits) {
+        applyExpense(expense, splits, false);
+    }
+
+    // Varios gastos nuevos (importación): un único delta por grupo
+    public void recordExpenses(Map<Expense, ? extends Collection<ExpenseSplit>> expenses) {
+        Map<Long, Map<Long, Map<LocalDate, Long>>> deltasByGroup = new TreeMap<>();
+        expenses.forEach((expense, splits) -> accumulate(
+                deltasByGroup.computeIfAbsent(expense.getGroup().getId(), id -> new TreeMap<>()),
+                monthOf(expense.getExpenseDate()), splits, false));
+        deltasByGroup.forEach(this::applyDeltas);
+    }
+
+    // Debe llamarse antes de modificar el gasto, con sus divisiones actuales
+    public void revertExpense(Expense expense, Collection<ExpenseSplit> splits) {
+        applyExpense(expense, splits, true);
+    }
+
+    // Edición de un gasto: resta las partes previas en el mes anterior y suma las actuales en el mes actual.
+    // Si el mes no cambió, solo se escriben las filas de los usuarios con diferencia
+    public void recordExpenseChange(Expense expense, LocalDateTime previousDate,
+                                    Map<Long, BigDecimal> previousShares, Collection<ExpenseSplit> splits) {
+        Map<Long, Map<LocalDate, Long>> deltas = new TreeMap<>();
+        accumulate(deltas, monthOf(expense.getExpenseDate()), splits, false);
+        LocalDate previousMonth = monthOf(previousDate);
+        previousShares.forEach((userId, amount) -> addDelta(deltas, userId, previousMonth, -Cents.of(amount)));
+        applyDeltas(expense.getGroup().getId(), deltas);
+    }
+
+    // Reconstruye el rollup desde las divisiones si está vacío (datos anteriores a la tabla)
+    public long backfillIfEmpty() {
+        if (userMonthSpendRepository.count() > 0) {
+            return 0;
+        }
+
+        long written = 0;
+        List<UserMonthSpend> batch = new ArrayList<>(BACKFILL_BATCH_SIZE);
+        for (Object[] row : expenseSplitRepository.sumAmountOwedByUserGroupAndMonth()) {
+            UserMonthSpend spend = new UserMonthSpend(
+                    userRepository.getReferenceById((Long) row[0]),
+                    groupRepository.getReferenceById((Long) row[1]),
+                    LocalDate.of(((Number) row[2]).intValue(), ((Number) row[3]).intValue(), 1));
+            spend.apply(Cents.of((BigDecimal) row[4]));
+            batch.add(spend);
+            if (batch.size() == BACKFILL_BATCH_SIZE) {
+                written += flushBatch(batch);
+            }
+        }
+        return written + flushBatch(batch);
+    }
+
+    public static LocalDate monthOf(LocalDateTime date) {
+        return date.toLocalDate().withDayOfMonth(1);
+    }
+
+    private long flushBatch(List<UserMonthSpend> batch) {
+        int size = batch.size();
+        userMonthSpendRepository.saveAll(batch);
+        entityManager.flush();
+        entityManager.clear();
+        batch.clear();
+        return size;
+    }
+
+    private void applyExpense(Expense expense, Collection<ExpenseSplit> splits, boolean revert) {
+        Map<Long, Map<LocalDate, Long>> deltas = new TreeMap<>();
+        accumulate(deltas, monthOf(expense.getExpenseDate()), splits, revert);
+        applyDeltas(expense.getGroup().getId(), deltas);
+    }
+
+    private static void accumulate(Map<Long, Map<LocalDate, Long>> deltas, LocalDate month,
+                                   Collection<ExpenseSplit> splits, boolean revert) {
+        for (ExpenseSplit split : splits) {
+            long cents = Cents.of(split.getAmountOwed());
+            addDelta(deltas, split.getUser().getId(), month, revert ? -cents : cents);
+        }
+    }
+
+    private static void addDelta(Map<Long, Map<LocalDate, Long>> deltas, Long userId, LocalDate month, long cents) {
+        deltas.computeIfAbsent(userId, id -> new TreeMap<>()).merge(month, cents, Long::sum);
+    }
+
+    // Deltas por usuario y mes de un grupo; los nulos no se escriben ni se bloquean
+    private void applyDeltas(Long groupId, Map<Long, Map<LocalDate, Long>> deltas) {
+        deltas.values().forEach(byMonth -> byMonth.values().removeIf(cents -> cents == 0));
+        deltas.values().removeIf(Map::isEmpty);
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        TreeSet<LocalDate> months = new TreeSet<>();
+        deltas.values().forEach(byMonth -> months.addAll(byMonth.keySet()));
+        Map<Long, Map<LocalDate, UserMonthSpend>> rows = lockRows(groupId, deltas.keySet(), months);
+        boolean inserted = false;
+        for (Map.Entry<Long, Map<LocalDate, Long>> entry : deltas.entrySet()) {
+            for (LocalDate month : entry.getValue().keySet()) {
+                if (!rows.getOrDefault(entry.getKey(), Map.of()).containsKey(month)) {
+                    // Primer gasto del usuario en el mes: insert-if-absent en lugar de un INSERT que
+                    // chocaría con otra transacción creando la misma fila
+                    userMonthSpendRepository.insertIfAbsent(groupId, entry.getKey(), month);
+                    inserted = true;
+                }
+            }
+        }
+        if (inserted) {
+            rows = lockRows(groupId, deltas.keySet(), months);
+        }
+
+        List<UserMonthSpend> changed = new ArrayList<>();
+        for (Map.Entry<Long, Map<LocalDate, Long>> entry : deltas.entrySet()) {
+            for (Map.Entry<LocalDate, Long> monthDelta : entry.getValue().entrySet()) {
+                UserMonthSpend spend = rows.get(entry.getKey()).get(monthDelta.getKey());
+                spend.apply(monthDelta.getValue());
+                changed.add(spend);
+            }
+        }
+        userMonthSpendRepository.saveAll(changed);
+    }
+
+    private Map<Long, Map<LocalDate, UserMonthSpend>> lockRows(Long groupId, Collection<Long> userIds,
+                                                              Collection<LocalDate> months) {
+        Map<Long, Map<LocalDate, UserMonthSpend>> rows = new HashMap<>();
+        for (UserMonthSpend row : userMonthSpendRepository.findForUpdate(groupId, userIds, months)) {
+            rows.computeIfAbsent(row.getUser().getId(), id -> new HashMap<>()).put(row.getMonth(), row);
+        }
+        return rows;
+    }
+}
@@ -1,9 +1,16 @@
 package com.equalpay.service;
 
 import com.equalpay.dto.UserDTO;
+import com.equalpay.entity.Group;
 import com.equalpay.entity.User;
+import com.equalpay.repository.GroupBalanceCheckpointRepository;
+import com.equalpay.repository.GroupMemberBalanceRepository;
+import com.equalpay.repository.GroupRepository;
+import com.equalpay.repository.UserActivityRepository;
+import com.equalpay.repository.UserMonthSpendRepository;
 import com.equalpay.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -18,6 +25,24 @@ public class UserService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private GroupMemberBalanceRepository groupMemberBalanceRepository;
+
+    @Autowired
+    private GroupBalanceCheckpointRepository checkpointRepository;
+
+    @Autowired
+    private UserActivityRepository userActivityRepository;
+
+    @Autowired
+    private UserMonthSpendRepository userMonthSpendRepository;
+
+    @Autowired
+    private GroupRepository groupRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     public List<UserDTO> getAllUsers() {
         return userRepository.findAll()
                 .stream()
@@ -61,6 +86,8 @@ public class UserService {
         user.setEmail(userDTO.getEmail());
 
         User updatedUser = userRepository.save(user);
+        // El nombre del usuario aparece en los balances cacheados de sus grupos
+        publishGroupBalanceChanges(id);
         return convertToDTO(updatedUser);
     }
 
@@ -68,9 +95,20 @@ public class UserService {
         if (!userRepository.existsById(id)) {
             throw new IllegalArgumentException("Usuario no encontrado");
         }
+        publishGroupBalanceChanges(id);
+        groupMemberBalanceRepository.deleteByUserId(id);
+        checkpointRepository.deleteByUserId(id);
+        userActivityRepository.deleteByUserId(id);
+        userMonthSpendRepository.deleteByUserId(id);
         userRepository.deleteById(id);
     }
 
+    private void publishGroupBalanceChanges(Long userId) {
+        for (Group group : groupRepository.findGroupsByUserId(userId)) {
+            eventPublisher.publishEvent(new GroupBalanceChangedEvent(group.getId()));
+        }
+    }
+
     public List<UserDTO> searchUsersByName(String name) {
         return userRepository.findByNameContainingIgnoreCase(name)
                 .stream()
@@ -0,0 +1,102 @@
+package com.equalpay.benchmark;
+
+import com.equalpay.EqualPayApplication;
+import com.equalpay.dto.ExpenseDTO;
+import com.equalpay.dto.UserDTO;
+import com.equalpay.entity.Expense;
+import com.equalpay.entity.Group;
+import com.equalpay.entity.User;
+import com.equalpay.repository.GroupRepository;
+import com.equalpay.repository.UserRepository;
+import com.equalpay.service.ExpenseService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// Latencia de ExpenseService.createExpense (gasto + participantes + divisiones + ledger) según la
+// cantidad de participantes, contra la base H2 del perfil test. Con IDs de secuencia y
+// hibernate.jdbc.batch_size los INSERT de divisiones viajan en lotes en lugar de uno por fila.
+// Ejecutar igual que SettlementPlannerBenchmark, con la clase com.equalpay.benchmark.ExpenseCreationBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExpenseCreationBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int participants;
+
+    private ConfigurableApplicationContext context;
+    private ExpenseService expenseService;
+    private ExpenseDTO expense;
+
+    @Setup
+    public void setUp() {
+        // Como argumentos de línea de comandos: tienen prioridad sobre application.yml
+        context = new SpringApplicationBuilder(EqualPayApplication.class)
+                .profiles("test")
+                .run("--spring.main.banner-mode=off",
+                        "--spring.jpa.show-sql=false",
+                        "--spring.jpa.properties.hibernate.use_sql_comments=false",
+                        "--logging.level.com.equalpay=WARN",
+                        "--logging.level.org.hibernate.SQL=WARN",
+                        "--logging.level.org.springframework=WARN");
+        expenseService = context.getBean(ExpenseService.class);
+        UserRepository userRepository = context.getBean(UserRepository.class);
+        GroupRepository groupRepository = context.getBean(GroupRepository.class);
+
+        // Usuarios y grupo en una sola transacción para que los miembros sigan gestionados al guardar el grupo
+        List<User> users = new ArrayList<>(participants);
+        Group group = new TransactionTemplate(context.getBean(PlatformTransactionManager.class)).execute(status -> {
+            for (int i = 0; i < participants; i++) {
+                users.add(userRepository.save(new User("Usuario " + i, "usuario" + i + "@email.com")));
+            }
+            Group created = new Group();
+            created.setName("Benchmark");
+            created.setCreator(users.get(0));
+            created.getMembers().addAll(users);
+            return groupRepository.save(created);
+        });
+
+        expense = new ExpenseDTO();
+        expense.setDescription("Gasto compartido");
+        expense.setAmount(new BigDecimal("12345.67"));
+        expense.setPayerId(users.get(0).getId());
+        expense.setGroupId(group.getId());
+        expense.setSplitType(Expense.SplitType.EQUAL);
+        expense.setParticipants(users.stream()
+                .map(user -> new UserDTO(user.getId(), user.getName(), user.getEmail(), null, null))
+                .collect(Collectors.toList()));
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public ExpenseDTO createExpense() {
+        return expenseService.createExpense(expense);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(ExpenseCreationBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,126 @@
+package com.equalpay.benchmark;
+
+import com.equalpay.dto.BalanceDTO;
+import com.equalpay.entity.Expense;
+import com.equalpay.entity.ExpenseSplit;
+import com.equalpay.entity.User;
+import com.equalpay.service.GroupBalanceKernel;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Asignación por llamada (gc.alloc.rate.norm, B/op) del cálculo de balances de un grupo:
+// acumulación original con BigDecimal + HashMap de DTOs vs GroupBalanceKernel en centavos.
+// Ejecutar igual que SettlementPlannerBenchmark, con la clase com.equalpay.benchmark.GroupBalanceBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GroupBalanceBenchmark {
+
+    @Param({"10", "100"})
+    private int members;
+
+    @Param({"1000", "10000"})
+    private int expenses;
+
+    private List<User> users;
+    private List<Expense> history;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        users = new ArrayList<>(members);
+        for (int i = 0; i < members; i++) {
+            User user = new User("Usuario " + i, "usuario" + i + "@email.com");
+            user.setId((long) i + 1);
+            users.add(user);
+        }
+
+        history = new ArrayList<>(expenses);
+        for (int i = 0; i < expenses; i++) {
+            Expense expense = new Expense();
+            expense.setAmount(BigDecimal.valueOf(100 + random.nextInt(100_000), 2));
+            expense.setPayer(users.get(random.nextInt(members)));
+            int participants = 2 + random.nextInt(Math.min(members, 8) - 1);
+            BigDecimal share = expense.getAmount().divide(BigDecimal.valueOf(participants), 2, RoundingMode.HALF_UP);
+            for (int p = 0; p < participants; p++) {
+                User participant = users.get((expense.getPayer().getId().intValue() + p) % members);
+                expense.getExpenseSplits().add(new ExpenseSplit(expense, participant, share));
+            }
+            history.add(expense);
+        }
+    }
+
+    // Algoritmo anterior de BalanceService.calculateGroupBalance (sin liquidaciones)
+    @Benchmark
+    public List<BalanceDTO.UserBalanceDTO> bigDecimalHashMap() {
+        Map<Long, BalanceDTO.UserBalanceDTO> userBalances = new HashMap<>();
+        for (User member : users) {
+            userBalances.put(member.getId(), new BalanceDTO.UserBalanceDTO(
+                member.getId(), member.getName(), BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO));
+        }
+        for (Expense expense : history) {
+            BalanceDTO.UserBalanceDTO payerBalance = userBalances.get(expense.getPayer().getId());
+            if (payerBalance != null) {
+                payerBalance.setTotalPaid(payerBalance.getTotalPaid().add(expense.getAmount()));
+            }
+            for (ExpenseSplit split : expense.getExpenseSplits()) {
+                BalanceDTO.UserBalanceDTO userBalance = userBalances.get(split.getUser().getId());
+                if (userBalance != null) {
+                    userBalance.setTotalOwed(userBalance.getTotalOwed().add(split.getAmountOwed()));
+                }
+            }
+        }
+        for (BalanceDTO.UserBalanceDTO balance : userBalances.values()) {
+            balance.setNetBalance(balance.getTotalPaid().subtract(balance.getTotalOwed()));
+        }
+        return new ArrayList<>(userBalances.values());
+    }
+
+    @Benchmark
+    public List<BalanceDTO.UserBalanceDTO> longCentsKernel() {
+        GroupBalanceKernel kernel = new GroupBalanceKernel(users.size());
+        for (User member : users) {
+            kernel.register(member.getId());
+        }
+        for (Expense expense : history) {
+            kernel.addExpense(kernel.indexOf(expense.getPayer().getId()), GroupBalanceKernel.toCents(expense.getAmount()));
+            for (ExpenseSplit split : expense.getExpenseSplits()) {
+                int user = kernel.indexOf(split.getUser().getId());
+                if (user >= 0) {
+                    kernel.addShare(user, GroupBalanceKernel.toCents(split.getAmountOwed()));
+                }
+            }
+        }
+        List<BalanceDTO.UserBalanceDTO> result = new ArrayList<>(kernel.size());
+        for (int i = 0; i < kernel.size(); i++) {
+            User member = users.get(i);
+            result.add(new BalanceDTO.UserBalanceDTO(member.getId(), member.getName(),
+                    kernel.paidAmount(i), kernel.owedAmount(i), kernel.netAmount(i)));
+        }
+        return result;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(GroupBalanceBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,75 @@
+package com.equalpay.benchmark;
+
+import com.equalpay.dto.BalanceDTO;
+import com.equalpay.service.GreedySettlementPlanner;
+import com.equalpay.service.HeapSettlementPlanner;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Compara el greedy original (deudores x acreedores) con el planificador de heaps.
+// Ejecutar con (JMH necesita el classpath completo para sus forks):
+//   mvn test-compile dependency:build-classpath -Dmdep.includeScope=test -Dmdep.outputFile=target/test-classpath.txt
+//   java -cp target/test-classes:target/classes:$(cat target/test-classpath.txt) com.equalpay.benchmark.SettlementPlannerBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SettlementPlannerBenchmark {
+
+    @Param({"10", "100", "500", "2000"})
+    private int members;
+
+    private final GreedySettlementPlanner greedy = new GreedySettlementPlanner();
+    private final HeapSettlementPlanner heap = new HeapSettlementPlanner();
+
+    private List<BalanceDTO.UserBalanceDTO> balances;
+
+    @Setup
+    public void setUp() {
+        balances = randomBalances(members, new Random(42));
+    }
+
+    @Benchmark
+    public List<BalanceDTO.DebtDTO> greedy() {
+        return greedy.plan(balances);
+    }
+
+    @Benchmark
+    public List<BalanceDTO.DebtDTO> heap() {
+        return heap.plan(balances);
+    }
+
+    // Balances netos aleatorios en centavos que suman cero, como los de un grupo real
+    static List<BalanceDTO.UserBalanceDTO> randomBalances(int count, Random random) {
+        List<BalanceDTO.UserBalanceDTO> result = new ArrayList<>(count);
+        long total = 0;
+        for (int i = 0; i < count; i++) {
+            long cents = i == count - 1 ? -total : random.nextInt(200_000) - 100_000;
+            total += cents;
+            BigDecimal net = BigDecimal.valueOf(cents, 2);
+            result.add(new BalanceDTO.UserBalanceDTO((long) i + 1, "Usuario " + (i + 1),
+                    BigDecimal.ZERO, BigDecimal.ZERO, net));
+        }
+        return result;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(SettlementPlannerBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,189 @@
+package com.equalpay.repository;
+
+import com.equalpay.dto.ExpenseDTO;
+import com.equalpay.dto.UserDTO;
+import com.equalpay.entity.Expense;
+import com.equalpay.entity.Group;
+import com.equalpay.entity.User;
+import com.equalpay.service.ExpenseService;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Hibernate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class ExpenseRepositoryFetchTest {
+
+    private static final int PEOPLE = 30;
+
+    // Consultas ejecutadas y filas leídas a nivel JDBC
+    private static final AtomicInteger queries = new AtomicInteger();
+    private static final AtomicInteger rows = new AtomicInteger();
+
+    // Sentencias de escritura enviadas una a una y lotes JDBC
+    private static final AtomicInteger updates = new AtomicInteger();
+    private static final AtomicInteger batches = new AtomicInteger();
+
+    @Autowired
+    private ExpenseRepository expenseRepository;
+
+    @Autowired
+    private ExpenseService expenseService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private GroupRepository groupRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private Group group;
+    private Long expenseId;
+    private ExpenseDTO dto;
+
+    @BeforeEach
+    void setUp() {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < PEOPLE; i++) {
+            users.add(userRepository.save(new User("Persona " + i, "persona" + i + "@email.com")));
+        }
+
+        group = new Group();
+        group.setName("Casamiento");
+        group.setCreator(users.get(0));
+        group.getMembers().addAll(users);
+        group = groupRepository.save(group);
+
+        dto = new ExpenseDTO();
+        dto.setDescription("Salón");
+        dto.setAmount(new BigDecimal("3000.00"));
+        dto.setPayerId(users.get(0).getId());
+        dto.setGroupId(group.getId());
+        dto.setSplitType(Expense.SplitType.EQUAL);
+        dto.setParticipants(users.stream()
+                .map(user -> new UserDTO(user.getId(), user.getName(), user.getEmail(), null, null))
+                .collect(Collectors.toList()));
+        expenseId = expenseService.createExpense(dto).getId();
+
+        entityManager.flush();
+        entityManager.clear();
+        queries.set(0);
+        rows.set(0);
+        updates.set(0);
+        batches.set(0);
+    }
+
+    @Test
+    void findByIdWithDetails_ShouldNotMultiplyParticipantsBySplits() {
+        Expense expense = expenseRepository.findByIdWithDetails(expenseId).orElseThrow();
+
+        // Gasto + participantes + divisiones: 1 + 30 + 30 filas en lugar de 30 × 30
+        assertEquals(3, queries.get());
+        assertEquals(1 + PEOPLE + PEOPLE, rows.get());
+
+        assertTrue(Hibernate.isInitialized(expense.getParticipants()));
+        assertTrue(Hibernate.isInitialized(expense.getExpenseSplits()));
+        assertEquals(PEOPLE, expense.getParticipants().size());
+        assertEquals(PEOPLE, expense.getExpenseSplits().size());
+        expense.getExpenseSplits().forEach(split -> assertTrue(Hibernate.isInitialized(split.getUser())));
+        assertEquals(3, queries.get());
+    }
+
+    @Test
+    void findByGroupId_ShouldLoadDetailsWithBatchedQueries() {
+        List<Expense> expenses = expenseRepository.findByGroupId(group.getId());
+
+        assertEquals(1, expenses.size());
+        assertEquals(3, queries.get());
+        assertEquals(1 + PEOPLE + PEOPLE, rows.get());
+        assertEquals(PEOPLE, expenses.get(0).getExpenseSplits().size());
+    }
+
+    @Test
+    void createExpense_ShouldBatchSplitInserts() {
+        expenseService.createExpense(dto);
+        entityManager.flush();
+
+        // Divisiones y participantes viajan en lotes, no una sentencia por participante
+        assertTrue(batches.get() > 0);
+        assertTrue(updates.get() < PEOPLE);
+    }
+
+    // Envuelve el DataSource para contar consultas y filas sin dependencias adicionales
+    @TestConfiguration
+    static class JdbcCountingConfig {
+
+        @Bean
+        static BeanPostProcessor countingDataSourcePostProcessor() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource ? wrap(bean, DataSource.class) : bean;
+                }
+            };
+        }
+
+        private static Object wrap(Object target, Class<?> type) {
+            return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, (proxy, method, args) -> {
+                Object result = invoke(target, method, args);
+                if (result instanceof ResultSet && method.getReturnType() == ResultSet.class) {
+                    if (method.getName().equals("executeQuery")) {
+                        queries.incrementAndGet();
+                    }
+                    return wrap(result, ResultSet.class);
+                }
+                if (type == ResultSet.class && method.getName().equals("next") && Boolean.TRUE.equals(result)) {
+                    rows.incrementAndGet();
+                }
+                if (Statement.class.isAssignableFrom(type)) {
+                    if (method.getName().equals("executeUpdate")) {
+                        updates.incrementAndGet();
+                    } else if (method.getName().equals("executeBatch")) {
+                        batches.incrementAndGet();
+                    }
+                }
+                if (result instanceof Connection && method.getReturnType() == Connection.class) {
+                    return wrap(result, Connection.class);
+                }
+                if (result instanceof Statement && Statement.class.isAssignableFrom(method.getReturnType())) {
+                    return wrap(result, method.getReturnType());
+                }
+                return result;
+            });
+        }
+
+        private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
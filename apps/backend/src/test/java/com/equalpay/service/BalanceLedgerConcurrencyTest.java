@@ -0,0 +1,347 @@
+package com.equalpay.service;
+
+import com.equalpay.dto.BalanceDTO;
+import com.equalpay.dto.ExpenseDTO;
+import com.equalpay.dto.UserDTO;
+import com.equalpay.entity.Expense;
+import com.equalpay.entity.Group;
+import com.equalpay.entity.GroupMemberBalance;
+import com.equalpay.entity.User;
+import com.equalpay.repository.GroupBalanceCheckpointRepository;
+import com.equalpay.repository.GroupMemberBalanceRepository;
+import com.equalpay.repository.GroupRepository;
+import com.equalpay.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Escrituras concurrentes en transacciones reales (sin @Transactional: cada hilo confirma la suya).
+// Los datos se borran al terminar para no afectar a las demás clases de test
+@SpringBootTest
+@ActiveProfiles("test")
+class BalanceLedgerConcurrencyTest {
+
+    private static final int WRITERS = 4;
+
+    @Autowired
+    private ExpenseService expenseService;
+
+    @Autowired
+    private BalanceService balanceService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private GroupRepository groupRepository;
+
+    @Autowired
+    private GroupMemberBalanceRepository groupMemberBalanceRepository;
+
+    @Autowired
+    private GroupBalanceCheckpointRepository checkpointRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private TransactionTemplate transaction;
+    private User alice;
+    private User bob;
+    private Group group;
+
+    @BeforeEach
+    void setUp() {
+        transaction = new TransactionTemplate(transactionManager);
+        transaction.executeWithoutResult(status -> {
+            alice = userRepository.save(new User("Alice", "alice.concurrency@email.com"));
+            bob = userRepository.save(new User("Bob", "bob.concurrency@email.com"));
+            Group created = new Group();
+            created.setName("Concurrencia");
+            created.setCreator(alice);
+            created.getMembers().addAll(Arrays.asList(alice, bob));
+            group = groupRepository.save(created);
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        Long groupId = group.getId();
+        jdbcTemplate.update("DELETE FROM user_activity WHERE user_id IN (?, ?)", alice.getId(), bob.getId());
+        jdbcTemplate.update("DELETE FROM user_month_spend WHERE group_id = ?", groupId);
+        jdbcTemplate.update("DELETE FROM group_balance_checkpoints WHERE group_id = ?", groupId);
+        jdbcTemplate.update("DELETE FROM group_member_balance WHERE group_id = ?", groupId);
+        jdbcTemplate.update("DELETE FROM expense_splits WHERE expense_id IN (SELECT id FROM expenses WHERE group_id = ?)", groupId);
+        jdbcTemplate.update("DELETE FROM expense_participants WHERE expense_id IN (SELECT id FROM expenses WHERE group_id = ?)", groupId);
+        jdbcTemplate.update("DELETE FROM expenses WHERE group_id = ?", groupId);
+        jdbcTemplate.update("DELETE FROM group_members WHERE group_id = ?", groupId);
+        jdbcTemplate.update("DELETE FROM groups WHERE id = ?", groupId);
+        jdbcTemplate.update("DELETE FROM users WHERE id IN (?, ?)", alice.getId(), bob.getId());
+    }
+
+    @Test
+    void createExpense_ShouldNotFailWhenFirstWritesOfAGroupRace() throws Exception {
+        // Ningún miembro tiene fila en el ledger: todos los escritores intentan crearla a la vez
+        CyclicBarrier start = new CyclicBarrier(WRITERS);
+        List<Callable<Long>> writers = new ArrayList<>();
+        for (int i = 0; i < WRITERS; i++) {
+            writers.add(() -> {
+                start.await(5, TimeUnit.SECONDS);
+                return transaction.execute(status ->
+                        expenseService.createExpense(expense("Cena", "10.00", alice, alice, bob)).getId());
+            });
+        }
+
+        for (Future<Long> result : runConcurrently(writers)) {
+            assertNotNull(result.get(10, TimeUnit.SECONDS));
+        }
+
+        List<GroupMemberBalance> ledger = groupMemberBalanceRepository.findByGroupId(group.getId());
+        assertEquals(2, ledger.size());
+        for (GroupMemberBalance row : ledger) {
+            BigDecimal expected = row.getUser().getId().equals(alice.getId()) ? new BigDecimal("20.00") : new BigDecimal("-20.00");
+            assertEquals(0, expected.compareTo(row.getNetBalance()));
+        }
+
+        // El rollup mensual también crea sus filas una sola vez: 5.00 por gasto para cada uno
+        List<Long> spent = jdbcTemplate.queryForList(
+                "SELECT spent_cents FROM user_month_spend WHERE group_id = ?", Long.class, group.getId());
+        assertEquals(Arrays.asList(2000L, 2000L), spent);
+    }
+
+    @Test
+    void backdatedExpense_ShouldInvalidateCheckpointSavedConcurrently() throws Exception {
+        LocalDate today = LocalDate.now();
+        LocalDate checkpointDay = today.minusDays(3);
+        transaction.executeWithoutResult(status -> {
+            ExpenseDTO hotel = expense("Hotel", "10.00", alice, alice, bob);
+            hotel.setExpenseDate(today.minusDays(10).atTime(10, 0));
+            expenseService.createExpense(hotel);
+        });
+
+        // El lector guarda el checkpoint del día y no confirma hasta que el escritor ya está esperando
+        CountDownLatch checkpointSaved = new CountDownLatch(1);
+        CountDownLatch releaseReader = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> reader = executor.submit(() -> transaction.executeWithoutResult(status -> {
+                balanceService.calculateGroupBalanceAsOf(group.getId(), checkpointDay.atTime(12, 0), null);
+                checkpointSaved.countDown();
+                try {
+                    releaseReader.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            assertTrue(checkpointSaved.await(10, TimeUnit.SECONDS));
+
+            Future<?> writer = executor.submit(() -> transaction.executeWithoutResult(status -> {
+                ExpenseDTO taxi = expense("Taxi", "10.00", alice, alice, bob);
+                taxi.setExpenseDate(today.minusDays(5).atTime(10, 0));
+                expenseService.createExpense(taxi);
+            }));
+            // Dar tiempo al escritor a llegar al lock antes de liberar al lector
+            Thread.sleep(500);
+            assertFalse(writer.isDone());
+            releaseReader.countDown();
+
+            reader.get(10, TimeUnit.SECONDS);
+            writer.get(10, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // El checkpoint que incluía solo el hotel no sobrevive: el balance del día cuenta el taxi
+        BalanceDTO balance = transaction.execute(status ->
+                balanceService.calculateGroupBalanceAsOf(group.getId(), checkpointDay.atTime(12, 0), null));
+        assertEquals(0, new BigDecimal("20.00").compareTo(balance.getTotalExpenses()));
+    }
+
+    @Test
+    void calculateGroupBalanceAsOf_ShouldNotSaveCheckpointWhenAWriteCommitsDuringReplay() throws Exception {
+        LocalDate today = LocalDate.now();
+        LocalDate checkpointDay = today.minusDays(3);
+        transaction.executeWithoutResult(status -> {
+            ExpenseDTO hotel = expense("Hotel", "10.00", alice, alice, bob);
+            hotel.setExpenseDate(today.minusDays(10).atTime(10, 0));
+            expenseService.createExpense(hotel);
+        });
+
+        // El escritor aplica un gasto con fecha anterior y no confirma hasta que el lector reprodujo
+        CountDownLatch written = new CountDownLatch(1);
+        CountDownLatch releaseWriter = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> writer = executor.submit(() -> transaction.executeWithoutResult(status -> {
+                ExpenseDTO taxi = expense("Taxi", "10.00", alice, alice, bob);
+                taxi.setExpenseDate(today.minusDays(5).atTime(10, 0));
+                expenseService.createExpense(taxi);
+                written.countDown();
+                try {
+                    releaseWriter.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            assertTrue(written.await(10, TimeUnit.SECONDS));
+
+            // El lector reproduce sin ver el taxi y espera el lock para guardar
+            Future<BalanceDTO> reader = executor.submit(() -> transaction.execute(status ->
+                    balanceService.calculateGroupBalanceAsOf(group.getId(), checkpointDay.atTime(12, 0), null)));
+            Thread.sleep(500);
+            assertFalse(reader.isDone());
+            releaseWriter.countDown();
+
+            writer.get(10, TimeUnit.SECONDS);
+            reader.get(10, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // La revisión del ledger cambió entre la reproducción y el lock: el checkpoint no se guardó
+        assertTrue(checkpointRepository.findByGroupIdAndCheckpointDate(group.getId(), checkpointDay).isEmpty());
+        BalanceDTO balance = transaction.execute(status ->
+                balanceService.calculateGroupBalanceAsOf(group.getId(), checkpointDay.atTime(12, 0), null));
+        assertEquals(0, new BigDecimal("20.00").compareTo(balance.getTotalExpenses()));
+        assertEquals(2, checkpointRepository.findByGroupIdAndCheckpointDate(group.getId(), checkpointDay).size());
+    }
+
+    @Test
+    void calculateGroupBalanceAsOf_ShouldNotLockGroup_WhenNothingHappenedBeforeTheDay() throws Exception {
+        transaction.executeWithoutResult(status ->
+                expenseService.createExpense(expense("Hotel", "10.00", alice, alice, bob)));
+
+        // Una escritura en curso tiene el lock compartido del grupo
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> writer = executor.submit(() -> transaction.executeWithoutResult(status -> {
+                groupRepository.findByIdForShare(group.getId());
+                locked.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            assertTrue(locked.await(10, TimeUnit.SECONDS));
+
+            // Un día sin eventos previos: no hay checkpoint que guardar, así que no espera al escritor
+            LocalDate day = LocalDate.now().minusDays(30);
+            long start = System.nanoTime();
+            BalanceDTO balance = transaction.execute(status ->
+                    balanceService.calculateGroupBalanceAsOf(group.getId(), day.atTime(12, 0), null));
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+            assertEquals(0, BigDecimal.ZERO.compareTo(balance.getTotalExpenses()));
+            assertTrue(checkpointRepository.findByGroupIdAndCheckpointDate(group.getId(), day).isEmpty());
+
+            release.countDown();
+            writer.get(10, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void calculateGroupBalanceAsOf_ShouldNotFailWhenFirstReadersOfADayRace() throws Exception {
+        LocalDate day = LocalDate.now().minusDays(2);
+        transaction.executeWithoutResult(status -> {
+            ExpenseDTO hotel = expense("Hotel", "10.00", alice, alice, bob);
+            hotel.setExpenseDate(day.minusDays(5).atTime(10, 0));
+            expenseService.createExpense(hotel);
+        });
+
+        // Todos los lectores encuentran el día sin checkpoint e intentan guardarlo a la vez
+        CyclicBarrier start = new CyclicBarrier(WRITERS);
+        List<Callable<BalanceDTO>> readers = new ArrayList<>();
+        for (int i = 0; i < WRITERS; i++) {
+            readers.add(() -> {
+                start.await(5, TimeUnit.SECONDS);
+                return transaction.execute(status ->
+                        balanceService.calculateGroupBalanceAsOf(group.getId(), day.atTime(12, 0), null));
+            });
+        }
+
+        for (Future<BalanceDTO> result : runConcurrently(readers)) {
+            assertEquals(0, new BigDecimal("10.00").compareTo(result.get(10, TimeUnit.SECONDS).getTotalExpenses()));
+        }
+        assertEquals(2, checkpointRepository.findByGroupIdAndCheckpointDate(group.getId(), day).size());
+    }
+
+    @Test
+    void calculateGroupBalance_ShouldNotCacheSnapshotReadBeforeAConcurrentCommit() {
+        transaction.executeWithoutResult(status ->
+                expenseService.createExpense(expense("Hotel", "10.00", alice, alice, bob)));
+
+        // Lector: el cache no tiene el grupo y lee el balance antes de que confirme la escritura
+        Cache cache = cacheManager.getCache(BalanceCacheInvalidator.GROUP_BALANCES);
+        Long groupId = group.getId();
+        cache.evict(groupId);
+        assertNull(cache.get(groupId));
+        BalanceDTO stale = transaction.execute(status -> balanceService.calculateGroupBalance(groupId, "heap"));
+
+        // Escritor: confirma e invalida (al publicar el evento y después del commit)
+        transaction.executeWithoutResult(status ->
+                expenseService.createExpense(expense("Taxi", "10.00", alice, alice, bob)));
+
+        // El put tardío del lector se descarta: la siguiente lectura calcula con la escritura incluida
+        cache.put(groupId, stale);
+        assertNull(cache.get(groupId));
+        BalanceDTO current = transaction.execute(status -> balanceService.calculateGroupBalance(groupId));
+        assertEquals(0, new BigDecimal("20.00").compareTo(current.getTotalExpenses()));
+        assertSame(current, transaction.execute(status -> balanceService.calculateGroupBalance(groupId)));
+    }
+
+    private <T> List<Future<T>> runConcurrently(List<Callable<T>> tasks) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(tasks.size());
+        try {
+            List<Future<T>> results = executor.invokeAll(tasks, 30, TimeUnit.SECONDS);
+            return results;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private ExpenseDTO expense(String description, String amount, User payer, User... participants) {
+        ExpenseDTO dto = new ExpenseDTO();
+        dto.setDescription(description);
+        dto.setAmount(new BigDecimal(amount));
+        dto.setPayerId(payer.getId());
+        dto.setGroupId(group.getId());
+        dto.setSplitType(Expense.SplitType.EQUAL);
+        dto.setParticipants(Arrays.stream(participants)
+                .map(user -> new UserDTO(user.getId(), user.getName(), user.getEmail(), null, null))
+                .collect(Collectors.toList()));
+        return dto;
+    }
+}
@@ -0,0 +1,127 @@
+package com.equalpay.service;
+
+import com.equalpay.dto.BalanceDTO;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BalanceRequestCoalescerTest {
+
+    @Mock
+    private BalanceService balanceService;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private BalanceRequestCoalescer coalescer;
+
+    @BeforeEach
+    void setUp() {
+        coalescer.registerMetrics();
+    }
+
+    @Test
+    void calculateGroupBalance_ShouldShareInFlightComputation() throws Exception {
+        int requests = 8;
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        BalanceDTO balance = new BalanceDTO(1L, "Viaje", BigDecimal.TEN);
+        when(balanceService.calculateGroupBalance(1L, null)).thenAnswer(invocation -> {
+            leaderStarted.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return balance;
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(requests);
+        try {
+            List<Future<BalanceDTO>> results = new ArrayList<>();
+            results.add(executor.submit(() -> coalescer.calculateGroupBalance(1L, null)));
+            assertTrue(leaderStarted.await(5, TimeUnit.SECONDS));
+            for (int i = 1; i < requests; i++) {
+                results.add(executor.submit(() -> coalescer.calculateGroupBalance(1L, null)));
+            }
+
+            // Esperar a que todas las peticiones estén esperando el cálculo del líder
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (meterRegistry.counter("equalpay.balances.coalesced").count() < requests - 1
+                    && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            for (Future<BalanceDTO> result : results) {
+                assertSame(balance, result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        verify(balanceService, times(1)).calculateGroupBalance(1L, null);
+        assertEquals(1.0, meterRegistry.counter("equalpay.balances.computations").count());
+        assertEquals(requests - 1.0, meterRegistry.counter("equalpay.balances.coalesced").count());
+    }
+
+    @Test
+    void calculateGroupBalance_ShouldReleaseWaitersWhenLeaderFailsWithError() throws Exception {
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(balanceService.calculateGroupBalance(1L, null)).thenAnswer(invocation -> {
+            leaderStarted.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            throw new StackOverflowError();
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<BalanceDTO> leader = executor.submit(() -> coalescer.calculateGroupBalance(1L, null));
+            assertTrue(leaderStarted.await(5, TimeUnit.SECONDS));
+            Future<BalanceDTO> waiter = executor.submit(() -> coalescer.calculateGroupBalance(1L, null));
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (meterRegistry.counter("equalpay.balances.coalesced").count() < 1 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            // Ambos reciben el Error en lugar de quedar bloqueados
+            ExecutionException leaderError = assertThrows(ExecutionException.class, () -> leader.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(StackOverflowError.class, leaderError.getCause());
+            ExecutionException waiterError = assertThrows(ExecutionException.class, () -> waiter.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(StackOverflowError.class, waiterError.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void calculateGroupBalance_ShouldNotReuseFinishedComputation() {
+        when(balanceService.calculateGroupBalance(1L, null))
+                .thenThrow(new IllegalArgumentException("Grupo no encontrado"))
+                .thenReturn(new BalanceDTO(1L, "Viaje", BigDecimal.ZERO));
+
+        assertThrows(IllegalArgumentException.class, () -> coalescer.calculateGroupBalance(1L, null));
+        assertNotNull(coalescer.calculateGroupBalance(1L, null));
+        verify(balanceService, times(2)).calculateGroupBalance(1L, null);
+    }
+}
@@ -0,0 +1,505 @@
+package com.equalpay.service;
+
+import com.equalpay.dto.BalanceDTO;
+import com.equalpay.dto.BalanceSeriesDTO;
+import com.equalpay.dto.ExpenseDTO;
+import com.equalpay.dto.SettlementDTO;
+import com.equalpay.dto.UserDTO;
+import com.equalpay.entity.Expense;
+import com.equalpay.entity.Group;
+import com.equalpay.entity.User;
+import com.equalpay.repository.ExpenseSplitRepository;
+import com.equalpay.repository.GroupBalanceCheckpointRepository;
+import com.equalpay.repository.GroupRepository;
+import com.equalpay.repository.UserRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class BalanceServiceTest {
+
+    @Autowired
+    private BalanceService balanceService;
+
+    @Autowired
+    private ExpenseService expenseService;
+
+    @Autowired
+    private SettlementService settlementService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private GroupRepository groupRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private BalanceLedgerService balanceLedgerService;
+
+    @Autowired
+    private GroupService groupService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ExpenseSplitRepository expenseSplitRepository;
+
+    @Autowired
+    private GroupBalanceCheckpointRepository checkpointRepository;
+
+    @Autowired
+    private BalanceSeriesService balanceSeriesService;
+
+    @Autowired
+    private DashboardService dashboardService;
+
+    private User alice;
+    private User bob;
+    private User charlie;
+    private Group group;
+
+    @BeforeEach
+    void setUp() {
+        alice = userRepository.save(new User("Alice", "alice@email.com"));
+        bob = userRepository.save(new User("Bob", "bob@email.com"));
+        charlie = userRepository.save(new User("Charlie", "charlie@email.com"));
+
+        group = new Group();
+        group.setName("Viaje");
+        group.setCreator(alice);
+        group.getMembers().addAll(Arrays.asList(alice, bob, charlie));
+        group = groupRepository.save(group);
+    }
+
+    @Test
+    void calculateGroupBalance_ShouldReturnEmptyBalance_WhenNoExpenses() {
+        BalanceDTO balance = balanceService.calculateGroupBalance(group.getId());
+
+        assertEquals(0, BigDecimal.ZERO.compareTo(balance.getTotalExpenses()));
+        assertEquals(3, balance.getUserBalances().size());
+        assertTrue(balance.getSettlements().isEmpty());
+    }
+
+    @Test
+    void calculateGroupBalance_ShouldReflectExpenseWrites() {
+        ExpenseDTO created = expenseService.createExpense(expense("Hotel", "90.00", alice, alice, bob, charlie));
+        endRequest();
+
+        BalanceDTO balance = balanceService.calculateGroupBalance(group.getId());
+        Map<Long, BalanceDTO.UserBalanceDTO> byUser = byUser(balance);
+
+        assertEquals(0, new BigDecimal("90.00").compareTo(balance.getTotalExpenses()));
+        assertEquals(0, new BigDecimal("60.00").compareTo(byUser.get(alice.getId()).getNetBalance()));
+        assertEquals(0, new BigDecimal("-30.00").compareTo(byUser.get(bob.getId()).getNetBalance()));
+        assertEquals(2, balance.getSettlements().size());
+
+        // Editar el monto ajusta el ledger con deltas
+        ExpenseDTO update = expense("Hotel", "60.00", alice, alice, bob);
+        expenseService.updateExpense(created.getId(), update);
+        endRequest();
+
+        byUser = byUser(balanceService.calculateGroupBalance(group.getId()));
+        assertEquals(0, new BigDecimal("30.00").compareTo(byUser.get(alice.getId()).getNetBalance()));
+        assertEquals(0, new BigDecimal("-30.00").compareTo(byUser.get(bob.getId()).getNetBalance()));
+        assertEquals(0, BigDecimal.ZERO.compareTo(byUser.get(charlie.getId()).getNetBalance()));
+
+        // Eliminar el gasto deja el grupo sin balances
+        expenseService.deleteExpense(created.getId());
+        endRequest();
+
+        BalanceDTO empty = balanceService.calculateGroupBalance(group.getId());
+        assertEquals(0, BigDecimal.ZERO.compareTo(empty.getTotalExpenses()));
+    }
+
+    @Test
+    void calculateGroupBalance_ShouldReflectSettlements() {
+        expenseService.createExpense(expense("Cena", "100.00", alice, alice, bob));
+        endRequest();
+
+        SettlementDTO settlementDTO = new SettlementDTO();
+        settlementDTO.setGroupId(group.getId());
+        settlementDTO.setDebtorId(bob.getId());
+        settlementDTO.setCreditorId(alice.getId());
+        settlementDTO.setAmount(new BigDecimal("50.00"));
+        SettlementDTO recorded = settlementService.recordSettlement(settlementDTO);
+        endRequest();
+
+        Map<Long, BalanceDTO.UserBalanceDTO> byUser = byUser(balanceService.calculateGroupBalance(group.getId()));
+        assertEquals(0, BigDecimal.ZERO.compareTo(byUser.get(bob.getId()).getNetBalance()));
+        assertEquals(0, new BigDecimal("50.00").compareTo(byUser.get(bob.getId()).getTotalPaid()));
+
+        settlementService.deleteSettlement(recorded.getId());
+        endRequest();
+
+        byUser = byUser(balanceService.calculateGroupBalance(group.getId()));
+        assertEquals(0, new BigDecimal("-50.00").compareTo(byUser.get(bob.getId()).getNetBalance()));
+    }
+
+    @Test
+    void updateExpense_ShouldWriteOnlyChangedSplits() {
+        ExpenseDTO created = expenseService.createExpense(expense("Hotel", "90.00", alice, alice, bob, charlie));
+        endRequest();
+        Set<Long> originalSplitIds = splitIds(created.getId());
+        DistributionSummary rows = meterRegistry.summary("equalpay.expenses.update.split.rows");
+        double before = rows.totalAmount();
+
+        // Solo cambia la descripción: ninguna división se reescribe
+        expenseService.updateExpense(created.getId(), expense("Hotel centro", "90.00", alice, alice, bob, charlie));
+        endRequest();
+        assertEquals(before, rows.totalAmount());
+        assertEquals(originalSplitIds, splitIds(created.getId()));
+
+        // Quitar a charlie: se borra su división y se actualizan las otras dos. La colección de participantes
+        // gestionada se modifica en lugar de reemplazarse
+        Set<User> participants = entityManager.find(Expense.class, created.getId()).getParticipants();
+        expenseService.updateExpense(created.getId(), expense("Hotel centro", "90.00", alice, alice, bob));
+        assertSame(participants, entityManager.find(Expense.class, created.getId()).getParticipants());
+        assertEquals(Set.of(alice.getId(), bob.getId()), participants.stream()
+                .map(User::getId).collect(Collectors.toSet()));
+        endRequest();
+        assertEquals(before + 3, rows.totalAmount());
+        assertTrue(originalSplitIds.containsAll(splitIds(created.getId())));
+
+        Map<Long, BalanceDTO.UserBalanceDTO> byUser = byUser(balanceService.calculateGroupBalance(group.getId()));
+        assertEquals(0, new BigDecimal("45.00").compareTo(byUser.get(alice.getId()).getNetBalance()));
+        assertEquals(0, new BigDecimal("-45.00").compareTo(byUser.get(bob.getId()).getNetBalance()));
+        assertEquals(0, BigDecimal.ZERO.compareTo(byUser.get(charlie.getId()).getNetBalance()));
+    }
+
+    @Test
+    void rebuildGroup_ShouldMatchIncrementalLedger() {
+        expenseService.createExpense(expense("Hotel", "100.00", alice, alice, bob, charlie));
+        expenseService.createExpense(expense("Cena", "45.50", bob, alice, bob));
+        endRequest();
+
+        SettlementDTO settlementDTO = new SettlementDTO();
+        settlementDTO.setGroupId(group.getId());
+        settlementDTO.setDebtorId(charlie.getId());
+        settlementDTO.setCreditorId(alice.getId());
+        settlementDTO.setAmount(new BigDecimal("20.00"));
+        settlementService.recordSettlement(settlementDTO);
+        endRequest();
+
+        BalanceDTO incremental = balanceService.calculateGroupBalance(group.getId());
+        balanceLedgerService.rebuildGroup(group.getId());
+        endRequest();
+        BalanceDTO rebuilt = balanceService.calculateGroupBalance(group.getId());
+
+        assertEquals(0, incremental.getTotalExpenses().compareTo(rebuilt.getTotalExpenses()));
+        Map<Long, BalanceDTO.UserBalanceDTO> rebuiltByUser = byUser(rebuilt);
+        for (BalanceDTO.UserBalanceDTO expected : incremental.getUserBalances()) {
+            BalanceDTO.UserBalanceDTO actual = rebuiltByUser.get(expected.getUserId());
+            assertEquals(0, expected.getTotalPaid().compareTo(actual.getTotalPaid()));
+            assertEquals(0, expected.getTotalOwed().compareTo(actual.getTotalOwed()));
+            assertEquals(0, expected.getNetBalance().compareTo(actual.getNetBalance()));
+        }
+    }
+
+    @Test
+    void getUserBalances_ShouldMatchGroupBalance() {
+        expenseService.createExpense(expense("Hotel", "90.00", alice, alice, bob, charlie));
+        expenseService.createExpense(expense("Taxi", "20.00", bob, alice, bob));
+        endRequest();
+
+        SettlementDTO settlementDTO = new SettlementDTO();
+        settlementDTO.setGroupId(group.getId());
+        settlementDTO.setDebtorId(charlie.getId());
+        settlementDTO.setCreditorId(alice.getId());
+        settlementDTO.setAmount(new BigDecimal("15.00"));
+        settlementService.recordSettlement(settlementDTO);
+        endRequest();
+
+        Map<Long, BalanceDTO.UserBalanceDTO> byUser = byUser(balanceService.calculateGroupBalance(group.getId()));
+        for (User user : Arrays.asList(alice, bob, charlie)) {
+            List<BalanceDTO> balances = balanceService.getUserBalances(user.getId());
+            assertEquals(1, balances.size());
+            assertEquals(group.getId(), balances.get(0).getGroupId());
+            assertEquals(byUser.get(user.getId()).getNetBalance().doubleValue(), balances.get(0).getBalance(), 0.001);
+            assertEquals(0, byUser.get(user.getId()).getNetBalance()
+                    .compareTo(balanceService.getUserNetBalanceInGroup(user.getId(), group.getId())));
+        }
+    }
+
+    @Test
+    void calculateUserDebts_ShouldSumSplitsPerGroup() {
+        expenseService.createExpense(expense("Hotel", "90.00", alice, alice, bob, charlie));
+        expenseService.createExpense(expense("Taxi", "20.00", alice, alice, bob));
+        endRequest();
+
+        List<BalanceDTO.DebtDTO> debts = balanceService.calculateUserDebts(bob.getId());
+
+        assertEquals(1, debts.size());
+        assertEquals(bob.getId(), debts.get(0).getDebtorId());
+        assertEquals(group.getId(), debts.get(0).getCreditorId());
+        assertEquals("Viaje", debts.get(0).getCreditorName());
+        assertEquals(0, new BigDecimal("40.00").compareTo(debts.get(0).getAmount()));
+    }
+
+    @Test
+    void calculateGroupBalance_ShouldBeCachedUntilGroupChanges() {
+        expenseService.createExpense(expense("Hotel", "90.00", alice, alice, bob, charlie));
+        endRequest();
+
+        BalanceDTO first = balanceService.calculateGroupBalance(group.getId());
+        assertSame(first, balanceService.calculateGroupBalance(group.getId()));
+
+        // Un nuevo gasto invalida la entrada del grupo
+        expenseService.createExpense(expense("Taxi", "30.00", bob, alice, bob));
+        endRequest();
+        BalanceDTO afterExpense = balanceService.calculateGroupBalance(group.getId());
+        assertNotSame(first, afterExpense);
+        assertEquals(0, new BigDecimal("120.00").compareTo(afterExpense.getTotalExpenses()));
+
+        // Agregar un miembro también
+        User dave = userRepository.save(new User("Dave", "dave@email.com"));
+        groupService.addMemberToGroup(group.getId(), dave.getId());
+        endRequest();
+        BalanceDTO afterMember = balanceService.calculateGroupBalance(group.getId());
+        assertNotSame(afterExpense, afterMember);
+        assertEquals(4, afterMember.getUserBalances().size());
+    }
+
+    @Test
+    void calculateGroupBalanceAsOf_ShouldReplayFromCheckpoints() {
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        ExpenseDTO hotel = expense("Hotel", "90.00", alice, alice, bob, charlie);
+        hotel.setExpenseDate(now.minusDays(10));
+        expenseService.createExpense(hotel);
+        ExpenseDTO dinner = expense("Cena", "60.00", bob, alice, bob);
+        dinner.setExpenseDate(now.minusDays(5));
+        expenseService.createExpense(dinner);
+
+        SettlementDTO settlementDTO = new SettlementDTO();
+        settlementDTO.setGroupId(group.getId());
+        settlementDTO.setDebtorId(charlie.getId());
+        settlementDTO.setCreditorId(alice.getId());
+        settlementDTO.setAmount(new BigDecimal("30.00"));
+        settlementDTO.setSettledAt(now.minusDays(3));
+        settlementService.recordSettlement(settlementDTO);
+        endRequest();
+
+        // Al final del día del hotel solo cuenta ese gasto; la consulta deja un checkpoint para ese día
+        LocalDateTime afterHotel = now.minusDays(7);
+        BalanceDTO past = balanceService.calculateGroupBalanceAsOf(group.getId(), afterHotel, null);
+        assertEquals(0, new BigDecimal("90.00").compareTo(past.getTotalExpenses()));
+        assertEquals(0, new BigDecimal("60.00").compareTo(byUser(past).get(alice.getId()).getNetBalance()));
+        assertEquals(0, new BigDecimal("-30.00").compareTo(byUser(past).get(charlie.getId()).getNetBalance()));
+        endRequest();
+        assertEquals(3, checkpointRepository.findByGroupIdAndCheckpointDate(group.getId(), afterHotel.toLocalDate()).size());
+
+        // Hasta ahora coincide con el ledger actual
+        Map<Long, BalanceDTO.UserBalanceDTO> current = byUser(balanceService.calculateGroupBalance(group.getId()));
+        Map<Long, BalanceDTO.UserBalanceDTO> asOfNow = byUser(balanceService.calculateGroupBalanceAsOf(group.getId(), now, null));
+        for (User user : Arrays.asList(alice, bob, charlie)) {
+            assertEquals(0, current.get(user.getId()).getNetBalance().compareTo(asOfNow.get(user.getId()).getNetBalance()));
+            assertEquals(0, current.get(user.getId()).getTotalPaid().compareTo(asOfNow.get(user.getId()).getTotalPaid()));
+        }
+        endRequest();
+
+        // Un gasto con fecha anterior invalida el checkpoint y aparece en el balance pasado
+        ExpenseDTO taxi = expense("Taxi", "30.00", bob, alice, bob, charlie);
+        taxi.setExpenseDate(now.minusDays(9));
+        expenseService.createExpense(taxi);
+        endRequest();
+        assertTrue(checkpointRepository.findByGroupIdAndCheckpointDate(group.getId(), afterHotel.toLocalDate()).isEmpty());
+
+        past = balanceService.calculateGroupBalanceAsOf(group.getId(), afterHotel, null);
+        assertEquals(0, new BigDecimal("120.00").compareTo(past.getTotalExpenses()));
+        assertEquals(0, new BigDecimal("50.00").compareTo(byUser(past).get(alice.getId()).getNetBalance()));
+        assertEquals(0, new BigDecimal("-40.00").compareTo(byUser(past).get(charlie.getId()).getNetBalance()));
+    }
+
+    @Test
+    void calculateBalanceSeries_ShouldMatchBalanceAtEachPeriodEnd() {
+        LocalDate today = LocalDate.now();
+        ExpenseDTO hotel = expense("Hotel", "90.00", alice, alice, bob, charlie);
+        hotel.setExpenseDate(today.minusDays(4).atTime(10, 0));
+        expenseService.createExpense(hotel);
+        ExpenseDTO dinner = expense("Cena", "60.00", bob, alice, bob);
+        dinner.setExpenseDate(today.minusDays(2).atTime(21, 0));
+        expenseService.createExpense(dinner);
+        SettlementDTO settlementDTO = new SettlementDTO();
+        settlementDTO.setGroupId(group.getId());
+        settlementDTO.setDebtorId(charlie.getId());
+        settlementDTO.setCreditorId(alice.getId());
+        settlementDTO.setAmount(new BigDecimal("30.00"));
+        settlementDTO.setSettledAt(today.minusDays(1).atTime(8, 0));
+        settlementService.recordSettlement(settlementDTO);
+        endRequest();
+
+        BalanceSeriesDTO series = balanceSeriesService.calculateBalanceSeries(
+                group.getId(), BalanceSeriesService.Bucket.DAY, today.minusDays(5), today.minusDays(1)).orElseThrow();
+        assertEquals(5, series.getPeriods().size());
+        assertEquals(3, series.getMembers().size());
+
+        for (int p = 0; p < series.getPeriods().size(); p++) {
+            LocalDateTime periodEnd = series.getPeriods().get(p).atTime(23, 59, 59);
+            Map<Long, BalanceDTO.UserBalanceDTO> expected =
+                    byUser(balanceService.calculateGroupBalanceAsOf(group.getId(), periodEnd, null));
+            for (BalanceSeriesDTO.MemberSeriesDTO member : series.getMembers()) {
+                assertEquals(0, expected.get(member.getUserId()).getNetBalance().compareTo(member.getNetBalances().get(p)),
+                        "periodo " + p + ", usuario " + member.getUserName());
+            }
+        }
+
+        BalanceSeriesDTO weekly = balanceSeriesService.calculateBalanceSeries(
+                group.getId(), BalanceSeriesService.Bucket.WEEK, today.minusDays(5), today).orElseThrow();
+        assertEquals(DayOfWeek.MONDAY, weekly.getPeriods().get(0).getDayOfWeek());
+        BalanceSeriesDTO.MemberSeriesDTO charlieSeries = weekly.getMembers().stream()
+                .filter(member -> member.getUserId().equals(charlie.getId()))
+                .findFirst()
+                .orElseThrow();
+        assertEquals(0, BigDecimal.ZERO.compareTo(charlieSeries.getNetBalances().get(weekly.getPeriods().size() - 1)));
+
+        assertTrue(balanceSeriesService.calculateBalanceSeries(-1L, BalanceSeriesService.Bucket.DAY, null, null).isEmpty());
+    }
+
+    @Test
+    void calculateGroupBalance_ShouldIgnoreSettlementsWithFormerMembers() {
+        LocalDate today = LocalDate.now();
+        ExpenseDTO hotel = expense("Hotel", "90.00", alice, alice, bob, charlie);
+        hotel.setExpenseDate(today.minusDays(3).atTime(10, 0));
+        expenseService.createExpense(hotel);
+        SettlementDTO settlementDTO = new SettlementDTO();
+        settlementDTO.setGroupId(group.getId());
+        settlementDTO.setDebtorId(charlie.getId());
+        settlementDTO.setCreditorId(alice.getId());
+        settlementDTO.setAmount(new BigDecimal("30.00"));
+        settlementDTO.setSettledAt(today.minusDays(2).atTime(10, 0));
+        settlementService.recordSettlement(settlementDTO);
+        endRequest();
+
+        groupService.removeMemberFromGroup(group.getId(), charlie.getId());
+        endRequest();
+
+        // Como el cálculo original: sin charlie, su liquidación con alice deja de contar
+        Map<Long, BalanceDTO.UserBalanceDTO> current = byUser(balanceService.calculateGroupBalance(group.getId()));
+        assertEquals(2, current.size());
+        assertEquals(0, new BigDecimal("90.00").compareTo(current.get(alice.getId()).getTotalPaid()));
+        assertEquals(0, new BigDecimal("30.00").compareTo(current.get(alice.getId()).getTotalOwed()));
+        assertEquals(0, new BigDecimal("60.00").compareTo(current.get(alice.getId()).getNetBalance()));
+        assertEquals(0, new BigDecimal("-30.00").compareTo(current.get(bob.getId()).getNetBalance()));
+
+        // El balance a una fecha, la serie y el dashboard aplican la misma regla
+        Map<Long, BalanceDTO.UserBalanceDTO> asOfNow =
+                byUser(balanceService.calculateGroupBalanceAsOf(group.getId(), LocalDateTime.now(), null));
+        assertEquals(0, new BigDecimal("60.00").compareTo(asOfNow.get(alice.getId()).getNetBalance()));
+        for (LocalDate from : Arrays.asList(today.minusDays(3), today.minusDays(1))) {
+            BalanceSeriesDTO series = balanceSeriesService.calculateBalanceSeries(
+                    group.getId(), BalanceSeriesService.Bucket.DAY, from, today).orElseThrow();
+            BalanceSeriesDTO.MemberSeriesDTO aliceSeries = series.getMembers().stream()
+                    .filter(member -> member.getUserId().equals(alice.getId()))
+                    .findFirst()
+                    .orElseThrow();
+            assertEquals(0, new BigDecimal("60.00").compareTo(
+                    aliceSeries.getNetBalances().get(series.getPeriods().size() - 1)));
+        }
+        assertEquals(60.0, dashboardService.getDashboardStats(alice.getId()).getNetBalance(), 0.001);
+    }
+
+    @Test
+    void getUserNetBalanceInGroup_ShouldMatchGroupBalance_WhenSettlementPartnerLeft() {
+        // Sin gastos, el balance del grupo queda en cero aunque haya liquidaciones
+        SettlementDTO settlementDTO = new SettlementDTO();
+        settlementDTO.setGroupId(group.getId());
+        settlementDTO.setDebtorId(bob.getId());
+        settlementDTO.setCreditorId(alice.getId());
+        settlementDTO.setAmount(new BigDecimal("10.00"));
+        settlementService.recordSettlement(settlementDTO);
+        endRequest();
+        assertEquals(0, BigDecimal.ZERO.compareTo(balanceService.getUserNetBalanceInGroup(alice.getId(), group.getId())));
+
+        expenseService.createExpense(expense("Hotel", "90.00", alice, alice, bob, charlie));
+        settlementDTO.setDebtorId(charlie.getId());
+        settlementDTO.setAmount(new BigDecimal("30.00"));
+        settlementService.recordSettlement(settlementDTO);
+        endRequest();
+        groupService.removeMemberFromGroup(group.getId(), charlie.getId());
+        endRequest();
+
+        Map<Long, BalanceDTO.UserBalanceDTO> byUser = byUser(balanceService.calculateGroupBalance(group.getId()));
+        for (User user : Arrays.asList(alice, bob)) {
+            assertEquals(0, byUser.get(user.getId()).getNetBalance()
+                    .compareTo(balanceService.getUserNetBalanceInGroup(user.getId(), group.getId())));
+        }
+    }
+
+    @Test
+    void getUserBalances_ShouldMatchGroupBalance_WhenSettlementPartnerLeft() {
+        expenseService.createExpense(expense("Hotel", "90.00", alice, alice, bob, charlie));
+        SettlementDTO settlementDTO = new SettlementDTO();
+        settlementDTO.setGroupId(group.getId());
+        settlementDTO.setDebtorId(charlie.getId());
+        settlementDTO.setCreditorId(alice.getId());
+        settlementDTO.setAmount(new BigDecimal("30.00"));
+        settlementService.recordSettlement(settlementDTO);
+        endRequest();
+        groupService.removeMemberFromGroup(group.getId(), charlie.getId());
+        endRequest();
+
+        // Alice: pagó 90 y debe 30; la liquidación con charlie ya no cuenta
+        Map<Long, BalanceDTO.UserBalanceDTO> byUser = byUser(balanceService.calculateGroupBalance(group.getId()));
+        assertEquals(0, new BigDecimal("60.00").compareTo(byUser.get(alice.getId()).getNetBalance()));
+        for (User user : Arrays.asList(alice, bob)) {
+            List<BalanceDTO> balances = balanceService.getUserBalances(user.getId());
+            assertEquals(1, balances.size());
+            assertEquals(byUser.get(user.getId()).getNetBalance().doubleValue(), balances.get(0).getBalance(), 0.001);
+        }
+        assertTrue(balanceService.getUserBalances(charlie.getId()).isEmpty());
+    }
+
+    // Simula el fin de una petición: cada operación de servicio corre en su propio contexto de persistencia
+    private void endRequest() {
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private ExpenseDTO expense(String description, String amount, User payer, User... participants) {
+        ExpenseDTO dto = new ExpenseDTO();
+        dto.setDescription(description);
+        dto.setAmount(new BigDecimal(amount));
+        dto.setPayerId(payer.getId());
+        dto.setGroupId(group.getId());
+        dto.setSplitType(Expense.SplitType.EQUAL);
+        dto.setParticipants(Arrays.stream(participants)
+                .map(user -> new UserDTO(user.getId(), user.getName(), user.getEmail(), null, null))
+                .collect(Collectors.toList()));
+        return dto;
+    }
+
+    private Set<Long> splitIds(Long expenseId) {
+        return expenseSplitRepository.findByExpenseId(expenseId).stream()
+                .map(split -> split.getId())
+                .collect(Collectors.toSet());
+    }
+
+    private Map<Long, BalanceDTO.UserBalanceDTO> byUser(BalanceDTO balance) {
+        return balance.getUserBalances().stream()
+                .collect(Collectors.toMap(BalanceDTO.UserBalanceDTO::getUserId, ub -> ub));
+    }
+}
@@ -0,0 +1,268 @@
+package com.equalpay.service;
+
+import com.equalpay.dto.BalanceDTO;
+import com.equalpay.dto.BalanceDeltaDTO;
+import com.equalpay.dto.DashboardStatsDTO;
+import com.equalpay.repository.GroupRepository;
+import com.equalpay.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BalanceStreamServiceTest {
+
+    @Mock
+    private BalanceRequestCoalescer balanceRequestCoalescer;
+
+    @Mock
+    private BalanceCacheInvalidator balanceCacheInvalidator;
+
+    @Mock
+    private DashboardService dashboardService;
+
+    @Mock
+    private GroupRepository groupRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @InjectMocks
+    private BalanceStreamService balanceStreamService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(balanceStreamService, "heartbeatSeconds", 60L);
+        ReflectionTestUtils.setField(balanceStreamService, "sendThreads", 2);
+        ReflectionTestUtils.setField(balanceStreamService, "clientQueueCapacity", 32);
+        balanceStreamService.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        balanceStreamService.stop();
+    }
+
+    @Test
+    void subscribeGroup_ShouldSendSnapshotThenOneDeltaPerCommit() throws Exception {
+        when(groupRepository.existsById(1L)).thenReturn(true);
+        when(balanceRequestCoalescer.calculateGroupBalance(1L, null)).thenReturn(
+                balance(1L, "40.00", member(1L, "10.00"), member(2L, "-10.00"), member(3L, "0.00")),
+                balance(1L, "50.00", member(1L, "15.00"), member(2L, "-10.00"), member(3L, "-5.00")));
+        RecordingEmitter emitter = new RecordingEmitter();
+
+        balanceStreamService.subscribeGroup(1L, emitter);
+        assertEquals(BalanceStreamService.BALANCE_EVENT, emitter.next().name);
+
+        // Dos escrituras del mismo grupo en una transacción: un solo cálculo y un solo envío, después del commit
+        commit(() -> {
+            balanceStreamService.onGroupBalanceChanged(new GroupBalanceChangedEvent(1L));
+            balanceStreamService.onGroupBalanceChanged(new GroupBalanceChangedEvent(1L));
+        });
+
+        Recorded delta = emitter.next();
+        assertEquals(BalanceStreamService.BALANCE_DELTA_EVENT, delta.name);
+        BalanceDeltaDTO payload = (BalanceDeltaDTO) delta.data;
+        assertEquals(List.of(1L, 3L), payload.getUserBalances().stream()
+                .map(BalanceDTO.UserBalanceDTO::getUserId).collect(Collectors.toList()));
+        assertEquals(0, new BigDecimal("50.00").compareTo(payload.getTotalExpenses()));
+        assertNull(emitter.events.poll(200, TimeUnit.MILLISECONDS));
+        verify(balanceRequestCoalescer, times(2)).calculateGroupBalance(1L, null);
+        verify(balanceCacheInvalidator).evict(1L);
+    }
+
+    @Test
+    void subscribeUser_ShouldReceiveDeltasOfItsGroupsAndDashboardOncePerCommit() throws Exception {
+        when(userRepository.existsById(1L)).thenReturn(true);
+        when(dashboardService.getDashboardStats(1L)).thenReturn(new DashboardStatsDTO());
+        when(balanceRequestCoalescer.calculateGroupBalance(10L, null))
+                .thenReturn(balance(10L, "20.00", member(1L, "10.00"), member(2L, "-10.00")));
+        when(balanceRequestCoalescer.calculateGroupBalance(20L, null))
+                .thenReturn(balance(20L, "8.00", member(1L, "-4.00"), member(3L, "4.00")));
+        when(groupRepository.findMemberIdsIn(eq(10L), anyCollection())).thenReturn(Set.of(1L));
+        when(groupRepository.findMemberIdsIn(eq(20L), anyCollection())).thenReturn(Set.of(1L));
+        RecordingEmitter emitter = new RecordingEmitter();
+
+        balanceStreamService.subscribeUser(1L, emitter);
+        assertEquals(BalanceStreamService.DASHBOARD_EVENT, emitter.next().name);
+
+        commit(() -> {
+            balanceStreamService.onGroupBalanceChanged(new GroupBalanceChangedEvent(10L));
+            balanceStreamService.onGroupBalanceChanged(new GroupBalanceChangedEvent(20L));
+        });
+
+        assertEquals(BalanceStreamService.BALANCE_DELTA_EVENT, emitter.next().name);
+        assertEquals(BalanceStreamService.BALANCE_DELTA_EVENT, emitter.next().name);
+        assertEquals(BalanceStreamService.DASHBOARD_EVENT, emitter.next().name);
+        assertNull(emitter.events.poll(200, TimeUnit.MILLISECONDS));
+        verify(dashboardService, times(2)).getDashboardStats(1L);
+        assertThrows(IllegalArgumentException.class, () -> balanceStreamService.subscribeUser(99L));
+    }
+
+    @Test
+    void commitBurst_ShouldComputeEachGroupOnceAndSkipGroupsWithoutSubscribedMembers() throws Exception {
+        when(userRepository.existsById(1L)).thenReturn(true);
+        CountDownLatch snapshotStarted = new CountDownLatch(1);
+        CountDownLatch releaseSnapshot = new CountDownLatch(1);
+        when(dashboardService.getDashboardStats(1L)).thenAnswer(invocation -> {
+            snapshotStarted.countDown();
+            releaseSnapshot.await(5, TimeUnit.SECONDS);
+            return new DashboardStatsDTO();
+        });
+        when(balanceRequestCoalescer.calculateGroupBalance(10L, null))
+                .thenReturn(balance(10L, "20.00", member(1L, "10.00"), member(2L, "-10.00")));
+        when(groupRepository.findMemberIdsIn(eq(10L), anyCollection())).thenReturn(Set.of(1L));
+        when(groupRepository.findMemberIdsIn(eq(30L), anyCollection())).thenReturn(Set.of());
+        RecordingEmitter emitter = new RecordingEmitter();
+
+        // Con el hilo de cálculo ocupado en la foto inicial, los commits se juntan en lugar de encolarse
+        balanceStreamService.subscribeUser(1L, emitter);
+        assertTrue(snapshotStarted.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 5; i++) {
+            commit(() -> balanceStreamService.onGroupBalanceChanged(new GroupBalanceChangedEvent(10L)));
+            commit(() -> balanceStreamService.onGroupBalanceChanged(new GroupBalanceChangedEvent(30L)));
+        }
+        releaseSnapshot.countDown();
+
+        assertEquals(BalanceStreamService.DASHBOARD_EVENT, emitter.next().name);
+        assertEquals(BalanceStreamService.BALANCE_DELTA_EVENT, emitter.next().name);
+        assertEquals(BalanceStreamService.DASHBOARD_EVENT, emitter.next().name);
+        assertNull(emitter.events.poll(200, TimeUnit.MILLISECONDS));
+        verify(balanceRequestCoalescer, times(1)).calculateGroupBalance(10L, null);
+        // El grupo 30 no tiene miembros conectados: ni se evicta ni se recalcula
+        verify(balanceRequestCoalescer, never()).calculateGroupBalance(30L, null);
+        verify(balanceCacheInvalidator, never()).evict(30L);
+    }
+
+    @Test
+    void slowClient_ShouldNotDelayOthersAndBeDisconnectedWhenItsQueueFills() throws Exception {
+        when(groupRepository.existsById(1L)).thenReturn(true);
+        when(balanceRequestCoalescer.calculateGroupBalance(1L, null)).thenReturn(
+                balance(1L, "10.00", member(1L, "5.00"), member(2L, "-5.00")),
+                balance(1L, "20.00", member(1L, "10.00"), member(2L, "-10.00")),
+                balance(1L, "30.00", member(1L, "15.00"), member(2L, "-15.00")),
+                balance(1L, "40.00", member(1L, "20.00"), member(2L, "-20.00")),
+                balance(1L, "50.00", member(1L, "25.00"), member(2L, "-25.00")),
+                balance(1L, "60.00", member(1L, "30.00"), member(2L, "-30.00")));
+        ReflectionTestUtils.setField(balanceStreamService, "clientQueueCapacity", 2);
+        RecordingEmitter slow = new RecordingEmitter();
+        slow.block();
+        balanceStreamService.subscribeGroup(1L, slow);
+        RecordingEmitter fast = new RecordingEmitter();
+        balanceStreamService.subscribeGroup(1L, fast);
+
+        // El lento queda escribiendo la foto inicial; el rápido recibe la suya y cada delta igual
+        assertEquals(BalanceStreamService.BALANCE_EVENT, fast.next().name);
+        for (int i = 0; i < 3; i++) {
+            commit(() -> balanceStreamService.onGroupBalanceChanged(new GroupBalanceChangedEvent(1L)));
+            assertEquals(BalanceStreamService.BALANCE_DELTA_EVENT, fast.next().name);
+        }
+
+        // Dos deltas en cola llenan la del lento; el tercero lo desconecta
+        assertTrue(slow.completed.await(5, TimeUnit.SECONDS));
+        slow.release();
+        commit(() -> balanceStreamService.onGroupBalanceChanged(new GroupBalanceChangedEvent(1L)));
+        assertEquals(BalanceStreamService.BALANCE_DELTA_EVENT, fast.next().name);
+        assertEquals(BalanceStreamService.BALANCE_EVENT, slow.next().name);
+        assertNull(slow.events.poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    // Simula una transacción que confirma
+    private static void commit(Runnable writes) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            writes.run();
+            List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+            synchronizations.forEach(TransactionSynchronization::afterCommit);
+            synchronizations.forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private static BalanceDTO balance(Long groupId, String total, BalanceDTO.UserBalanceDTO... members) {
+        BalanceDTO balance = new BalanceDTO(groupId, "Grupo " + groupId, new BigDecimal(total));
+        balance.setUserBalances(List.of(members));
+        balance.setSettlements(List.of());
+        return balance;
+    }
+
+    private static BalanceDTO.UserBalanceDTO member(Long userId, String net) {
+        BigDecimal amount = new BigDecimal(net);
+        return new BalanceDTO.UserBalanceDTO(userId, "Usuario " + userId,
+                amount.max(BigDecimal.ZERO), amount.min(BigDecimal.ZERO).negate(), amount);
+    }
+
+    private record Recorded(String name, Object data) {}
+
+    // Guarda el nombre y el objeto de cada evento enviado. Bloqueado, simula un cliente que no consume
+    private static class RecordingEmitter extends SseEmitter {
+        private final BlockingQueue<Recorded> events = new LinkedBlockingQueue<>();
+        private final CountDownLatch completed = new CountDownLatch(1);
+        private volatile CountDownLatch blocked = new CountDownLatch(0);
+
+        private void block() {
+            blocked = new CountDownLatch(1);
+        }
+
+        private void release() {
+            blocked.countDown();
+        }
+
+        @Override
+        public void complete() {
+            completed.countDown();
+            super.complete();
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            try {
+                blocked.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            String name = null;
+            Object data = null;
+            for (ResponseBodyEmitter.DataWithMediaType part : builder.build()) {
+                if (part.getData() instanceof String text) {
+                    if (text.startsWith("event:")) {
+                        name = text.substring("event:".length(), text.indexOf('\n'));
+                    }
+                } else {
+                    data = part.getData();
+                }
+            }
+            if (name != null) {
+                events.add(new Recorded(name, data));
+            }
+        }
+
+        private Recorded next() throws InterruptedException {
+            Recorded recorded = events.poll(5, TimeUnit.SECONDS);
+            assertNotNull(recorded, "No llegó el evento esperado");
+            return recorded;
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.equalpay.service;
+
+import com.equalpay.dto.DashboardStatsDTO;
+import com.equalpay.dto.ExpenseDTO;
+import com.equalpay.dto.RecentActivityDTO;
+import com.equalpay.dto.SettlementDTO;
+import com.equalpay.dto.SpendHistoryDTO;
+import com.equalpay.dto.UserDTO;
+import com.equalpay.entity.Expense;
+import com.equalpay.entity.Group;
+import com.equalpay.entity.User;
+import com.equalpay.repository.GroupRepository;
+import com.equalpay.repository.UserActivityRepository;
+import com.equalpay.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class DashboardServiceTest {
+
+    @Autowired
+    private DashboardService dashboardService;
+
+    @Autowired
+    private ExpenseService expenseService;
+
+    @Autowired
+    private SettlementService settlementService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private GroupRepository groupRepository;
+
+    @Autowired
+    private UserActivityService userActivityService;
+
+    @Autowired
+    private UserActivityRepository userActivityRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private User alice;
+    private User bob;
+    private Group group;
+
+    @BeforeEach
+    void setUp() {
+        alice = userRepository.save(new User("Alice", "alice@email.com"));
+        bob = userRepository.save(new User("Bob", "bob@email.com"));
+
+        group = new Group();
+        group.setName("Depto");
+        group.setCreator(alice);
+        group.getMembers().addAll(Arrays.asList(alice, bob));
+        group = groupRepository.save(group);
+    }
+
+    @Test
+    void getDashboardStats_ShouldAggregateSharesGroupsAndBalance() {
+        expenseService.createExpense(expense("Supermercado", "30.00", alice, alice, bob));
+        expenseService.createExpense(expense("Luz", "10.00", bob, alice, bob));
+        entityManager.flush();
+        entityManager.clear();
+
+        DashboardStatsDTO stats = dashboardService.getDashboardStats(alice.getId());
+
+        // Alice debe 15 + 5, pagó 30
+        assertEquals(20.0, stats.getTotalSpent(), 0.001);
+        assertEquals(1, stats.getActiveGroups());
+        assertEquals(10.0, stats.getNetBalance(), 0.001);
+        assertEquals(0.0, stats.getMonthlyChange().getTotalSpent(), 0.001);
+    }
+
+    @Test
+    void getDashboardStats_ShouldReturnZerosForUserWithoutActivity() {
+        User carol = userRepository.save(new User("Carol", "carol@email.com"));
+
+        DashboardStatsDTO stats = dashboardService.getDashboardStats(carol.getId());
+
+        assertEquals(0.0, stats.getTotalSpent(), 0.001);
+        assertEquals(0, stats.getActiveGroups());
+        assertEquals(0.0, stats.getNetBalance(), 0.001);
+    }
+
+    @Test
+    void getSpendHistory_ShouldFollowExpenseMonthsThroughEditsAndDeletes() {
+        LocalDateTime lastMonth = LocalDateTime.now().minusMonths(1);
+        ExpenseDTO older = expense("Supermercado", "30.00", alice, alice, bob);
+        older.setExpenseDate(lastMonth);
+        Long olderId = expenseService.createExpense(older).getId();
+        Long currentId = expenseService.createExpense(expense("Luz", "10.00", bob, alice, bob)).getId();
+        entityManager.flush();
+        entityManager.clear();
+
+        // Mes anterior 15, mes actual 5
+        SpendHistoryDTO history = dashboardService.getSpendHistory(alice.getId(), 3);
+        assertEquals(3, history.getMonths().size());
+        assertEquals(0, new BigDecimal("0.00").compareTo(history.getMonths().get(0).getTotalSpent()));
+        assertEquals(0, new BigDecimal("15.00").compareTo(history.getMonths().get(1).getTotalSpent()));
+        assertEquals(0, new BigDecimal("5.00").compareTo(history.getMonths().get(2).getTotalSpent()));
+        assertEquals(group.getId(), history.getMonths().get(2).getGroups().get(0).getGroupId());
+        assertEquals(-66.667, dashboardService.getDashboardStats(alice.getId()).getMonthlyChange().getTotalSpent(), 0.001);
+
+        // El gasto pasa al mes actual con otro monto: sale del mes anterior
+        ExpenseDTO moved = expense("Supermercado", "40.00", alice, alice, bob);
+        moved.setExpenseDate(LocalDateTime.now());
+        expenseService.updateExpense(olderId, moved);
+        expenseService.deleteExpense(currentId);
+        entityManager.flush();
+        entityManager.clear();
+
+        history = dashboardService.getSpendHistory(alice.getId(), 2);
+        assertEquals(0, BigDecimal.ZERO.compareTo(history.getMonths().get(0).getTotalSpent()));
+        assertTrue(history.getMonths().get(0).getGroups().isEmpty());
+        assertEquals(0, new BigDecimal("20.00").compareTo(history.getMonths().get(1).getTotalSpent()));
+        assertEquals(20.0, dashboardService.getDashboardStats(alice.getId()).getTotalSpent(), 0.001);
+        assertThrows(IllegalArgumentException.class, () -> dashboardService.getSpendHistory(alice.getId(), 0));
+    }
+
+    @Test
+    void getRecentActivity_ShouldMergeExpensesAndSettlementsAcrossPages() {
+        Long first = expenseService.createExpense(expense("Supermercado", "30.00", alice, alice, bob)).getId();
+        Long second = expenseService.createExpense(expense("Luz", "10.00", bob, alice, bob)).getId();
+        Long third = expenseService.createExpense(expense("Gas", "8.00", alice, alice, bob)).getId();
+        Long older = settlementService.recordSettlement(settlement("5.00", LocalDateTime.now().minusDays(2))).getId();
+        Long newer = settlementService.recordSettlement(settlement("4.00", LocalDateTime.now().minusDays(1))).getId();
+        entityManager.flush();
+        entityManager.clear();
+
+        List<String> seen = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            RecentActivityDTO page = dashboardService.getRecentActivity(alice.getId(), 2, cursor);
+            assertTrue(page.getExpenses().size() + page.getSettlements().size() <= 2);
+            page.getExpenses().forEach(item -> seen.add("e" + item.getId()));
+            page.getSettlements().forEach(item -> seen.add("s" + item.getId()));
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(3, pages);
+        assertEquals(List.of("e" + third, "e" + second, "e" + first, "s" + newer, "s" + older), seen);
+        assertThrows(IllegalArgumentException.class, () -> dashboardService.getRecentActivity(alice.getId(), 2, "x"));
+    }
+
+    @Test
+    void getRecentActivity_ShouldFollowParticipantChangesAndDeletes() {
+        Long id = expenseService.createExpense(expense("Supermercado", "30.00", alice, alice, bob)).getId();
+        entityManager.flush();
+        entityManager.clear();
+        assertEquals(1, dashboardService.getRecentActivity(bob.getId(), 10, null).getExpenses().size());
+
+        // Bob deja de participar: desaparece de su timeline, no del de Alice
+        expenseService.updateExpense(id, expense("Supermercado", "30.00", alice, alice));
+        entityManager.flush();
+        entityManager.clear();
+        assertTrue(dashboardService.getRecentActivity(bob.getId(), 10, null).getExpenses().isEmpty());
+        assertEquals(1, dashboardService.getRecentActivity(alice.getId(), 10, null).getExpenses().size());
+
+        expenseService.deleteExpense(id);
+        entityManager.flush();
+        entityManager.clear();
+        assertTrue(dashboardService.getRecentActivity(alice.getId(), 10, null).getExpenses().isEmpty());
+    }
+
+    @Test
+    void backfillIfEmpty_ShouldRebuildTimelineForExistingData() {
+        expenseService.createExpense(expense("Supermercado", "30.00", alice, alice, bob));
+        settlementService.recordSettlement(settlement("5.00", LocalDateTime.now().minusDays(1)));
+        userActivityRepository.deleteAll();
+        entityManager.flush();
+        entityManager.clear();
+
+        assertEquals(2, userActivityService.backfillIfEmpty());
+        assertEquals(4, userActivityRepository.count());
+        assertEquals(0, userActivityService.backfillIfEmpty());
+
+        RecentActivityDTO activity = dashboardService.getRecentActivity(bob.getId(), 10, null);
+        assertEquals(1, activity.getExpenses().size());
+        assertEquals(1, activity.getSettlements().size());
+    }
+
+    private SettlementDTO settlement(String amount, LocalDateTime settledAt) {
+        SettlementDTO dto = new SettlementDTO();
+        dto.setGroupId(group.getId());
+        dto.setDebtorId(bob.getId());
+        dto.setCreditorId(alice.getId());
+        dto.setAmount(new BigDecimal(amount));
+        dto.setSettledAt(settledAt);
+        return dto;
+    }
+
+    private ExpenseDTO expense(String description, String amount, User payer, User... participants) {
+        ExpenseDTO dto = new ExpenseDTO();
+        dto.setDescription(description);
+        dto.setAmount(new BigDecimal(amount));
+        dto.setPayerId(payer.getId());
+        dto.setGroupId(group.getId());
+        dto.setSplitType(Expense.SplitType.EQUAL);
+        dto.setParticipants(Arrays.stream(participants)
+                .map(user -> new UserDTO(user.getId(), user.getName(), user.getEmail(), null, null))
+                .collect(Collectors.toList()));
+        return dto;
+    }
+}
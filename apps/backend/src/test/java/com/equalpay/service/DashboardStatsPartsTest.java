@@ -0,0 +1,108 @@
+package com.equalpay.service;
+
+import com.equalpay.dto.DashboardStatsDTO;
+import com.equalpay.repository.GroupMemberBalanceRepository;
+import com.equalpay.repository.UserMonthSpendRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DashboardStatsPartsTest {
+
+    @Mock
+    private UserMonthSpendRepository userMonthSpendRepository;
+
+    @Mock
+    private GroupMemberBalanceRepository groupMemberBalanceRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private DashboardService dashboardService;
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(2);
+        ReflectionTestUtils.setField(dashboardService, "dashboardExecutor", executor);
+        ReflectionTestUtils.setField(dashboardService, "partTimeoutMs", 200L);
+        dashboardService.initTransactionTemplate();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void getDashboardStats_ShouldRunPartsConcurrently() {
+        // Cada parte espera a la otra: en secuencia ninguna terminaría antes del plazo
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        when(userMonthSpendRepository.findSpendTotalsByUserId(eq(1L), any(), any())).thenAnswer(invocation -> {
+            bothStarted.countDown();
+            bothStarted.await(1, TimeUnit.SECONDS);
+            return Collections.singletonList(new Object[] {3000L, 1000L, 500L});
+        });
+        when(groupMemberBalanceRepository.findMembershipTotalsByUserId(1L)).thenAnswer(invocation -> {
+            bothStarted.countDown();
+            bothStarted.await(1, TimeUnit.SECONDS);
+            return Collections.singletonList(new Object[] {2L, new BigDecimal("12.50")});
+        });
+
+        DashboardStatsDTO stats = dashboardService.getDashboardStats(1L);
+
+        assertFalse(stats.isPartial());
+        assertEquals(30.0, stats.getTotalSpent(), 0.001);
+        assertEquals(2, stats.getActiveGroups());
+        assertEquals(12.5, stats.getNetBalance(), 0.001);
+        assertEquals(100.0, stats.getMonthlyChange().getTotalSpent(), 0.001);
+    }
+
+    @Test
+    void getDashboardStats_ShouldReturnPartialResultWhenPartTimesOut() {
+        CountDownLatch release = new CountDownLatch(1);
+        when(userMonthSpendRepository.findSpendTotalsByUserId(eq(1L), any(), any()))
+                .thenReturn(Collections.singletonList(new Object[] {3000L, 1000L, 500L}));
+        when(groupMemberBalanceRepository.findMembershipTotalsByUserId(1L)).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return Collections.singletonList(new Object[] {2L, BigDecimal.ONE});
+        });
+
+        long start = System.nanoTime();
+        DashboardStatsDTO stats = dashboardService.getDashboardStats(1L);
+        release.countDown();
+
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 2000);
+        assertTrue(stats.isPartial());
+        assertEquals(30.0, stats.getTotalSpent(), 0.001);
+        assertEquals(0, stats.getActiveGroups());
+        assertEquals(1.0, meterRegistry.counter("equalpay.dashboard.stats.partial", "part", "memberships").count());
+    }
+}
@@ -0,0 +1,150 @@
+package com.equalpay.service;
+
+import com.equalpay.dto.BalanceDTO;
+import com.equalpay.dto.ExpenseImportResultDTO;
+import com.equalpay.entity.Group;
+import com.equalpay.entity.User;
+import com.equalpay.repository.ExpenseRepository;
+import com.equalpay.repository.GroupRepository;
+import com.equalpay.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class ExpenseImportTest {
+
+    @Autowired
+    private ExpenseImportService expenseImportService;
+
+    @Autowired
+    private BalanceService balanceService;
+
+    @Autowired
+    private ExpenseRepository expenseRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private GroupRepository groupRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private User alice;
+    private User bob;
+    private User carol;
+    private Group group;
+
+    @BeforeEach
+    void setUp() {
+        alice = userRepository.save(new User("Alice", "alice@email.com"));
+        bob = userRepository.save(new User("Bob", "bob@email.com"));
+        carol = userRepository.save(new User("Carol", "carol@email.com"));
+
+        group = new Group();
+        group.setName("Depto");
+        group.setCreator(alice);
+        group.getMembers().addAll(Arrays.asList(alice, bob));
+        group = groupRepository.save(group);
+    }
+
+    @Test
+    void importExpenses_ShouldWriteValidRowsAndReportInvalidOnes() throws Exception {
+        String csv = String.join("\n",
+                "groupId,payerId,description,amount,expenseDate,participantIds,notes",
+                row(alice.getId(), "Super", "30.00", "2024-03-01T10:00:00", alice.getId() + ";" + bob.getId(), "\"Leche, pan\""),
+                row(bob.getId(), "Luz", "10.00", "", "", ""),
+                row(alice.getId(), "Cine", "-5", "", "", ""),
+                row(carol.getId(), "Cena", "20.00", "", "", ""),
+                row(alice.getId(), "Taxi", "12.00", "", alice.getId() + ";" + carol.getId(), ""),
+                group.getId() + ",abc,Bar,5.00,,,");
+
+        ExpenseImportResultDTO result = expenseImportService.importExpenses(stream(csv), ExpenseImportService.Format.CSV);
+
+        assertEquals(6, result.getRowsRead());
+        assertEquals(2, result.getImported());
+        assertEquals(4, result.getFailed());
+        assertEquals(List.of(4L, 5L, 6L, 7L), result.getErrors().stream()
+                .map(ExpenseImportResultDTO.RowErrorDTO::getLine)
+                .collect(Collectors.toList()));
+        assertTrue(result.getErrors().get(1).getMessage().contains("pagador"));
+        assertTrue(result.getErrors().get(2).getMessage().contains(String.valueOf(carol.getId())));
+        assertTrue(result.getRowsPerSecond() > 0);
+
+        entityManager.flush();
+        entityManager.clear();
+
+        assertEquals(2, expenseRepository.findByGroupId(group.getId()).size());
+
+        // Alice pagó 30 (debe 15 + 5), Bob pagó 10 (debe 15 + 5)
+        BalanceDTO balance = balanceService.calculateGroupBalance(group.getId());
+        assertEquals(0, new BigDecimal("40.00").compareTo(balance.getTotalExpenses()));
+        BalanceDTO.UserBalanceDTO aliceBalance = balance.getUserBalances().stream()
+                .filter(b -> b.getUserId().equals(alice.getId()))
+                .findFirst()
+                .orElseThrow();
+        assertEquals(0, new BigDecimal("10.00").compareTo(aliceBalance.getNetBalance()));
+    }
+
+    @Test
+    void importExpenses_ShouldReadNdjson() throws Exception {
+        String ndjson = String.join("\n",
+                "{\"groupId\":" + group.getId() + ",\"payerId\":" + bob.getId() + ",\"description\":\"Gas\",\"amount\":\"18.00\"}",
+                "{no es json",
+                "{\"groupId\":999999,\"payerId\":" + bob.getId() + ",\"description\":\"Agua\",\"amount\":\"4.00\"}",
+                // participantIds que no es lista: error de la fila, no reparto entre todo el grupo
+                "{\"groupId\":" + group.getId() + ",\"payerId\":" + bob.getId()
+                        + ",\"description\":\"Pizza\",\"amount\":\"9.00\",\"participantIds\":" + alice.getId() + "}");
+
+        ExpenseImportResultDTO result = expenseImportService.importExpenses(stream(ndjson), ExpenseImportService.Format.NDJSON);
+
+        assertEquals(4, result.getRowsRead());
+        assertEquals(1, result.getImported());
+        assertEquals(3, result.getFailed());
+        assertTrue(result.getErrors().get(1).getMessage().contains("no encontrado"));
+        assertEquals(4L, result.getErrors().get(2).getLine());
+        assertTrue(result.getErrors().get(2).getMessage().contains("participantIds"));
+    }
+
+    @Test
+    void importExpenses_ShouldLeavePersistenceContextEmptyAfterEachChunk() throws Exception {
+        String csv = String.join("\n",
+                "groupId,payerId,description,amount,expenseDate,participantIds,notes",
+                row(alice.getId(), "Super", "30.00", "", "", ""),
+                row(bob.getId(), "Luz", "10.00", "", "", ""));
+
+        ExpenseImportResultDTO result = expenseImportService.importExpenses(stream(csv), ExpenseImportService.Format.CSV);
+
+        // Mismo contexto de persistencia que el servicio (test transaccional): no queda ninguna entidad gestionada
+        assertEquals(2, result.getImported());
+        assertEquals(0, entityManager.unwrap(Session.class).getStatistics().getEntityCount());
+        assertEquals(2, expenseRepository.findByGroupId(group.getId()).size());
+    }
+
+    private String row(Long payerId, String description, String amount, String date, String participants, String notes) {
+        return String.join(",", String.valueOf(group.getId()), String.valueOf(payerId), description, amount, date, participants, notes);
+    }
+
+    private static InputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
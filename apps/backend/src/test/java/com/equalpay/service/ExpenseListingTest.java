@@ -0,0 +1,164 @@
+package com.equalpay.service;
+
+import com.equalpay.dto.ExpenseDTO;
+import com.equalpay.dto.ExpensePageDTO;
+import com.equalpay.dto.UserDTO;
+import com.equalpay.entity.Expense;
+import com.equalpay.entity.Group;
+import com.equalpay.entity.User;
+import com.equalpay.repository.GroupRepository;
+import com.equalpay.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class ExpenseListingTest {
+
+    @Autowired
+    private ExpenseService expenseService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private GroupRepository groupRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private User alice;
+    private User bob;
+    private Group group;
+
+    @BeforeEach
+    void setUp() {
+        alice = userRepository.save(new User("Alice", "alice@email.com"));
+        bob = userRepository.save(new User("Bob", "bob@email.com"));
+
+        group = new Group();
+        group.setName("Depto");
+        group.setCreator(alice);
+        group.getMembers().addAll(Arrays.asList(alice, bob));
+        group = groupRepository.save(group);
+    }
+
+    @Test
+    void getExpensesPageByGroupId_ShouldWalkAllExpensesInOrder() {
+        // Varios gastos comparten fecha: el desempate por ID no debe perder ni repetir filas
+        LocalDateTime base = LocalDateTime.now().minusDays(10).withNano(0);
+        List<Long> created = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            created.add(expenseService.createExpense(expense("Gasto " + i, base.plusDays(i / 2))).getId());
+        }
+
+        List<Long> seen = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            ExpensePageDTO page = expenseService.getExpensesPageByGroupId(group.getId(), cursor, 3);
+            assertTrue(page.getItems().size() <= 3);
+            page.getItems().forEach(item -> seen.add(item.getId()));
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(3, pages);
+        assertEquals(created.size(), seen.size());
+        List<Long> expected = new ArrayList<>(created);
+        expected.sort((a, b) -> Long.compare(b, a));
+        assertEquals(expected, seen);
+    }
+
+    @Test
+    void listEndpoints_ShouldMatchDetailView() {
+        expenseService.createExpense(expense("Supermercado", LocalDateTime.now().minusDays(2).withNano(0)));
+        expenseService.createExpense(expense("Luz", LocalDateTime.now().minusDays(1).withNano(0)));
+        entityManager.flush();
+        entityManager.clear();
+
+        List<ExpenseDTO> byGroup = expenseService.getExpensesByGroupId(group.getId());
+        assertEquals(2, byGroup.size());
+        assertEquals("Luz", byGroup.get(0).getDescription());
+        assertEquals(2, expenseService.getExpensesByPayerId(alice.getId()).size());
+        assertEquals(2, expenseService.getExpensesByParticipantId(bob.getId()).size());
+        assertEquals(2, expenseService.getExpensesByUserInvolved(bob.getId()).size());
+
+        for (ExpenseDTO row : byGroup) {
+            ExpenseDTO detail = expenseService.getExpenseById(row.getId()).orElseThrow();
+            assertEquals(detail.getDescription(), row.getDescription());
+            assertEquals(0, detail.getAmount().compareTo(row.getAmount()));
+            assertEquals(detail.getPayer().getName(), row.getPayer().getName());
+            assertEquals(detail.getGroup().getName(), row.getGroup().getName());
+            assertEquals(detail.getParticipantCount(), row.getParticipantCount());
+            assertEquals(0, detail.getAmountPerParticipant().compareTo(row.getAmountPerParticipant()));
+            assertEquals(detail.getSplits().size(), row.getSplits().size());
+            assertEquals(0, row.getSplits().get(0).getAmountOwed().compareTo(new BigDecimal("5.00")));
+        }
+    }
+
+    @Test
+    void exportExpensesByGroupId_ShouldWriteOneLinePerExpenseInLedgerOrder() throws Exception {
+        LocalDateTime base = LocalDateTime.now().minusDays(5).withNano(0);
+        expenseService.createExpense(expense("Luz", base.plusDays(2)));
+        expenseService.createExpense(expense("Supermercado", base));
+        expenseService.createExpense(expense("Gas", base.plusDays(1)));
+        entityManager.flush();
+        entityManager.clear();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(3, expenseService.exportExpensesByGroupId(group.getId(), out));
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(3, lines.length);
+        List<String> descriptions = new ArrayList<>();
+        for (String line : lines) {
+            ExpenseDTO exported = objectMapper.readValue(line, ExpenseDTO.class);
+            descriptions.add(exported.getDescription());
+            assertEquals("Alice", exported.getPayer().getName());
+            assertEquals(2, exported.getSplits().size());
+        }
+        assertEquals(List.of("Supermercado", "Gas", "Luz"), descriptions);
+    }
+
+    @Test
+    void getExpensesPage_ShouldRejectInvalidCursor() {
+        assertThrows(IllegalArgumentException.class, () -> expenseService.getExpensesPage("no-es-un-cursor", 10));
+        assertThrows(IllegalArgumentException.class, () -> expenseService.getExpensesPage(null, 0));
+    }
+
+    private ExpenseDTO expense(String description, LocalDateTime expenseDate) {
+        ExpenseDTO dto = new ExpenseDTO();
+        dto.setDescription(description);
+        dto.setAmount(new BigDecimal("10.00"));
+        dto.setPayerId(alice.getId());
+        dto.setGroupId(group.getId());
+        dto.setExpenseDate(expenseDate);
+        dto.setSplitType(Expense.SplitType.EQUAL);
+        dto.setParticipants(Arrays.asList(alice, bob).stream()
+                .map(user -> new UserDTO(user.getId(), user.getName(), user.getEmail(), null, null))
+                .collect(Collectors.toList()));
+        return dto;
+    }
+}
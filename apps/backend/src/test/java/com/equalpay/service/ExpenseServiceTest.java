@@ -9,11 +9,14 @@ import com.equalpay.repository.ExpenseRepository;
 import com.equalpay.repository.ExpenseSplitRepository;
 import com.equalpay.repository.GroupRepository;
 import com.equalpay.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.math.BigDecimal;
@@ -24,6 +27,8 @@ import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -41,6 +46,18 @@ class ExpenseServiceTest {
     @Mock
     private ExpenseSplitRepository expenseSplitRepository;
 
+    @Mock
+    private BalanceLedgerService balanceLedgerService;
+
+    @Mock
+    private UserActivityService userActivityService;
+
+    @Mock
+    private UserMonthSpendService userMonthSpendService;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
     @InjectMocks
     private ExpenseService expenseService;
 
@@ -81,7 +98,9 @@ class ExpenseServiceTest {
         // Given
         when(userRepository.findById(1L)).thenReturn(Optional.of(alice));
         when(groupRepository.findById(1L)).thenReturn(Optional.of(group));
-        when(userRepository.findById(2L)).thenReturn(Optional.of(bob));
+        when(groupRepository.isMember(1L, 1L)).thenReturn(true);
+        when(userRepository.findAllById(anyCollection())).thenReturn(Arrays.asList(alice, bob));
+        when(groupRepository.findMemberIdsIn(eq(1L), anyCollection())).thenReturn(new HashSet<>(Arrays.asList(1L, 2L)));
         
         Expense savedExpense = new Expense();
         savedExpense.setId(1L);
@@ -150,6 +169,7 @@ class ExpenseServiceTest {
         
         when(userRepository.findById(3L)).thenReturn(Optional.of(charlie));
         when(groupRepository.findById(1L)).thenReturn(Optional.of(group));
+        when(groupRepository.isMember(1L, 3L)).thenReturn(false);
 
         // When & Then
         IllegalArgumentException exception = assertThrows(
@@ -160,4 +180,33 @@ class ExpenseServiceTest {
         assertEquals("El pagador debe ser miembro del grupo", exception.getMessage());
         verify(expenseRepository, never()).save(any(Expense.class));
     }
-}
\ No newline at end of file
+
+    @Test
+    void createExpense_ShouldReportAllInvalidParticipants() {
+        // Given: 3 no existe y 4 existe pero no es miembro del grupo
+        User dave = new User("Dave", "dave@email.com");
+        dave.setId(4L);
+        expenseDTO.setParticipants(Arrays.asList(
+            new UserDTO(1L, "Alice", "alice@email.com", null, null),
+            new UserDTO(3L, "Nadie", "nadie@email.com", null, null),
+            new UserDTO(4L, "Dave", "dave@email.com", null, null)
+        ));
+
+        when(userRepository.findById(1L)).thenReturn(Optional.of(alice));
+        when(groupRepository.findById(1L)).thenReturn(Optional.of(group));
+        when(groupRepository.isMember(1L, 1L)).thenReturn(true);
+        when(userRepository.findAllById(anyCollection())).thenReturn(Arrays.asList(alice, dave));
+        when(groupRepository.findMemberIdsIn(eq(1L), anyCollection())).thenReturn(new HashSet<>(Arrays.asList(1L)));
+
+        // When & Then
+        IllegalArgumentException exception = assertThrows(
+            IllegalArgumentException.class,
+            () -> expenseService.createExpense(expenseDTO)
+        );
+
+        assertEquals("Participantes no encontrados: [3]; "
+                + "Todos los participantes deben ser miembros del grupo (no miembros: [4])", exception.getMessage());
+        verify(userRepository, never()).findById(3L);
+        verify(expenseRepository, never()).save(any(Expense.class));
+    }
+}
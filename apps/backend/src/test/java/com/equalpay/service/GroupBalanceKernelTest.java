@@ -0,0 +1,45 @@
+package com.equalpay.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GroupBalanceKernelTest {
+
+    @Test
+    void register_ShouldAssignDenseIndexes_AndGrow() {
+        GroupBalanceKernel kernel = new GroupBalanceKernel(2);
+
+        for (long userId = 1000; userId < 1100; userId++) {
+            assertEquals(userId - 1000, kernel.register(userId));
+        }
+
+        assertEquals(100, kernel.size());
+        assertEquals(42, kernel.indexOf(1042));
+        assertEquals(42, kernel.register(1042));
+        assertEquals(-1, kernel.indexOf(7));
+    }
+
+    @Test
+    void accumulate_ShouldKeepCentsAndConvertOnlyAtTheEnd() {
+        GroupBalanceKernel kernel = new GroupBalanceKernel(4);
+        int alice = kernel.register(1L);
+        int bob = kernel.register(2L);
+
+        kernel.addExpense(alice, GroupBalanceKernel.toCents(new BigDecimal("90.00")));
+        kernel.addShare(alice, 4500);
+        kernel.addShare(bob, 4500);
+        kernel.addSettlement(bob, alice, 1000);
+
+        assertEquals(0, new BigDecimal("90.00").compareTo(kernel.expensesTotalAmount()));
+        assertEquals(0, new BigDecimal("55.00").compareTo(kernel.netAmount(alice)));
+        assertEquals(0, new BigDecimal("-35.00").compareTo(kernel.netAmount(bob)));
+        assertEquals(0, new BigDecimal("90.00").compareTo(kernel.expensesPaidAmount(alice)));
+
+        kernel.reset();
+        assertEquals(0, kernel.size());
+        assertEquals(-1, kernel.indexOf(1L));
+    }
+}
@@ -0,0 +1,139 @@
+package com.equalpay.service;
+
+import com.equalpay.dto.BalanceDTO;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SettlementPlannerTest {
+
+    private final GreedySettlementPlanner greedy = new GreedySettlementPlanner();
+    private final HeapSettlementPlanner heap = new HeapSettlementPlanner();
+    private final OptimalSettlementPlanner optimal = new OptimalSettlementPlanner(heap, 20, 1000);
+
+    @Test
+    void heapPlan_ShouldSettleSimpleGroup() {
+        List<BalanceDTO.UserBalanceDTO> balances = List.of(
+            balance(1L, "60.00"),
+            balance(2L, "-30.00"),
+            balance(3L, "-30.00")
+        );
+
+        List<BalanceDTO.DebtDTO> plan = heap.plan(balances);
+
+        assertEquals(2, plan.size());
+        for (BalanceDTO.DebtDTO debt : plan) {
+            assertEquals(1L, debt.getCreditorId());
+            assertEquals(0, new BigDecimal("30.00").compareTo(debt.getAmount()));
+        }
+    }
+
+    @Test
+    void heapPlan_ShouldReturnEmpty_WhenEveryoneIsSettled() {
+        List<BalanceDTO.UserBalanceDTO> balances = List.of(balance(1L, "0.00"), balance(2L, "0.00"));
+
+        assertTrue(heap.plan(balances).isEmpty());
+    }
+
+    @Test
+    void plans_ShouldSettleAllBalances_WithAtMostNMinusOneTransfers() {
+        Random random = new Random(7);
+        for (int round = 0; round < 50; round++) {
+            List<BalanceDTO.UserBalanceDTO> balances = randomBalances(2 + random.nextInt(60), random);
+
+            for (SettlementPlanner planner : List.of(greedy, heap)) {
+                List<BalanceDTO.DebtDTO> plan = planner.plan(balances);
+                assertSettles(balances, plan);
+                assertTrue(plan.size() <= balances.size() - 1);
+            }
+        }
+    }
+
+    @Test
+    void optimalPlan_ShouldUseFewerTransfersThanHeap_WhenZeroSumSubsetsExist() {
+        // {4, -4} y {2, 3, -5} se liquidan por separado: 3 transferencias en vez de 4
+        List<BalanceDTO.UserBalanceDTO> balances = List.of(
+            balance(1L, "2.00"),
+            balance(2L, "4.00"),
+            balance(3L, "-5.00"),
+            balance(4L, "-4.00"),
+            balance(5L, "3.00")
+        );
+
+        assertEquals(4, heap.plan(balances).size());
+
+        List<BalanceDTO.DebtDTO> plan = optimal.plan(balances);
+        assertSettles(balances, plan);
+        assertEquals(3, plan.size());
+    }
+
+    @Test
+    void optimalPlan_ShouldNeverBeWorseThanHeap() {
+        Random random = new Random(11);
+        for (int round = 0; round < 50; round++) {
+            List<BalanceDTO.UserBalanceDTO> balances = randomBalances(2 + random.nextInt(12), random);
+
+            List<BalanceDTO.DebtDTO> plan = optimal.plan(balances);
+            assertSettles(balances, plan);
+            assertTrue(plan.size() <= heap.plan(balances).size());
+        }
+    }
+
+    @Test
+    void optimalPlan_ShouldFallBackToHeap_WhenGroupIsTooLarge() {
+        List<BalanceDTO.UserBalanceDTO> balances = randomBalances(40, new Random(3));
+        OptimalSettlementPlanner limited = new OptimalSettlementPlanner(heap, 10, 1000);
+
+        assertEquals(heap.plan(balances).size(), limited.plan(balances).size());
+    }
+
+    @Test
+    void optimalPlan_ShouldFallBackToHeapBeforeAllocatingTables_WhenBudgetIsExhausted() {
+        // Planificador nuevo, sin tablas en el pool: con el presupuesto vencido no llega a pedirlas
+        List<BalanceDTO.UserBalanceDTO> balances = randomBalances(18, new Random(5));
+        OptimalSettlementPlanner expired = new OptimalSettlementPlanner(heap, 20, -1);
+
+        assertEquals(heap.plan(balances).size(), expired.plan(balances).size());
+    }
+
+    @Test
+    void optimalPlanner_ShouldRejectMaxMembersThatOverflowTheTables() {
+        assertThrows(IllegalStateException.class, () -> new OptimalSettlementPlanner(heap, 31, 1000));
+    }
+
+    static void assertSettles(List<BalanceDTO.UserBalanceDTO> balances, List<BalanceDTO.DebtDTO> plan) {
+        Map<Long, BigDecimal> remaining = new HashMap<>();
+        for (BalanceDTO.UserBalanceDTO balance : balances) {
+            remaining.put(balance.getUserId(), balance.getNetBalance());
+        }
+        for (BalanceDTO.DebtDTO debt : plan) {
+            assertTrue(debt.getAmount().signum() > 0);
+            remaining.merge(debt.getDebtorId(), debt.getAmount(), BigDecimal::add);
+            remaining.merge(debt.getCreditorId(), debt.getAmount().negate(), BigDecimal::add);
+        }
+        remaining.values().forEach(value -> assertEquals(0, value.signum()));
+    }
+
+    static List<BalanceDTO.UserBalanceDTO> randomBalances(int count, Random random) {
+        List<BalanceDTO.UserBalanceDTO> balances = new ArrayList<>();
+        long total = 0;
+        for (int i = 0; i < count; i++) {
+            long cents = i == count - 1 ? -total : random.nextInt(20_000) - 10_000;
+            total += cents;
+            balances.add(balance((long) i + 1, BigDecimal.valueOf(cents, 2).toPlainString()));
+        }
+        return balances;
+    }
+
+    static BalanceDTO.UserBalanceDTO balance(Long userId, String net) {
+        return new BalanceDTO.UserBalanceDTO(userId, "Usuario " + userId,
+                BigDecimal.ZERO, BigDecimal.ZERO, new BigDecimal(net));
+    }
+}
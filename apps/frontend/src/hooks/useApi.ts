@@ -1,10 +1,12 @@
-import { useMutation, useQuery, useQueryClient } from '@tanstack/react-query'
+import { useEffect } from 'react'
+import { useMutation, useQuery, useQueryClient, type QueryClient } from '@tanstack/react-query'
 import apiClient from '../services/api'
 import type { 
   User, 
   Group, 
   Expense, 
   Balance, 
+  BalanceDelta,
   CreateGroupRequest, 
   CreateExpenseRequest 
 } from '../services/api'
@@ -288,15 +290,57 @@ export function useMarkExpenseSplitAsPaid() {
 }
 
 // Balance Hooks
+// Kept fresh by the group's balance stream, so it never goes stale by time
 export function useGroupBalance(groupId: number) {
+  useGroupBalanceStream(groupId)
+
   return useQuery({
     queryKey: queryKeys.balances(groupId),
     queryFn: () => apiClient.getGroupBalance(groupId),
     enabled: !!groupId,
-    staleTime: 2 * 60 * 1000,
+    staleTime: Infinity,
+  })
+}
+
+// Merge a pushed delta (changed members only, absolute values) into the cached group balance
+function applyBalanceDelta(queryClient: QueryClient, delta: BalanceDelta) {
+  queryClient.setQueryData<Balance>(queryKeys.balances(delta.groupId), (current) => {
+    if (!current) return current
+    const changed = new Map(delta.userBalances.map(balance => [balance.userId, balance]))
+    const known = new Set(current.userBalances.map(balance => balance.userId))
+    return {
+      ...current,
+      groupName: delta.groupName,
+      totalExpenses: delta.totalExpenses,
+      userBalances: current.userBalances
+        .map(balance => changed.get(balance.userId) ?? balance)
+        .concat(delta.userBalances.filter(balance => !known.has(balance.userId))),
+      settlements: delta.settlements,
+    }
   })
 }
 
+export function useGroupBalanceStream(groupId: number) {
+  const queryClient = useQueryClient()
+
+  useEffect(() => {
+    if (!groupId) return
+    const source = apiClient.openGroupBalanceStream(groupId)
+    source.addEventListener('balance', (event) => {
+      queryClient.setQueryData(queryKeys.balances(groupId), JSON.parse((event as MessageEvent).data))
+    })
+    source.addEventListener('balance-delta', (event) => {
+      applyBalanceDelta(queryClient, JSON.parse((event as MessageEvent).data))
+    })
+    source.addEventListener('group-deleted', () => {
+      source.close()
+      queryClient.removeQueries({ queryKey: queryKeys.balances(groupId) })
+      queryClient.invalidateQueries({ queryKey: queryKeys.groups })
+    })
+    return () => source.close()
+  }, [groupId, queryClient])
+}
+
 export function useUserDebts(userId: number) {
   return useQuery({
     queryKey: queryKeys.userBalances(userId),
@@ -336,14 +380,39 @@ export function useDashboardStats(userId?: number) {
   const defaultUserId = 1 // Demo mode user ID
   const userIdToUse = userId || defaultUserId
   
+  useDashboardStream(userIdToUse)
+
+  // Kept fresh by the user's dashboard stream
   return useQuery({
     queryKey: [...queryKeys.dashboardStats, userIdToUse],
     queryFn: () => apiClient.getDashboardStats(userIdToUse),
-    staleTime: 2 * 60 * 1000, // 2 minutes
+    staleTime: Infinity,
     enabled: !!userIdToUse
   })
 }
 
+export function useDashboardStream(userId: number) {
+  const queryClient = useQueryClient()
+
+  useEffect(() => {
+    if (!userId) return
+    const source = apiClient.openDashboardStream(userId)
+    source.addEventListener('dashboard', (event) => {
+      queryClient.setQueryData([...queryKeys.dashboardStats, userId], JSON.parse((event as MessageEvent).data))
+    })
+    source.addEventListener('balance-delta', (event) => {
+      applyBalanceDelta(queryClient, JSON.parse((event as MessageEvent).data))
+      queryClient.invalidateQueries({ queryKey: queryKeys.userBalances(userId) })
+      queryClient.invalidateQueries({ queryKey: queryKeys.recentActivity })
+    })
+    source.addEventListener('group-deleted', (event) => {
+      queryClient.removeQueries({ queryKey: queryKeys.balances(JSON.parse((event as MessageEvent).data)) })
+      queryClient.invalidateQueries({ queryKey: queryKeys.groups })
+    })
+    return () => source.close()
+  }, [userId, queryClient])
+}
+
 export function useRecentActivity(limit: number = 10, userId?: number) {
   const defaultUserId = 1 // Demo mode user ID
   const userIdToUse = userId || defaultUserId
@@ -55,6 +55,15 @@ export interface Balance {
   settlements: Debt[]
 }
 
+// Pushed by the balance streams: only the members whose balance changed, with their new values
+export interface BalanceDelta {
+  groupId: number
+  groupName: string
+  totalExpenses: number
+  userBalances: UserBalance[]
+  settlements: Debt[]
+}
+
 export interface UserBalance {
   userId: number
   userName: string
@@ -313,6 +322,17 @@ class ApiClient {
     return this.request<Balance>(`/balances/group/${groupId}`)
   }
 
+  // Server-sent events: 'balance' once, then 'balance-delta' after every committed change.
+  // EventSource reconnects by itself and the server sends a fresh 'balance' on reconnect
+  openGroupBalanceStream(groupId: number): EventSource {
+    return new EventSource(`${this.baseURL}/balances/group/${groupId}/stream`)
+  }
+
+  // Server-sent events: 'dashboard' stats, plus 'balance-delta' / 'group-deleted' for the user's groups
+  openDashboardStream(userId: number): EventSource {
+    return new EventSource(`${this.baseURL}/dashboard/stream?userId=${userId}`)
+  }
+
   async getUserDebts(userId: number): Promise<Debt[]> {
     return this.request<Debt[]>(`/balances/user/${userId}/debts`)
   }
@@ -331,11 +351,12 @@ class ApiClient {
       activeGroups: number
       netBalance: number
     }
+    partial: boolean
   }> {
     return this.request(`/dashboard/stats?userId=${userId}`)
   }
 
-  async getRecentActivity(userId: number, limit: number = 10): Promise<{
+  async getRecentActivity(userId: number, limit: number = 10, before?: string): Promise<{
     expenses: {
       id: number
       description: string
@@ -346,8 +367,25 @@ class ApiClient {
       createdAt: string
     }[]
     settlements: any[]
+    nextCursor: string | null
+  }> {
+    const cursor = before ? `&before=${encodeURIComponent(before)}` : ''
+    return this.request(`/dashboard/activity?userId=${userId}&limit=${limit}${cursor}`)
+  }
+
+  async getSpendHistory(userId: number, months: number = 12): Promise<{
+    userId: number
+    months: {
+      month: string
+      totalSpent: number
+      groups: {
+        groupId: number
+        groupName: string
+        spent: number
+      }[]
+    }[]
   }> {
-    return this.request(`/dashboard/activity?userId=${userId}&limit=${limit}`)
+    return this.request(`/dashboard/spend-history?userId=${userId}&months=${months}`)
   }
 }
 